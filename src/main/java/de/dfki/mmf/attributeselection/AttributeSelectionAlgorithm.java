@@ -24,12 +24,12 @@
 
 package de.dfki.mmf.attributeselection;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
-import java.text.DecimalFormat;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Magdalena Kaiser on 17.07.2016.
@@ -40,13 +40,35 @@ import java.util.*;
  * and to select the most suitable ones with respect to the used AttributeSelectorType
  */
 public class AttributeSelectionAlgorithm implements Runnable{
+    //saliency annotations are encoded as integer weights with this scale
+    private static final int SALIENCY_WEIGHT_SCALE = 10000;
 
     private JsonObject queriedObject;
     private List<JsonObject> databaseObjects;
     protected JsonObject saliencyAnnotations;
+    //saliency annotations encoded as integer weights (created when they are needed first)
+    private Map<String, Integer> saliencyWeights;
     private  Set<JsonObject> identifierSet;
     private double saliencyThreshold = 0.5;
     private boolean partialIdentifier = false;
+    //select the attributes incrementally instead of combining all discriminating attributes
+    private boolean incrementalSelection = false;
+    //search the identifiers by increasing size and stop at the first size which yields an identifier instead of building the whole power set
+    private boolean smallestIdentifierSearch = false;
+    //number of identifiers the smallest identifier search should at least collect before stopping
+    private int maxIdentifierCount = Integer.MAX_VALUE;
+    //saliency an identifier found by the smallest identifier search must exceed before stopping, -1.0 if not required
+    private double minimumIdentifierSaliency = -1.0;
+    //budgets of the attribute selection: checked attribute combinations, considered attributes and time (0 if not limited)
+    private long maxCandidateCount = Long.MAX_VALUE;
+    private int maxAttributeCount = Integer.MAX_VALUE;
+    private long timeLimitMillis = 0;
+    //set to true if the selection has been stopped by the candidate or the time budget
+    private boolean budgetExceeded = false;
+    //set to true if attributes have been left out because of the maximum attribute count (the result is still deterministic)
+    private boolean attributesLimited = false;
+    private long candidateCount;
+    private long deadlineNanos;
 
     public AttributeSelectionAlgorithm(List<JsonObject> databaseObjects, JsonObject queriedObject) {
         this.databaseObjects = databaseObjects;
@@ -87,6 +109,115 @@ public class AttributeSelectionAlgorithm implements Runnable{
         this.partialIdentifier = partialIdentifier;
     }
 
+    public boolean isIncrementalSelection() {
+        return incrementalSelection;
+    }
+
+    /**
+     * @param incrementalSelection if true, the result contains only the identifier found by the incremental algorithm
+     * instead of all valid combinations of the discriminating attributes
+     */
+    public void setIncrementalSelection(boolean incrementalSelection) {
+        this.incrementalSelection = incrementalSelection;
+    }
+
+    public boolean isSmallestIdentifierSearch() {
+        return smallestIdentifierSearch;
+    }
+
+    /**
+     * @param smallestIdentifierSearch if true, the attribute combinations are enumerated by increasing size (most salient first within each size)
+     * and the search stops at the first size which yields a valid identifier, the result then only contains identifiers of the sizes searched,
+     * which is sufficient for the selectors looking for the shortest identifier
+     */
+    public void setSmallestIdentifierSearch(boolean smallestIdentifierSearch) {
+        this.smallestIdentifierSearch = smallestIdentifierSearch;
+    }
+
+    public int getMaxIdentifierCount() {
+        return maxIdentifierCount;
+    }
+
+    /**
+     * @param maxIdentifierCount the smallest identifier search continues with the next size until it has found this many identifiers,
+     * only the first ones (smallest first, most salient first within the same size) are returned
+     */
+    public void setMaxIdentifierCount(int maxIdentifierCount) {
+        if(maxIdentifierCount < 1) {
+            throw new IllegalArgumentException("At least one identifier has to be collected.");
+        }
+        this.maxIdentifierCount = maxIdentifierCount;
+    }
+
+    public long getMaxCandidateCount() {
+        return maxCandidateCount;
+    }
+
+    /**
+     * @param maxCandidateCount maximum number of attribute combinations which are checked
+     */
+    public void setMaxCandidateCount(long maxCandidateCount) {
+        if(maxCandidateCount < 1) {
+            throw new IllegalArgumentException("At least one attribute combination has to be checked.");
+        }
+        this.maxCandidateCount = maxCandidateCount;
+    }
+
+    public int getMaxAttributeCount() {
+        return maxAttributeCount;
+    }
+
+    /**
+     * @param maxAttributeCount maximum number of attributes which are considered (the most salient ones), after the pruning by the saliency threshold
+     */
+    public void setMaxAttributeCount(int maxAttributeCount) {
+        if(maxAttributeCount < 1) {
+            throw new IllegalArgumentException("At least one attribute has to be considered.");
+        }
+        this.maxAttributeCount = maxAttributeCount;
+    }
+
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    /**
+     * @param timeLimitMillis time after which the attribute selection stops searching further combinations, 0 if not limited
+     */
+    public void setTimeLimitMillis(long timeLimitMillis) {
+        if(timeLimitMillis < 0) {
+            throw new IllegalArgumentException("The time limit must not be negative.");
+        }
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    /**
+     * @return true if the attribute selection has been stopped by the candidate or the time budget, the result then only contains the identifiers found so far
+     * or (if there are none) the incrementally selected attributes, which are a partial identifier if they do not rule out all database objects
+     */
+    public boolean isBudgetExceeded() {
+        return budgetExceeded;
+    }
+
+    /**
+     * @return true if only the maxAttributeCount most salient attributes have been considered, the identifiers are then searched among them
+     */
+    public boolean isAttributesLimited() {
+        return attributesLimited;
+    }
+
+    public double getMinimumIdentifierSaliency() {
+        return minimumIdentifierSaliency;
+    }
+
+    /**
+     * @param minimumIdentifierSaliency the smallest identifier search continues with the next size until it has found an identifier
+     * whose saliency value is higher than this threshold (normalized like in getShortestMostSalientAboveThresholdIdentifier()), -1.0 if not required
+     */
+    public void setMinimumIdentifierSaliency(double minimumIdentifierSaliency) {
+        this.minimumIdentifierSaliency = minimumIdentifierSaliency;
+    }
+
     /**
      *
      * @param identifierSet
@@ -109,7 +240,7 @@ public class AttributeSelectionAlgorithm implements Runnable{
         }
         ArrayList<JsonObject> resultList = new ArrayList<>(identifierSet);
         Collections.sort(resultList, new CompareSize());
-        CompareSaliency cmpSaliency = new CompareSaliency();
+        double[] saliencyValues = computeSaliencyValues(resultList);
         JsonObject resultMap = new JsonObject();
         double oldSaliencyValue = 0.0;
         int oldSize = resultList.get(0).size();
@@ -118,7 +249,7 @@ public class AttributeSelectionAlgorithm implements Runnable{
         //use same sigmoid function to normalize threshold which is used to normalize saliency value
         saliencyEndResultThreshold = saliencyEndResultThreshold/(Math.sqrt(1+Math.pow(saliencyEndResultThreshold,2.0)));
         for(int i = 0; i< resultList.size(); i++) {
-            double saliencyValue = cmpSaliency.computeSaliencyValue(resultList.get(i));
+            double saliencyValue = saliencyValues[i];
             int size = resultList.get(i).size();
             //accept only greater size if no visible one has been found yet
             if(size > oldSize && foundVisible) {
@@ -171,8 +302,15 @@ public class AttributeSelectionAlgorithm implements Runnable{
             return null;
         }
         ArrayList<JsonObject> resultList = new ArrayList<>(identifierSet);
-        Collections.sort(resultList, new CompareSaliency());
-        return resultList.get(0);
+        double[] saliencyValues = computeSaliencyValues(resultList);
+        //first one with the highest value
+        int mostSalient = 0;
+        for(int i = 1; i < saliencyValues.length; i++) {
+            if(saliencyValues[i] > saliencyValues[mostSalient]) {
+                mostSalient = i;
+            }
+        }
+        return resultList.get(mostSalient);
     }
 
     /**
@@ -184,309 +322,506 @@ public class AttributeSelectionAlgorithm implements Runnable{
         if (identifierSet == null || identifierSet.isEmpty()) {
             return null;
         }
-        ArrayList<JsonObject> saliencyResultList = new ArrayList<>(identifierSet);
+        ArrayList<JsonObject> resultList = new ArrayList<>(identifierSet);
+        int count = resultList.size();
+        //use only two decimal places of the saliency values
+        long[] saliencyBuckets = new long[count];
+        double[] saliencyValues = computeSaliencyValues(resultList);
+        for(int i = 0; i < count; i++) {
+            saliencyBuckets[i] = Math.round(saliencyValues[i] * 100);
+        }
         //sort identifiers according to their saliency values
-        Collections.sort(saliencyResultList, new CompareSaliency());
-        ArrayList<JsonObject> sizeResultList = new ArrayList<>(identifierSet);
+        Integer[] saliencyOrder = new Integer[count];
         //sort identifiers according to their length
-        Collections.sort(sizeResultList, new CompareSize());
-        //determine rank in sizeResultList, if there are several with the same length -> receive same rank
-        HashMap<JsonObject, Integer> sizeMap = new HashMap<>();
+        Integer[] sizeOrder = new Integer[count];
+        for(int i = 0; i < count; i++) {
+            saliencyOrder[i] = i;
+            sizeOrder[i] = i;
+        }
+        Arrays.sort(saliencyOrder, (index1, index2) -> Double.compare(saliencyValues[index2], saliencyValues[index1]));
+        Arrays.sort(sizeOrder, (index1, index2) -> Integer.compare(resultList.get(index1).size(), resultList.get(index2).size()));
+        //determine rank in size order, if there are several with the same length -> receive same rank
+        int[] sizeRanks = new int[count];
         int sizeCounter = 1;
-        sizeMap.put(sizeResultList.get(0), sizeCounter);
-        for(int i = 1; i < sizeResultList.size(); i++) {
-            if(sizeResultList.get(i).size() == sizeResultList.get(i-1).size()) {
-                sizeMap.put(sizeResultList.get(i), sizeCounter);
-            }else {
+        sizeRanks[sizeOrder[0]] = sizeCounter;
+        for(int i = 1; i < count; i++) {
+            if(resultList.get(sizeOrder[i]).size() != resultList.get(sizeOrder[i-1]).size()) {
                 sizeCounter++;
-                sizeMap.put(sizeResultList.get(i), sizeCounter);
             }
+            sizeRanks[sizeOrder[i]] = sizeCounter;
         }
-        //determine rank in saliencyResultList, if there are several with the same saliency value -> receive same rank
-        HashMap<JsonObject, Integer> saliencyMap = new HashMap<>();
+        //determine rank in saliency order, if there are several with the same (rounded) saliency value -> receive same rank
+        int[] saliencyRanks = new int[count];
         int saliencyCounter = 1;
-        saliencyMap.put(saliencyResultList.get(0), saliencyCounter);
-        CompareSaliency compareSaliency;
-        //use only two decimal places
-        DecimalFormat f = new DecimalFormat("##.00");
-        for(int i = 1; i < saliencyResultList.size(); i++) {
-            compareSaliency = new CompareSaliency();
-            if(f.format(compareSaliency.computeSaliencyValue(saliencyResultList.get(i))).equals(f.format(compareSaliency.computeSaliencyValue(saliencyResultList.get(i-1))))) {
-                saliencyMap.put(saliencyResultList.get(i), saliencyCounter);
-            }else {
+        saliencyRanks[saliencyOrder[0]] = saliencyCounter;
+        for(int i = 1; i < count; i++) {
+            if(saliencyBuckets[saliencyOrder[i]] != saliencyBuckets[saliencyOrder[i-1]]) {
                 saliencyCounter++;
-                saliencyMap.put(saliencyResultList.get(i), saliencyCounter);
             }
+            saliencyRanks[saliencyOrder[i]] = saliencyCounter;
         }
 
         //receive as results those which does have a good rank for both categories
-        //add rank of the two maps and add the difference of their rank as well
-        HashMap<JsonObject, Double> resultMap = new HashMap<>();
-        for(JsonObject object: sizeMap.keySet()) {
-            if(saliencyMap.containsKey(object)) {
-                //use relative ranks (rank divided by the number of ranks) and  then calculate sum and difference
-                double add = ((double) (sizeMap.get(object)))/sizeCounter+ ((double) (saliencyMap.get(object)))/saliencyCounter;
-                double diff = ((double) (sizeMap.get(object)))/sizeCounter- ((double) (saliencyMap.get(object)))/saliencyCounter;
-                resultMap.put(object, add + Math.abs(diff));
+        //use relative ranks (rank divided by the number of ranks), add them and add the difference of the ranks as well
+        //take the minimal rank value -> best for both categories, if there are several, take the first one
+        int best = -1;
+        double bestRankValue = Double.MAX_VALUE;
+        for(int i = 0; i < count; i++) {
+            double add = ((double) sizeRanks[i])/sizeCounter + ((double) saliencyRanks[i])/saliencyCounter;
+            double diff = ((double) sizeRanks[i])/sizeCounter - ((double) saliencyRanks[i])/saliencyCounter;
+            double rankValue = add + Math.abs(diff);
+            if(rankValue < bestRankValue) {
+                best = i;
+                bestRankValue = rankValue;
             }
         }
+        return resultList.get(best);
+    }
 
-        //take the minimal rank value of the resultMap -> best for both categories, if there are several, take the first one
-        Map.Entry<JsonObject, Double> min = Collections.min(resultMap.entrySet(), new Comparator<Map.Entry<JsonObject, Double>>() {
-            public int compare(Map.Entry<JsonObject, Double> entry1, Map.Entry<JsonObject, Double> entry2) {
-                return entry1.getValue().compareTo(entry2.getValue());
+    /**
+     * Calculates the saliency value of each identifier once (instead of on every comparison)
+     * @param identifiers
+     * @return normalized saliency values, same order as the identifiers
+     */
+    private double[] computeSaliencyValues(List<JsonObject> identifiers) {
+        double[] saliencyValues = new double[identifiers.size()];
+        for(int i = 0; i < saliencyValues.length; i++) {
+            long weight = 0;
+            for(Map.Entry<String, JsonElement> entry: identifiers.get(i).entrySet()) {
+                weight += getSaliencyWeight(entry.getKey());
             }
-        });
-        return min.getKey();
+            saliencyValues[i] = normalizeSaliencyWeight(weight);
+        }
+        return saliencyValues;
     }
 
     @Override
     public synchronized void run() {
-        //comparison between queriedObject and each database object to find properties which differentiate them
-        List<JsonObject> identifiers = computeSingleDiscriminatingIdentifiers();
-        if(identifiers == null) {
-            setResult(null);
+        Set<JsonObject> resultSet = new HashSet<>();
+        try {
+            resultSet = selectIdentifiers();
+        } finally {
+            //release threads waiting for the result, also if the selection has been cancelled or has failed
+            setResult(resultSet);
             notifyAll();
-            return;
         }
+    }
 
-        //create a Jsonobject containing all used discriminating attributes contained in the list of identifiers
-        JsonObject allIdentifiers  = new JsonObject();
-        for(JsonObject object: identifiers) {
-            for (Map.Entry<String,JsonElement> entry : object.entrySet()) {
-                //only add entry if it does not exist yet
-                if(!allIdentifiers.has(entry.getKey())) {
-                    allIdentifiers.add(entry.getKey(), entry.getValue());
-                }
-            }
-        }
+    /**
+     * @return the identifiers of the queried object, the partial identifier if there is none
+     */
+    private Set<JsonObject> selectIdentifiers() {
+        //comparison between queriedObject and each database object to find properties which differentiate them
+        DiscriminationMatrix discriminationMatrix = createDiscriminationMatrix();
+        candidateCount = 0;
+        budgetExceeded = false;
+        attributesLimited = false;
+        deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis);
 
         Set<JsonObject> resultSet;
-        //combine identifiers from single comparisons to receive list with all possible discriminators for the queried object
-        resultSet = combineIdentifiers(identifiers, allIdentifiers);
+        if(incrementalSelection) {
+            //select the attributes one after the other
+            resultSet = selectIncrementalIdentifier(discriminationMatrix);
+        } else if(smallestIdentifierSearch) {
+            //search only the smallest discriminators for the queried object
+            resultSet = searchSmallestIdentifiers(discriminationMatrix);
+        } else {
+            //combine identifiers from single comparisons to receive list with all possible discriminators for the queried object
+            resultSet = combineIdentifiers(discriminationMatrix);
+        }
 
+        //a budget has stopped the search before an identifier has been found or the considered attributes do not identify the object
+        // -> use the incrementally selected attributes instead
+        if(resultSet.isEmpty() && (budgetExceeded || attributesLimited)) {
+            List<Integer> remainingObjects = new ArrayList<>();
+            long[] identifier = selectIncrementalAttributes(discriminationMatrix, remainingObjects);
+            //the attributes rule out at least one database object
+            if(remainingObjects.size() < discriminationMatrix.getDistractorCount()) {
+                resultSet.add(discriminationMatrix.toJsonObject(identifier));
+                setPartialIdentifier(!remainingObjects.isEmpty());
+            }
+        }
         //if resultset is empty -> no identifier found, use partial identifier instead
         if(resultSet.isEmpty()) {
-            for(JsonObject object: identifiers) {
-                if(object.entrySet().size() != 0) {
-                    resultSet.add(object);
+            for(int distractor = 0; distractor < discriminationMatrix.getDistractorCount(); distractor++) {
+                if(discriminationMatrix.isDistinguishable(distractor)) {
+                    resultSet.add(discriminationMatrix.toJsonObject(discriminationMatrix.getDiscriminatingAttributes(distractor)));
                 }
             }
             if(!resultSet.isEmpty()) {
                 setPartialIdentifier(true);
             }
         }
-        setResult(resultSet);
-        notifyAll();
+        return resultSet;
+    }
+
+    /**
+     * @return discrimination matrix of the queried object and the database objects, attributes with a saliency below the threshold are pruned
+     */
+    public DiscriminationMatrix createDiscriminationMatrix() {
+        return new DiscriminationMatrix(queriedObject, databaseObjects, saliencyAnnotations, saliencyThreshold);
     }
 
     /**
      * @return list with JsonObjects each containing those attributes of the queried object which discriminates it from the compared database object
      */
     public List<JsonObject> computeSingleDiscriminatingIdentifiers() {
-        //data structure to save discriminating identifiers resulting from the comparisons between queried object and each database object
+        DiscriminationMatrix discriminationMatrix = createDiscriminationMatrix();
         ArrayList<JsonObject> identifiers = new ArrayList<>();
-        for(JsonObject databaseObject: databaseObjects) {
-            //create list for each comparison of queried object properties and the properties of a database object
-            // to save property values which uniquely identify queried object
-            JsonObject singleDiscriminatingIdentifiers = new JsonObject();
-            //go over each property of the queried object
-            Set<Map.Entry<String, JsonElement>> entrySet = queriedObject.entrySet();
-            for(Map.Entry<String,JsonElement> entry : entrySet){
-                String queryKey = entry.getKey();
-                //check saliencyAnnotation is exists
-                if (saliencyAnnotations != null) {
-                    //look up the saliency annotation of the object
-                    if(saliencyAnnotations.has(queryKey)) {
-                        double saliencyNbr = saliencyAnnotations.get(queryKey).getAsDouble();
-                        //if saliency is lower than threshold -> property will be pruned, continue with next property
-                        if (saliencyNbr < saliencyThreshold) {
-                            continue;
-                        }
-                    }else {
-                        continue;
-                    }
-                }
-                //the values the queried object has for certain property
-                JsonElement queriedPropertyValues =  queriedObject.get(queryKey);
-                //check if database object has this property
-                if (databaseObject.has(queryKey)) {
-                    //get the values the database object has for this property
-                    JsonElement dataPropertyValues = databaseObject.get(queryKey);
-                    //check if objects have the same values for this property -> if not add values of queried object to list
-                    if((queriedPropertyValues.isJsonArray() && !dataPropertyValues.isJsonArray())
-                            || (!queriedPropertyValues.isJsonArray() && dataPropertyValues.isJsonArray())) {
-                        singleDiscriminatingIdentifiers.add(queryKey, queriedPropertyValues);
-                    }else if(!queriedPropertyValues.isJsonArray() && !dataPropertyValues.isJsonArray()) {
-                        if(!Objects.equals(queriedPropertyValues.toString(), dataPropertyValues.toString())) {
-                            singleDiscriminatingIdentifiers.add(queryKey, queriedPropertyValues);
-                        }
-                    }else if(queriedPropertyValues.isJsonArray() && dataPropertyValues.isJsonArray()) {
-                        JsonArray queryArray = queriedPropertyValues.getAsJsonArray();
-                        JsonArray dataArray = dataPropertyValues.getAsJsonArray();
-                        boolean added = false;
-                        for(JsonElement queryElement: queryArray) {
-                            if(!dataArray.contains(queryElement)) {
-                                singleDiscriminatingIdentifiers.add(queryKey, queriedPropertyValues);
-                                added = true;
-                                break;
-                            }
-                        }
-                        if(!added) {
-                            for(JsonElement dataElement: dataArray) {
-                                if(!queryArray.contains(dataElement)) {
-                                    singleDiscriminatingIdentifiers.add(queryKey, queriedPropertyValues);
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                    //compared database object does not have particular property -> can be seen as differentiating
-                } else {
-                    singleDiscriminatingIdentifiers.add(queryKey, queriedPropertyValues);
-                }
-            }
-            //add single discriminating identifiers to list with all found identifiers
-            identifiers.add(singleDiscriminatingIdentifiers);
+        for(int distractor = 0; distractor < discriminationMatrix.getDistractorCount(); distractor++) {
+            identifiers.add(discriminationMatrix.toJsonObject(discriminationMatrix.getDiscriminatingAttributes(distractor)));
         }
         return identifiers;
     }
 
     /**
-     * Combine the identifiers to retrieve a set containing all discriminators for the queried object
-     * @param identifiers individual identifiers
-     * @param allIdentifiers all individual identifiers in one Jsonobject
+     * Combine the identifiers to retrieve a set containing all discriminators for the queried object:
+     * all subsets of the discriminating attributes which rule out each database object
+     * @param discriminationMatrix
      * @return set with all valid identifiers
      */
-    private Set<JsonObject> combineIdentifiers(List<JsonObject> identifiers, JsonObject allIdentifiers) {
-        //create the power set for the identifiers
-        Set<JsonObject> powerSet = powerSet(allIdentifiers);
-        ArrayList<JsonObject> powerList = new ArrayList<>(powerSet);
-        boolean found = false;
-        ArrayList<Integer> deleteIndices =  new ArrayList<>();
-
-        //powerset contains also some non valid identifiers
-        //check if identifiers are valid -> only if the element of the powerset contains an element which is represented in each individual identifier of the list
-        for (int i = 0; i < powerList.size(); i++) {
-            for(int j = 0; j < identifiers.size(); j++) {
-                for (Map.Entry<String,JsonElement> identifierEntry : identifiers.get(j).entrySet()) {
-                    for (Map.Entry<String, JsonElement> powerListEntry : powerList.get(i).entrySet()) {
-                        //check if at least one element of the current powerset entry is contained in each identifier
-                        if(powerListEntry.getKey().equals(identifierEntry.getKey())) {
-                            found = true;
-                            break;
-                        }
-                    }
+    private Set<JsonObject> combineIdentifiers(DiscriminationMatrix discriminationMatrix) {
+        List<Integer> discriminatingAttributes = limitAttributes(findDiscriminatingAttributes(discriminationMatrix), discriminationMatrix);
+        int size = discriminatingAttributes.size();
+        if(size >= Long.SIZE - 1) {
+            //the power set cannot be enumerated -> treated like an exceeded budget, the incremental identifier is used instead
+            budgetExceeded = true;
+            return new HashSet<>();
+        }
+        //for each database object: the discriminating attributes ruling it out (bit i = i-th discriminating attribute)
+        long[] distractorMasks = new long[discriminationMatrix.getDistractorCount()];
+        for(int distractor = 0; distractor < distractorMasks.length; distractor++) {
+            for(int i = 0; i < size; i++) {
+                if(discriminationMatrix.rulesOut(discriminatingAttributes.get(i), distractor)) {
+                    distractorMasks[distractor] |= 1L << i;
                 }
-                //one entry is not represented by all identifiers -> save index to delete it later
-                if(!found) {
-                    deleteIndices.add(i);
+            }
+        }
+
+        //go over the power set, an element is a valid identifier if it contains an attribute ruling out each database object
+        Set<JsonObject> resultSet = new HashSet<>();
+        for(long subset = 0; subset < (1L << size); subset++) {
+            //the power set can be large -> stop if a budget is exceeded
+            if(!checkBudgets()) {
+                break;
+            }
+            boolean valid = true;
+            for(long distractorMask: distractorMasks) {
+                if((subset & distractorMask) == 0) {
+                    valid = false;
                     break;
                 }
-                else {
-                    found = false;
+            }
+            if(valid) {
+                JsonObject identifier = new JsonObject();
+                for(int i = 0; i < size; i++) {
+                    if((subset & (1L << i)) != 0) {
+                        int attribute = discriminatingAttributes.get(i);
+                        identifier.add(discriminationMatrix.getAttribute(attribute), discriminationMatrix.getQueriedValue(attribute));
+                    }
+                }
+                resultSet.add(identifier);
+            }
+        }
+        return resultSet;
+    }
+
+    /**
+     * @param discriminationMatrix
+     * @return the discriminating attributes in the order they are first found when going over the database objects
+     */
+    private List<Integer> findDiscriminatingAttributes(DiscriminationMatrix discriminationMatrix) {
+        List<Integer> discriminatingAttributes = new ArrayList<>();
+        boolean[] discriminating = new boolean[discriminationMatrix.getAttributeCount()];
+        for(int distractor = 0; distractor < discriminationMatrix.getDistractorCount(); distractor++) {
+            for(int attribute = 0; attribute < discriminationMatrix.getAttributeCount(); attribute++) {
+                if(!discriminating[attribute] && discriminationMatrix.rulesOut(attribute, distractor)) {
+                    discriminating[attribute] = true;
+                    discriminatingAttributes.add(attribute);
+                }
+            }
+        }
+        return discriminatingAttributes;
+    }
+
+    /**
+     * Enumerates the combinations of the discriminating attributes by increasing size, within one size the more salient attributes come first.
+     * Stops after the first size which yields a valid identifier (and enough identifiers, see setMaxIdentifierCount() and setMinimumIdentifierSaliency())
+     * @param discriminationMatrix
+     * @return set with the valid identifiers of the searched sizes, ordered by size and then by decreasing saliency
+     */
+    private Set<JsonObject> searchSmallestIdentifiers(DiscriminationMatrix discriminationMatrix) {
+        List<Integer> discriminatingAttributes = limitAttributes(findDiscriminatingAttributes(discriminationMatrix), discriminationMatrix);
+        //most salient attributes first (stable sort keeps the order in which they have been found otherwise)
+        sortBySaliency(discriminatingAttributes, discriminationMatrix);
+        int size = discriminatingAttributes.size();
+        //saliency weight of each discriminating attribute, looked up once
+        int[] attributeSaliencyWeights = new int[size];
+        for(int i = 0; i < size; i++) {
+            attributeSaliencyWeights[i] = getSaliencyWeight(discriminationMatrix.getAttribute(discriminatingAttributes.get(i)));
+        }
+        //for each discriminating attribute: the database objects it rules out (bit d = d-th database object)
+        int wordCount = (discriminationMatrix.getDistractorCount() + Long.SIZE - 1) / Long.SIZE;
+        long[][] ruledOutDistractors = new long[size][wordCount];
+        for(int i = 0; i < size; i++) {
+            for(int distractor = 0; distractor < discriminationMatrix.getDistractorCount(); distractor++) {
+                if(discriminationMatrix.rulesOut(discriminatingAttributes.get(i), distractor)) {
+                    ruledOutDistractors[i][distractor / Long.SIZE] |= 1L << (distractor % Long.SIZE);
                 }
             }
         }
+        long[] allDistractors = new long[wordCount];
+        for(int distractor = 0; distractor < discriminationMatrix.getDistractorCount(); distractor++) {
+            allDistractors[distractor / Long.SIZE] |= 1L << (distractor % Long.SIZE);
+        }
+
+        //sigmoid normalization as in getShortestMostSalientAboveThresholdIdentifier()
+        double normalizedMinimumSaliency = minimumIdentifierSaliency/(Math.sqrt(1+Math.pow(minimumIdentifierSaliency,2.0)));
+        List<int[]> identifiers = new ArrayList<>();
+        boolean foundSalient = minimumIdentifierSaliency == -1.0;
+        int[] combination = new int[size];
+        //database objects ruled out by the first i attributes of the combination
+        long[][] ruledOut = new long[size + 1][wordCount];
+        for(int combinationSize = 1; combinationSize <= size && !budgetExceeded; combinationSize++) {
+            int identifierCount = identifiers.size();
+            collectCombinations(combination, 0, 0, combinationSize, ruledOutDistractors, ruledOut, allDistractors, identifiers);
+            for(int i = identifierCount; i < identifiers.size() && !foundSalient; i++) {
+                foundSalient = normalizeSaliency(identifiers.get(i), attributeSaliencyWeights) > normalizedMinimumSaliency;
+            }
+            //without a maximum count all identifiers of the smallest size are collected
+            if(!identifiers.isEmpty() && foundSalient && (maxIdentifierCount == Integer.MAX_VALUE || identifiers.size() >= maxIdentifierCount)) {
+                break;
+            }
+        }
+
+        //smallest first, most salient first within the same size (stable sort keeps the enumeration order otherwise),
+        //the saliency of each identifier is calculated once instead of on every comparison
+        Map<int[], Double> saliencyValues = new IdentityHashMap<>();
+        for(int[] identifier: identifiers) {
+            saliencyValues.put(identifier, normalizeSaliency(identifier, attributeSaliencyWeights));
+        }
+        Collections.sort(identifiers, (identifier1, identifier2) -> {
+            if(identifier1.length != identifier2.length) {
+                return Integer.compare(identifier1.length, identifier2.length);
+            }
+            return Double.compare(saliencyValues.get(identifier2), saliencyValues.get(identifier1));
+        });
+        Set<JsonObject> resultSet = new LinkedHashSet<>();
+        for(int[] identifier: identifiers) {
+            if(resultSet.size() == maxIdentifierCount) {
+                break;
+            }
+            JsonObject jsonIdentifier = new JsonObject();
+            for(int i: identifier) {
+                int attribute = discriminatingAttributes.get(i);
+                jsonIdentifier.add(discriminationMatrix.getAttribute(attribute), discriminationMatrix.getQueriedValue(attribute));
+            }
+            resultSet.add(jsonIdentifier);
+        }
+        return resultSet;
+    }
 
-        ArrayList<JsonObject> resultList = new ArrayList<>();
-        //delete non valid identifiers from the powerset
-        for(int i = 0; i< powerList.size(); i++) {
-            if(!deleteIndices.contains(new Integer(i))) {
-                resultList.add(powerList.get(i));
+    /**
+     * adds all combinations of the given size, starting with the given prefix, which rule out all database objects
+     * @param combination the combination built so far (indices of the discriminating attributes)
+     * @param depth length of the prefix
+     * @param start smallest index which may be added next
+     * @param combinationSize
+     * @param ruledOutDistractors for each discriminating attribute: the database objects it rules out
+     * @param ruledOut for each prefix length: the database objects ruled out by the prefix
+     * @param allDistractors all database objects
+     * @param identifiers the found identifiers
+     */
+    private void collectCombinations(int[] combination, int depth, int start, int combinationSize, long[][] ruledOutDistractors, long[][] ruledOut,
+                                     long[] allDistractors, List<int[]> identifiers) {
+        if(depth == combinationSize) {
+            if(!checkBudgets()) {
+                return;
+            }
+            if(Arrays.equals(ruledOut[depth], allDistractors)) {
+                identifiers.add(Arrays.copyOf(combination, combinationSize));
+            }
+            return;
+        }
+        //leave room for the remaining attributes of the combination
+        for(int i = start; i <= ruledOutDistractors.length - (combinationSize - depth) && !budgetExceeded; i++) {
+            combination[depth] = i;
+            for(int word = 0; word < allDistractors.length; word++) {
+                ruledOut[depth + 1][word] = ruledOut[depth][word] | ruledOutDistractors[i][word];
             }
+            collectCombinations(combination, depth + 1, i + 1, combinationSize, ruledOutDistractors, ruledOut, allDistractors, identifiers);
         }
-        //list with all valid identifiers
-        return new HashSet<>(resultList);
     }
 
+    /**
+     * @param identifier indices of the discriminating attributes
+     * @param attributeSaliencyWeights saliency weight of each discriminating attribute
+     * @return summed saliency of the attributes, normalized like in computeSaliencyValues
+     */
+    private static double normalizeSaliency(int[] identifier, int[] attributeSaliencyWeights) {
+        long weight = 0;
+        for(int i: identifier) {
+            weight += attributeSaliencyWeights[i];
+        }
+        return normalizeSaliencyWeight(weight);
+    }
 
+    /**
+     * Incremental algorithm (Dale & Reiter): the attributes are considered in the order of decreasing saliency,
+     * an attribute is added if it rules out at least one of the objects which have not been ruled out yet
+     * @param discriminationMatrix
+     * @return set containing the found identifier, empty if the attributes cannot rule out all database objects
+     */
+    private Set<JsonObject> selectIncrementalIdentifier(DiscriminationMatrix discriminationMatrix) {
+        List<Integer> remainingObjects = new ArrayList<>();
+        long[] identifier = selectIncrementalAttributes(discriminationMatrix, remainingObjects);
+        Set<JsonObject> resultSet = new HashSet<>();
+        if(remainingObjects.isEmpty()) {
+            resultSet.add(discriminationMatrix.toJsonObject(identifier));
+        }
+        return resultSet;
+    }
 
     /**
      *
-     * @param originalObject
-     * @return powerset of original set
+     * @param discriminationMatrix
+     * @param remainingObjects filled with the indices of the database objects which are not ruled out by the selected attributes
+     * @return the incrementally selected attributes (bit a = a-th attribute of the discrimination matrix)
      */
-    private  Set<JsonObject> powerSet(JsonObject originalObject) {
-        HashSet<JsonObject> sets = new HashSet<>();
-        //check if termination condition is reached
-        if (originalObject.size() == 0) {
-            sets.add(new JsonObject());
-            return sets;
+    private long[] selectIncrementalAttributes(DiscriminationMatrix discriminationMatrix, List<Integer> remainingObjects) {
+        //preference order of the attributes: most salient first (stable sort keeps the order of the attributes otherwise)
+        List<Integer> preferredAttributes = new ArrayList<>();
+        for(int attribute = 0; attribute < discriminationMatrix.getAttributeCount(); attribute++) {
+            for(int distractor = 0; distractor < discriminationMatrix.getDistractorCount(); distractor++) {
+                if(discriminationMatrix.rulesOut(attribute, distractor)) {
+                    preferredAttributes.add(attribute);
+                    break;
+                }
+            }
         }
-        JsonObject head = new JsonObject();
-        JsonObject rest = new JsonObject();
-        //retrieve first object from current set and save it in "head", the remaining objects are saved in "rest"
-        for (Map.Entry<String,JsonElement> entry : originalObject.entrySet()) {
-            if(head.size() < 1) {
-                head.add(entry.getKey(), entry.getValue());
-            }else {
-                rest.add(entry.getKey(), entry.getValue());
+        preferredAttributes = limitAttributes(preferredAttributes, discriminationMatrix);
+        sortBySaliency(preferredAttributes, discriminationMatrix);
+
+        //indices of the database objects which have not been ruled out yet
+        for(int distractor = 0; distractor < discriminationMatrix.getDistractorCount(); distractor++) {
+            remainingObjects.add(distractor);
+        }
+        long[] identifier = new long[discriminationMatrix.getWordCount()];
+        for(int attribute: preferredAttributes) {
+            if(remainingObjects.isEmpty()) {
+                break;
+            }
+            boolean rulesOut = false;
+            for(Iterator<Integer> iter = remainingObjects.iterator(); iter.hasNext(); ) {
+                if(discriminationMatrix.rulesOut(attribute, iter.next())) {
+                    iter.remove();
+                    rulesOut = true;
+                }
+            }
+            if(rulesOut) {
+                identifier[attribute / Long.SIZE] |= 1L << (attribute % Long.SIZE);
             }
         }
-        //recursive call for combining all possibilities
-        for (JsonObject set : powerSet(rest)) {
-            JsonObject newSet = new JsonObject();
-            newSet.add(head.entrySet().iterator().next().getKey(), head.entrySet().iterator().next().getValue());
-            for (Map.Entry<String,JsonElement> entry : set.entrySet()) {
-                newSet.add(entry.getKey(), entry.getValue());
+        return identifier;
+    }
+
+    /**
+     * sorts the attributes by decreasing saliency (stable, the order of the attributes is kept otherwise)
+     * @param attributes indices of the attributes of the discrimination matrix
+     * @param discriminationMatrix
+     */
+    private void sortBySaliency(List<Integer> attributes, DiscriminationMatrix discriminationMatrix) {
+        Collections.sort(attributes, (attribute1, attribute2) ->
+                Integer.compare(getSaliencyWeight(discriminationMatrix.getAttribute(attribute2)), getSaliencyWeight(discriminationMatrix.getAttribute(attribute1))));
+    }
+
+    /**
+     *
+     * @param attributes indices of the attributes of the discrimination matrix
+     * @param discriminationMatrix
+     * @return the maxAttributeCount most salient attributes (in their given order)
+     */
+    private List<Integer> limitAttributes(List<Integer> attributes, DiscriminationMatrix discriminationMatrix) {
+        if(attributes.size() <= maxAttributeCount) {
+            return attributes;
+        }
+        attributesLimited = true;
+        List<Integer> mostSalientAttributes = new ArrayList<>(attributes);
+        sortBySaliency(mostSalientAttributes, discriminationMatrix);
+        Set<Integer> consideredAttributes = new HashSet<>(mostSalientAttributes.subList(0, maxAttributeCount));
+        List<Integer> limitedAttributes = new ArrayList<>();
+        for(int attribute: attributes) {
+            if(consideredAttributes.contains(attribute)) {
+                limitedAttributes.add(attribute);
             }
-            sets.add(newSet);
-            sets.add(set);
         }
-        return sets;
+        return limitedAttributes;
     }
 
+    /**
+     * counts the checked attribute combination, checks from time to time whether the attribute selection has been cancelled or has run out of time
+     * @return false if a budget is exceeded and the search should stop
+     */
+    private boolean checkBudgets() {
+        if(candidateCount >= maxCandidateCount) {
+            budgetExceeded = true;
+            return false;
+        }
+        if((++candidateCount & 0x3FF) == 0) {
+            if(Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("The attribute selection has been cancelled.");
+            }
+            if(timeLimitMillis > 0 && System.nanoTime() - deadlineNanos > 0) {
+                budgetExceeded = true;
+                return false;
+            }
+        }
+        return true;
+    }
 
     /**
-     * Class to compare the size of two different sets (each given as a Jsonobject)
+     *
+     * @param attribute
+     * @return saliency annotation of the attribute as fixed point number (SALIENCY_WEIGHT_SCALE = 1.0), 0 if it is not annotated
      */
-    class CompareSize implements Comparator<JsonObject> {
-        @Override
-        public int compare(JsonObject map1, JsonObject map2) {
-            if (map1.size() > map2.size()) {
-                return 1;
-            } else if (map1.size() < map2.size()) {
-                return -1;
-            } else {
-                return 0;
+    private int getSaliencyWeight(String attribute) {
+        if(saliencyWeights == null) {
+            //encode the annotations once, summing the weights is exact and does not need the map lookups of the json object
+            saliencyWeights = new HashMap<>();
+            if(saliencyAnnotations != null) {
+                for(Map.Entry<String, JsonElement> entry: saliencyAnnotations.entrySet()) {
+                    saliencyWeights.put(entry.getKey(), (int) Math.round(entry.getValue().getAsDouble() * SALIENCY_WEIGHT_SCALE));
+                }
             }
         }
+        Integer weight = saliencyWeights.get(attribute);
+        return weight == null ? 0 : weight;
     }
 
     /**
-     * Class to compare saliency of two different sets (each given as a Jsonobject)
+     * @param weight summed saliency weights
+     * @return saliency value normalized between 0.0 and 1.0 by the sigmoid function x/sqrt(1+x^2)
      */
-    class CompareSaliency implements Comparator<JsonObject> {
+    private static double normalizeSaliencyWeight(long weight) {
+        double saliencyCounter = ((double) weight) / SALIENCY_WEIGHT_SCALE;
+        return saliencyCounter/(Math.sqrt(1+Math.pow(saliencyCounter,2.0)));
+    }
+
+
+    /**
+     * Class to compare the size of two different sets (each given as a Jsonobject)
+     */
+    class CompareSize implements Comparator<JsonObject> {
         @Override
         public int compare(JsonObject map1, JsonObject map2) {
-            double saliencyCounter1 = computeSaliencyValue(map1);
-            double saliencyCounter2 = computeSaliencyValue(map2);
-            if (saliencyCounter1 < saliencyCounter2) {
+            if (map1.size() > map2.size()) {
                 return 1;
-            } else if (saliencyCounter1 > saliencyCounter2) {
+            } else if (map1.size() < map2.size()) {
                 return -1;
             } else {
                 return 0;
             }
         }
-
-        /**
-         * Calculates the saliency value of the attributes stored in map
-         * @param map
-         * @return summed saliency value of all properties in map normalized between 0.0 and 1.0
-         */
-        protected double computeSaliencyValue(JsonObject map){
-            double saliencyCounter = 0.0;
-            Set<Map.Entry<String, JsonElement>> entrySet = map.entrySet();
-            for(Map.Entry<String,JsonElement> entry : entrySet){
-                if(saliencyAnnotations.has(entry.getKey())) {
-                    saliencyCounter += saliencyAnnotations.get(entry.getKey()).getAsDouble();
-                }
-            }
-            //sigmoid function x/sqrt(1+x^2) used to have saliency counter between 0.0 and 1.0
-            return saliencyCounter/(Math.sqrt(1+Math.pow(saliencyCounter,2.0)));
-        }
     }
 
 }
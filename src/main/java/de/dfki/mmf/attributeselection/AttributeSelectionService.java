@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.attributeselection;
+
+import com.google.gson.JsonObject;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide service running the attribute selection on a shared executor instead of creating a thread per lookup.
+ * By default a bounded thread pool is used (if its queue is full the calling thread runs the attribute selection itself),
+ * on Java 21 or later virtual threads can be used instead
+ */
+public class AttributeSelectionService {
+
+    private static volatile AttributeSelectionService serviceInstance = new AttributeSelectionService();
+
+    private volatile ExecutorService executorService;
+    //executor which completes the futures whose timeout has expired
+    private final ScheduledExecutorService timeoutScheduler = Executors.newSingleThreadScheduledExecutor(
+            new DaemonThreadFactory("attributeSelectionTimeout"));
+    //timeout in milliseconds of the synchronous attribute selection
+    private volatile long timeoutMillis = 10000;
+
+    public static AttributeSelectionService getInstance() {
+        return serviceInstance;
+    }
+
+    private AttributeSelectionService() {
+        executorService = createBoundedExecutor(Runtime.getRuntime().availableProcessors(), 256);
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * use a bounded thread pool, attribute selections which are already running finish on the previous executor
+     * @param threads number of threads
+     * @param queueCapacity number of waiting attribute selections, further ones are run by the calling thread
+     */
+    public void setBoundedExecutor(int threads, int queueCapacity) {
+        setExecutorService(createBoundedExecutor(threads, queueCapacity));
+    }
+
+    /**
+     * use one virtual thread per attribute selection
+     * @return false if virtual threads are not available in this Java version (the executor is not changed)
+     */
+    public boolean useVirtualThreads() {
+        try {
+            Method factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            setExecutorService((ExecutorService) factoryMethod.invoke(null));
+            return true;
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Warning: virtual threads are not available, the attribute selection keeps using its current executor.");
+            return false;
+        }
+    }
+
+    /**
+     * @param executorService executor used for the attribute selection, the previous executor is shut down
+     */
+    public synchronized void setExecutorService(ExecutorService executorService) {
+        if(executorService == null) {
+            throw new IllegalArgumentException("An executor is required for the attribute selection.");
+        }
+        ExecutorService previousExecutorService = this.executorService;
+        this.executorService = executorService;
+        previousExecutorService.shutdown();
+    }
+
+    /**
+     * run the attribute selection asynchronously, cancelling the returned future interrupts it
+     * @param attributeSelectionAlgorithm
+     * @return future of the result set of the attribute selection
+     */
+    public CompletableFuture<Set<JsonObject>> selectAttributes(AttributeSelectionAlgorithm attributeSelectionAlgorithm) {
+        CompletableFuture<Set<JsonObject>> resultFuture = new CompletableFuture<>();
+        Future<?> task = executorService.submit(() -> {
+            try {
+                attributeSelectionAlgorithm.run();
+                resultFuture.complete(attributeSelectionAlgorithm.getResult());
+            } catch (Throwable e) {
+                resultFuture.completeExceptionally(e);
+            }
+        });
+        resultFuture.whenComplete((result, throwable) -> {
+            //cancelled or timed out -> stop the attribute selection
+            if(throwable != null) {
+                task.cancel(true);
+            }
+        });
+        return resultFuture;
+    }
+
+    /**
+     * run the attribute selection asynchronously
+     * @param attributeSelectionAlgorithm
+     * @param timeoutMillis
+     * @return future of the result set, completed with a TimeoutException if the attribute selection takes longer than the timeout
+     */
+    public CompletableFuture<Set<JsonObject>> selectAttributes(AttributeSelectionAlgorithm attributeSelectionAlgorithm, long timeoutMillis) {
+        CompletableFuture<Set<JsonObject>> resultFuture = selectAttributes(attributeSelectionAlgorithm);
+        ScheduledFuture<?> timeout = timeoutScheduler.schedule(() -> resultFuture.completeExceptionally(
+                new TimeoutException("The attribute selection did not finish within " + timeoutMillis + " ms.")), timeoutMillis, TimeUnit.MILLISECONDS);
+        resultFuture.whenComplete((result, throwable) -> timeout.cancel(false));
+        return resultFuture;
+    }
+
+    /**
+     * run the attribute selection and wait for its result (at most the timeout of the service)
+     * @param attributeSelectionAlgorithm
+     * @return result set of the attribute selection
+     * @throws InterruptedException
+     * @throws TimeoutException if the attribute selection did not finish within the timeout, it is cancelled in this case
+     */
+    public Set<JsonObject> selectAttributesSync(AttributeSelectionAlgorithm attributeSelectionAlgorithm) throws InterruptedException, TimeoutException {
+        CompletableFuture<Set<JsonObject>> resultFuture = selectAttributes(attributeSelectionAlgorithm);
+        try {
+            return resultFuture.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The attribute selection failed.", e.getCause());
+        } catch (InterruptedException | TimeoutException e) {
+            resultFuture.cancel(true);
+            throw e;
+        }
+    }
+
+    private static ExecutorService createBoundedExecutor(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                new DaemonThreadFactory("attributeSelection"), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final String namePrefix;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        DaemonThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
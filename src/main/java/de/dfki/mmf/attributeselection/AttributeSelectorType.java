@@ -35,5 +35,8 @@ public enum AttributeSelectorType {
     SHORTEST_MOST_SALIENT_ABOVE_THRESHOLD,
     SHORTEST,
     MOST_SALIENT,
-    MAXIMIZED_SALIENCY_MAXIMIZED_SHORTNESS
+    MAXIMIZED_SALIENCY_MAXIMIZED_SHORTNESS,
+    //incremental algorithm (Dale & Reiter): adds the attributes in the order of their saliency as long as they rule out remaining objects,
+    //polynomial in the number of attributes and objects since the power set of the attributes is not built
+    INCREMENTAL
 }
@@ -26,6 +26,7 @@ package de.dfki.mmf.attributeselection;
 
 import com.google.gson.JsonObject;
 import de.dfki.mmf.input.predicates.PredicateElement;
+import de.dfki.mmf.input.worldmodel.AttributeDictionary;
 
 /**
  * Created by Magdalena Kaiser on 26.07.2016.
@@ -39,6 +40,8 @@ public class AttributiveObjectIdentifier {
     private PredicateElement predicateElement;
     private String worldId;
     private String type;
+    //code of the type (see AttributeDictionary.encodeType()), encoded once instead of whenever the type is compared
+    private int typeCode;
     //the selected attributes to verbally refer to the world object
     private JsonObject selectedAttributesMap;
     //set to true if the object cannot be uniquely identified using its properties
@@ -50,6 +53,7 @@ public class AttributiveObjectIdentifier {
         this.predicateElement = predicateElement;
         this.worldId = worldId;
         this.type = type;
+        this.typeCode = type == null ? -1 : AttributeDictionary.encodeType(type);
     }
 
     public boolean hasSuccess() {
@@ -80,6 +84,10 @@ public class AttributiveObjectIdentifier {
         return type;
     }
 
+    public int getTypeCode() {
+        return typeCode;
+    }
+
     public JsonObject getSelectedAttributes() {
         return this.selectedAttributesMap;
     }
@@ -88,4 +96,17 @@ public class AttributiveObjectIdentifier {
         this.selectedAttributesMap = map;
     }
 
+    /**
+     *
+     * @param predicateElement the predicate element the copy belongs to
+     * @return copy of this identifier (with its own selected attributes) for another predicate element referring to the same world object
+     */
+    public AttributiveObjectIdentifier copy(PredicateElement predicateElement) {
+        AttributiveObjectIdentifier copy = new AttributiveObjectIdentifier(predicateElement, worldId, type);
+        copy.setSelectedAttributes(selectedAttributesMap == null ? null : selectedAttributesMap.deepCopy());
+        copy.setPartialIdentifier(partialIdentifier);
+        copy.setSuccess(success);
+        return copy;
+    }
+
 }
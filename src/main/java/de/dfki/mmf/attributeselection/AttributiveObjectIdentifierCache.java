@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.dfki.mmf.attributeselection;
+
+import de.dfki.mmf.input.predicates.PredicateElement;
+import de.dfki.mmf.input.worldmodel.WorldModel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of the AttributiveObjectIdentifiers found by the attribute selection,
+ * the same objects are usually referenced again and again during a dialogue
+ * (entries are keyed by the versions of the world objects and the saliency annotation, hence outdated entries are never hit)
+ */
+public class AttributiveObjectIdentifierCache {
+    private static volatile AttributiveObjectIdentifierCache cacheInstance = new AttributiveObjectIdentifierCache();
+
+    private boolean enabled = true;
+    private int maxSize = 256;
+    private final LinkedHashMap<String, AttributiveObjectIdentifier> identifierMap = new LinkedHashMap<String, AttributiveObjectIdentifier>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, AttributiveObjectIdentifier> eldest) {
+            if(size() > maxSize) {
+                evictionCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private AttributiveObjectIdentifierCache() {
+    }
+
+    public static AttributiveObjectIdentifierCache getInstance() {
+        return cacheInstance;
+    }
+
+    /**
+     * the distractors of the referenced object are all visible objects of its type whose worldobjectid is not part of the predicate element,
+     * they are therefore determined by the version of the type and the predicate element (which usually is the worldobjectid itself)
+     * @param queriedWorldId worldobjectid of the referenced object
+     * @param predicateElement predicate element which references the object
+     * @param type worldobjecttype of the referenced object
+     * @param attributeSelectorType used selector type (null for the default one)
+     * @param finalThreshold saliency threshold used by the selector
+     * @param attributeSelectionAlgorithm the configured (not yet run) attribute selection
+     * @return key of the identifier, it contains the current versions of the objects of the type and the saliency annotation
+     */
+    public static String createKey(String queriedWorldId, String predicateElement, String type, AttributeSelectorType attributeSelectorType,
+                                   double finalThreshold, AttributeSelectionAlgorithm attributeSelectionAlgorithm) {
+        return queriedWorldId + (predicateElement.equals(queriedWorldId) ? "" : "|" + predicateElement)
+                + "|" + type + "@" + WorldModel.getWorldObjectTypeVersion(type)
+                + "|saliency@" + WorldModel.getSaliencyAnnotationVersion()
+                + "|" + attributeSelectorType + "|" + finalThreshold + "|" + attributeSelectionAlgorithm.getSaliencyThreshold()
+                + "|" + attributeSelectionAlgorithm.isSmallestIdentifierSearch() + "|" + attributeSelectionAlgorithm.getMaxIdentifierCount()
+                + "|" + attributeSelectionAlgorithm.getMinimumIdentifierSaliency() + "|" + attributeSelectionAlgorithm.getMaxCandidateCount()
+                + "|" + attributeSelectionAlgorithm.getMaxAttributeCount();
+    }
+
+    /**
+     *
+     * @param key created by createKey()
+     * @param predicateElement the predicate element which references the object
+     * @return copy of the cached identifier for the predicate element, null if there is none
+     */
+    public AttributiveObjectIdentifier get(String key, PredicateElement predicateElement) {
+        if(!enabled) {
+            return null;
+        }
+        AttributiveObjectIdentifier identifier;
+        synchronized (identifierMap) {
+            identifier = identifierMap.get(key);
+        }
+        if(identifier == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return identifier.copy(predicateElement);
+    }
+
+    /**
+     *
+     * @param key created by createKey()
+     * @param identifier
+     * @return true if the identifier has been cached (false if the cache is disabled)
+     */
+    public boolean put(String key, AttributiveObjectIdentifier identifier) {
+        if(!enabled || identifier == null) {
+            return false;
+        }
+        //store a copy, the selected attributes of the returned identifier may still be changed
+        AttributiveObjectIdentifier cachedIdentifier = identifier.copy(null);
+        synchronized (identifierMap) {
+            identifierMap.put(key, cachedIdentifier);
+        }
+        return true;
+    }
+
+    public void clear() {
+        synchronized (identifierMap) {
+            identifierMap.clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if(!enabled) {
+            clear();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        if(maxSize < 1) {
+            throw new IllegalArgumentException("The cache needs room for at least one identifier.");
+        }
+        synchronized (identifierMap) {
+            this.maxSize = maxSize;
+            //evict the least recently used identifiers which do not fit anymore
+            while(identifierMap.size() > maxSize) {
+                identifierMap.remove(identifierMap.keySet().iterator().next());
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @param minimumSize number of identifiers the cache should be able to hold (e.g. all precomputed ones), the cache never shrinks here
+     */
+    public void ensureMaxSize(int minimumSize) {
+        synchronized (identifierMap) {
+            if(maxSize < minimumSize) {
+                maxSize = minimumSize;
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (identifierMap) {
+            return identifierMap.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public void resetStatistics() {
+        hitCount.set(0);
+        missCount.set(0);
+        evictionCount.set(0);
+    }
+}
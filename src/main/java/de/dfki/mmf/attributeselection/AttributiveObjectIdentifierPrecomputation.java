@@ -0,0 +1,238 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.dfki.mmf.attributeselection;
+
+import com.google.gson.JsonObject;
+import de.dfki.mmf.input.predicates.StringPredicateElement;
+import de.dfki.mmf.input.worldmodel.WorldModel;
+import de.dfki.mmf.modalities.SpeechModality;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional background job which precomputes the AttributiveObjectIdentifiers of all world objects when the world model is loaded or updated,
+ * so that the SpeechModality finds them in the AttributiveObjectIdentifierCache during the dialogue.
+ * The objects are grouped by their worldobjecttype and processed in parallel with fork/join,
+ * only the types which have changed since the last precomputation are computed again
+ */
+public class AttributiveObjectIdentifierPrecomputation {
+    private static volatile AttributiveObjectIdentifierPrecomputation precomputationInstance = new AttributiveObjectIdentifierPrecomputation();
+
+    private boolean enabled = false;
+    private ForkJoinPool forkJoinPool = new ForkJoinPool();
+    //versions of the types and of the saliency annotation the identifiers have been precomputed for
+    private final Map<String, Long> precomputedTypeVersions = new HashMap<>();
+    private long precomputedSaliencyVersion = -1;
+    //increased with each precomputation, an outdated precomputation stops
+    private final AtomicLong generation = new AtomicLong();
+
+    private AttributiveObjectIdentifierPrecomputation() {
+    }
+
+    public static AttributiveObjectIdentifierPrecomputation getInstance() {
+        return precomputationInstance;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param forkJoinPool pool running the precomputation
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * call after the world model has been loaded or updated, starts the precomputation of the changed types in the background
+     * (a precomputation which is still running stops)
+     * @return the started precomputation, null if it is not enabled or nothing has changed
+     */
+    public synchronized ForkJoinTask<?> worldModelChanged() {
+        if(!enabled || WorldModel.getWorldProperties() == null) {
+            return null;
+        }
+        //a changed saliency annotation changes the identifiers of all types
+        long saliencyVersion = WorldModel.getSaliencyAnnotationVersion();
+        if(saliencyVersion != precomputedSaliencyVersion) {
+            precomputedTypeVersions.clear();
+            precomputedSaliencyVersion = saliencyVersion;
+        }
+
+        Map<String, List<String>> changedTypeMap = new LinkedHashMap<>();
+        int objectCount = 0;
+        for(JsonObject worldObject: WorldModel.getWorldProperties()) {
+            if(!worldObject.has("worldobjectid") || !worldObject.has("worldobjecttype")) {
+                continue;
+            }
+            objectCount++;
+            String type = worldObject.get("worldobjecttype").getAsString();
+            long typeVersion = WorldModel.getWorldObjectTypeVersion(type);
+            Long precomputedTypeVersion = precomputedTypeVersions.get(type);
+            if(precomputedTypeVersion == null || precomputedTypeVersion != typeVersion) {
+                changedTypeMap.computeIfAbsent(type, key -> new ArrayList<>()).add(worldObject.get("worldobjectid").getAsString());
+            }
+        }
+        if(changedTypeMap.isEmpty()) {
+            return null;
+        }
+        //the precomputed identifiers should not push each other out of the cache
+        AttributiveObjectIdentifierCache.getInstance().ensureMaxSize(2 * objectCount);
+        long currentGeneration = generation.incrementAndGet();
+        List<PrecomputeTypeTask> typeTasks = new ArrayList<>();
+        for(Map.Entry<String, List<String>> entry: changedTypeMap.entrySet()) {
+            typeTasks.add(new PrecomputeTypeTask(entry.getKey(), WorldModel.getWorldObjectTypeVersion(entry.getKey()), entry.getValue(), currentGeneration));
+        }
+        return forkJoinPool.submit(new PrecomputeAllTypesTask(typeTasks));
+    }
+
+    /**
+     * records that the identifiers of the type have been precomputed, unless the precomputation is outdated
+     * (then the type is precomputed again by the next precomputation)
+     * @param type
+     * @param typeVersion version of the type the identifiers have been precomputed for
+     * @param taskGeneration
+     */
+    private synchronized void typePrecomputed(String type, long typeVersion, long taskGeneration) {
+        if(taskGeneration == generation.get()) {
+            precomputedTypeVersions.put(type, typeVersion);
+        }
+    }
+
+    /**
+     * forget which identifiers have been precomputed (e.g. after the cache or the configuration of the SpeechModality has changed)
+     */
+    public synchronized void reset() {
+        precomputedTypeVersions.clear();
+        precomputedSaliencyVersion = -1;
+        generation.incrementAndGet();
+    }
+
+    /**
+     * precomputes the identifiers of the changed types in parallel
+     */
+    private static class PrecomputeAllTypesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<PrecomputeTypeTask> typeTasks;
+
+        PrecomputeAllTypesTask(List<PrecomputeTypeTask> typeTasks) {
+            this.typeTasks = typeTasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(typeTasks);
+        }
+    }
+
+    /**
+     * precomputes the identifiers of the objects of one type, the type counts as precomputed only after all of them have been computed and cached
+     */
+    private class PrecomputeTypeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final String type;
+        private final long typeVersion;
+        private final List<String> worldIds;
+        private final long taskGeneration;
+
+        PrecomputeTypeTask(String type, long typeVersion, List<String> worldIds, long taskGeneration) {
+            this.type = type;
+            this.typeVersion = typeVersion;
+            this.worldIds = worldIds;
+            this.taskGeneration = taskGeneration;
+        }
+
+        @Override
+        protected void compute() {
+            AtomicBoolean allCached = new AtomicBoolean(true);
+            new PrecomputeIdentifiersTask(worldIds, 0, worldIds.size(), taskGeneration, allCached).invoke();
+            //identifiers which have failed or exceeded the budgets of the attribute selection are not cached -> precompute the type again next time,
+            //the generation only increases -> if it is still the same, no object of the type has been skipped
+            if(allCached.get()) {
+                typePrecomputed(type, typeVersion, taskGeneration);
+            }
+        }
+    }
+
+    /**
+     * precomputes the identifiers of the objects (of one type) between start and end, splits them until one object is left
+     */
+    private class PrecomputeIdentifiersTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<String> worldIds;
+        private final int start;
+        private final int end;
+        private final long taskGeneration;
+        //set to false if an identifier has not been cached
+        private final AtomicBoolean allCached;
+
+        PrecomputeIdentifiersTask(List<String> worldIds, int start, int end, long taskGeneration, AtomicBoolean allCached) {
+            this.worldIds = worldIds;
+            this.start = start;
+            this.end = end;
+            this.taskGeneration = taskGeneration;
+            this.allCached = allCached;
+        }
+
+        @Override
+        protected void compute() {
+            //the world model has changed again -> these identifiers are outdated
+            if(taskGeneration != generation.get()) {
+                return;
+            }
+            if(end - start > 1) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new PrecomputeIdentifiersTask(worldIds, start, middle, taskGeneration, allCached),
+                        new PrecomputeIdentifiersTask(worldIds, middle, end, taskGeneration, allCached));
+                return;
+            }
+            StringPredicateElement element = new StringPredicateElement(worldIds.get(start));
+            element.setWorldObjectId(worldIds.get(start));
+            try {
+                if(!SpeechModality.getInstance().precomputeAttributiveObjectIdentifier(element)) {
+                    allCached.set(false);
+                }
+            } catch (RuntimeException e) {
+                allCached.set(false);
+                System.out.println("Warning: the identifier of " + worldIds.get(start) + " could not be precomputed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.attributeselection;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import de.dfki.mmf.input.worldmodel.AttributeDictionary;
+import de.dfki.mmf.input.worldmodel.EncodedWorldObject;
+import de.dfki.mmf.input.worldmodel.WorldModel;
+
+import java.util.*;
+
+/**
+ * Compact representation of the comparisons between a queried object and the other objects of its type (the distractors):
+ * the attributes of the queried object are indexed, their values are compared by their codes in the AttributeDictionary and for each distractor a bitset
+ * marks the attributes which rule it out (attributes the distractor does not have or for which it has a different value)
+ */
+public class DiscriminationMatrix {
+
+    private static final int WORD_SIZE = 64;
+
+    //attributes of the queried object which are used (not pruned because of their saliency), index = position in the list
+    private final List<String> attributes = new ArrayList<>();
+    private final List<JsonElement> queriedValues = new ArrayList<>();
+    //for each distractor: bitset of the attributes ruling it out
+    private final long[][] discriminatingAttributes;
+    private final int wordCount;
+
+    /**
+     *
+     * @param queriedObject
+     * @param databaseObjects the distractors
+     * @param saliencyAnnotations if not null, only annotated attributes with a saliency of at least the threshold are used
+     * @param saliencyThreshold
+     */
+    public DiscriminationMatrix(JsonObject queriedObject, List<JsonObject> databaseObjects, JsonObject saliencyAnnotations, double saliencyThreshold) {
+        //the queried object and the distractors are compared with the codes of the same dictionary
+        AttributeDictionary attributeDictionary = WorldModel.getAttributeDictionary();
+        EncodedWorldObject encodedQueriedObject = attributeDictionary.getEncodedWorldObject(queriedObject);
+        List<Integer> nameCodes = new ArrayList<>();
+        for(Map.Entry<String, JsonElement> entry: queriedObject.entrySet()) {
+            if(saliencyAnnotations != null && (!saliencyAnnotations.has(entry.getKey())
+                    || saliencyAnnotations.get(entry.getKey()).getAsDouble() < saliencyThreshold)) {
+                continue;
+            }
+            attributes.add(entry.getKey());
+            queriedValues.add(entry.getValue());
+            nameCodes.add(AttributeDictionary.encodeName(entry.getKey()));
+        }
+        int[] queriedValueCodes = new int[nameCodes.size()];
+        for(int attribute = 0; attribute < queriedValueCodes.length; attribute++) {
+            queriedValueCodes[attribute] = encodedQueriedObject.getValueCode(nameCodes.get(attribute));
+        }
+        wordCount = (attributes.size() + WORD_SIZE - 1) / WORD_SIZE;
+        discriminatingAttributes = new long[databaseObjects.size()][wordCount];
+        for(int distractor = 0; distractor < databaseObjects.size(); distractor++) {
+            EncodedWorldObject encodedDatabaseObject = attributeDictionary.getEncodedWorldObject(databaseObjects.get(distractor));
+            for(int attribute = 0; attribute < queriedValueCodes.length; attribute++) {
+                boolean rulesOut;
+                if(queriedValueCodes[attribute] == -1) {
+                    //not encoded (e.g. a nested object) -> compare the values themselves
+                    rulesOut = !queriedValues.get(attribute).equals(databaseObjects.get(distractor).get(attributes.get(attribute)));
+                } else {
+                    //a distractor without the attribute (code -1) is ruled out by it as well
+                    rulesOut = encodedDatabaseObject.getValueCode(nameCodes.get(attribute)) != queriedValueCodes[attribute];
+                }
+                if(rulesOut) {
+                    discriminatingAttributes[distractor][attribute / WORD_SIZE] |= 1L << (attribute % WORD_SIZE);
+                }
+            }
+        }
+    }
+
+    public int getAttributeCount() {
+        return attributes.size();
+    }
+
+    public String getAttribute(int attribute) {
+        return attributes.get(attribute);
+    }
+
+    public JsonElement getQueriedValue(int attribute) {
+        return queriedValues.get(attribute);
+    }
+
+    public int getDistractorCount() {
+        return discriminatingAttributes.length;
+    }
+
+    /**
+     *
+     * @return number of longs of the attribute bitsets
+     */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     *
+     * @param attribute
+     * @param distractor
+     * @return true if the attribute rules out the distractor
+     */
+    public boolean rulesOut(int attribute, int distractor) {
+        return (discriminatingAttributes[distractor][attribute / WORD_SIZE] & (1L << (attribute % WORD_SIZE))) != 0;
+    }
+
+    /**
+     *
+     * @param distractor
+     * @return bitset of the attributes ruling out the distractor (must not be changed)
+     */
+    public long[] getDiscriminatingAttributes(int distractor) {
+        return discriminatingAttributes[distractor];
+    }
+
+    /**
+     *
+     * @param distractor
+     * @return true if at least one attribute rules out the distractor
+     */
+    public boolean isDistinguishable(int distractor) {
+        for(long word: discriminatingAttributes[distractor]) {
+            if(word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     *
+     * @param attributeSet bitset of attributes
+     * @return JsonObject containing the attributes with the values of the queried object
+     */
+    public JsonObject toJsonObject(long[] attributeSet) {
+        JsonObject jsonObject = new JsonObject();
+        for(int attribute = 0; attribute < attributes.size(); attribute++) {
+            if((attributeSet[attribute / WORD_SIZE] & (1L << (attribute % WORD_SIZE))) != 0) {
+                jsonObject.add(attributes.get(attribute), queriedValues.get(attribute));
+            }
+        }
+        return jsonObject;
+    }
+}
@@ -43,17 +43,29 @@ import de.dfki.mmf.modalities.SpeechModality;
 import de.dfki.mmf.modalities.StructureFormingModality;
 import de.dfki.mmf.output.ComposedPlanComponent;
 import de.dfki.mmf.output.PlanComponent;
+import de.dfki.mmf.output.PlanningResult;
+import de.dfki.mmf.planner.PlanningSession;
+import de.dfki.mmf.planner.SolverRegistry;
 import de.dfki.mmf.planner.deviceplanner.DeviceRepresentation;
 import de.dfki.mmf.planner.deviceplanner.PhraseModalityComponent;
+import de.dfki.mmf.planner.deviceplanner.score.DeviceRepresentationEasyScoreCalculator;
+import de.dfki.mmf.planner.jointplanner.JointRepresentation;
+import de.dfki.mmf.planner.modalityplanner.ModalityPlanningEngine;
 import de.dfki.mmf.planner.modalityplanner.ModalityRepresentation;
 import de.dfki.mmf.planner.modalityplanner.PhraseComponent;
 import de.dfki.mmf.planner.modalityplanner.PowerSetModality;
+import de.dfki.mmf.planner.modalityplanner.SpeechOutputType;
 import de.dfki.mmf.planner.modalityplanner.score.AbstractScorer;
 import de.dfki.mmf.planner.modalityplanner.score.GeneralHumanLikenessScorer;
+import org.optaplanner.core.api.domain.solution.Solution;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 import org.optaplanner.core.api.solver.Solver;
-import org.optaplanner.core.api.solver.SolverFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Created by Magdalena Kaiser on 24.08.2016.
@@ -76,6 +88,22 @@ public class Controller {
     private LanguageFormat language;
     //list for the scorer which should be used for the modality selection
     private List<AbstractScorer> scorer = new ArrayList<>();
+    //planning session with running solvers (if null each predicate is solved from scratch)
+    private PlanningSession planningSession;
+    //engine used for the modality planning instead of the solver (if null or if it cannot solve the predicate the solver is used)
+    private ModalityPlanningEngine modalityPlanningEngine;
+    //plan devices and modalities in one solve instead of one after the other
+    private boolean jointPlanning = false;
+    //time in milliseconds the attribute selections of a predicate may take together
+    private long identifierLookupTimeoutMillis = 10000;
+    //deadline (System.nanoTime()) of the current planning request with latency budget, null if there is no budget
+    private Long planningDeadline;
+    //share of the remaining time the local search of the device and of the modality planning may use
+    private static final double DEVICE_PLANNING_BUDGET_SHARE = 0.2;
+    private static final double MODALITY_PLANNING_BUDGET_SHARE = 0.9;
+    //scores of the latest device and modality planning
+    private HardSoftScore deviceScore;
+    private HardSoftScore modalityScore;
 
     public static List<String> getTalkingToUserList() {
         return talkingToUserList;
@@ -151,6 +179,59 @@ public class Controller {
         this.scorer = scorer;
     }
 
+    /**
+     * use the running solvers of the given session instead of solving the predicate from scratch
+     * @param planningSession
+     */
+    public void setPlanningSession(PlanningSession planningSession) {
+        this.planningSession = planningSession;
+    }
+
+    /**
+     * plan the modalities with the given engine (e.g. the ExactModalityPlanningEngine), the solver is only used if the engine returns no result
+     * @param modalityPlanningEngine
+     */
+    public void setModalityPlanningEngine(ModalityPlanningEngine modalityPlanningEngine) {
+        this.modalityPlanningEngine = modalityPlanningEngine;
+    }
+
+    public long getIdentifierLookupTimeoutMillis() {
+        return identifierLookupTimeoutMillis;
+    }
+
+    /**
+     * @param identifierLookupTimeoutMillis time in milliseconds the attribute selections of a predicate may take together,
+     * elements whose attribute selection takes longer are referred to by their type
+     */
+    public void setIdentifierLookupTimeoutMillis(long identifierLookupTimeoutMillis) {
+        this.identifierLookupTimeoutMillis = identifierLookupTimeoutMillis;
+    }
+
+    /**
+     * plan devices and modalities in one solve (the modality scorers can then influence the choice of the devices),
+     * the planning session and the modality planning engine are not used in this case
+     * @param jointPlanning
+     */
+    public void setJointPlanning(boolean jointPlanning) {
+        this.jointPlanning = jointPlanning;
+    }
+
+    /**
+     *
+     * @return score of the latest device planning
+     */
+    public HardSoftScore getDeviceScore() {
+        return deviceScore;
+    }
+
+    /**
+     *
+     * @return score of the latest modality planning
+     */
+    public HardSoftScore getModalityScore() {
+        return modalityScore;
+    }
+
     /**
      *
      * @return the resulting plan: sequence with <Modality, Device, Output> triples as ComposedPlanComponents
@@ -196,27 +277,116 @@ public class Controller {
             modalityScorePresentabilityMap.put(modality.getModalityType(), scorePresentabilityMap);
         }
 
-        //plan which device to use for each modality based on different criteria
-        DeviceRepresentation solvedDeviceRepresentation = planDevices(modalityScorePresentabilityMap);
-
-        //plan which modalities to use based on different criteria
-        ModalityRepresentation solvedModalityRepresentation = planModalities(solvedDeviceRepresentation, modalityScorePresentabilityMap);
+        DeviceRepresentation solvedDeviceRepresentation;
+        ModalityRepresentation solvedModalityRepresentation;
+        if(jointPlanning) {
+            //plan devices and modalities together
+            solvedModalityRepresentation = planJointly(modalityScorePresentabilityMap);
+            solvedDeviceRepresentation = solvedModalityRepresentation.getSolvedDeviceRepresentation();
+        } else {
+            //plan which device to use for each modality based on different criteria
+            solvedDeviceRepresentation = planDevices(modalityScorePresentabilityMap);
+
+            //plan which modalities to use based on different criteria
+            solvedModalityRepresentation = planModalities(solvedDeviceRepresentation, modalityScorePresentabilityMap);
+        }
 
         //create and return the output components
         return createOutputPlanComponents(solvedModalityRepresentation, solvedDeviceRepresentation);
     }
 
+    /**
+     * anytime planning: the device and the modality planning improve the constructed solutions by local search
+     * until the latency budget is used up (the construction heuristics always finish)
+     * @param latencyBudgetMillis time in milliseconds the planning may take
+     * @return the resulting plan together with its scores
+     */
+    public PlanningResult generatePlan(long latencyBudgetMillis) {
+        if(latencyBudgetMillis <= 0) {
+            throw new IllegalArgumentException("The latency budget must be positive, but is " + latencyBudgetMillis + " ms.");
+        }
+        long startTime = System.nanoTime();
+        planningDeadline = startTime + latencyBudgetMillis * 1000000;
+        try {
+            List<ComposedPlanComponent> plan = generatePlan();
+            return new PlanningResult(plan, deviceScore, modalityScore, (System.nanoTime() - startTime) / 1000000.0, latencyBudgetMillis);
+        } finally {
+            planningDeadline = null;
+        }
+    }
+
+    /**
+     *
+     * @param solverKey
+     * @param budgetShare share of the remaining time of the latency budget the local search may use
+     * @return a new solver, with local search if there is time left in the latency budget of the current planning request
+     */
+    private <Solution_ extends Solution<?>> Solver<Solution_> buildSolver(String solverKey, double budgetShare) {
+        if(planningDeadline != null) {
+            long localSearchMillis = getRemainingBudgetMillis(budgetShare);
+            if(localSearchMillis > 0) {
+                return SolverRegistry.getInstance().buildSolver(solverKey, localSearchMillis);
+            }
+        }
+        return SolverRegistry.getInstance().buildSolver(solverKey);
+    }
+
+    /**
+     * requires a latency budget for the current planning request (planningDeadline is set)
+     * @param budgetShare
+     * @return share of the remaining time of the latency budget in milliseconds (0 if the budget is used up)
+     */
+    private long getRemainingBudgetMillis(double budgetShare) {
+        return Math.max(0L, (long) ((planningDeadline - System.nanoTime()) / 1000000 * budgetShare));
+    }
+
 
     /**
      * plan which device to use for each modality based on different criteria
      * @return DeviceRepresentation: containing for each modality the device which should be used
      */
     private DeviceRepresentation planDevices(Map<ModalityType,Map<PredicateElement, Double>> modalityScorePresentabilityMap) {
-        //Build the solver
-        SolverFactory<DeviceRepresentation> deviceSolverFactory = SolverFactory.createFromXmlResource(
-                "DeviceRepresentationSolverConfig.xml");
-        Solver<DeviceRepresentation> deviceSolver = deviceSolverFactory.buildSolver();
+        DeviceRepresentation solvedDeviceRepresentation = solveDevices(createDeviceRepresentation(modalityScorePresentabilityMap));
+        deviceScore = solvedDeviceRepresentation.getScore();
 
+        // Display the result
+        System.out.println("\nSolved DeviceRepresentation for sentence: \n"
+                + toDisplayDeviceRepresentation(solvedDeviceRepresentation));
+
+        return solvedDeviceRepresentation;
+    }
+
+    /**
+     *
+     * @param unsolvedDeviceRepresentation
+     * @return the solved DeviceRepresentation
+     */
+    private DeviceRepresentation solveDevices(DeviceRepresentation unsolvedDeviceRepresentation) {
+        // Solve the problem (in the running planning session if there is one)
+        DeviceRepresentation solvedDeviceRepresentation = null;
+        if(planningSession != null) {
+            try {
+                solvedDeviceRepresentation = planningDeadline == null ? planningSession.planDevices(unsolvedDeviceRepresentation)
+                        : planningSession.planDevices(unsolvedDeviceRepresentation, getRemainingBudgetMillis(DEVICE_PLANNING_BUDGET_SHARE));
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+                Thread.currentThread().interrupt();
+            }
+        }
+        if(solvedDeviceRepresentation == null) {
+            //Build the solver (the solver factory is cached by the registry)
+            Solver<DeviceRepresentation> deviceSolver = buildSolver(SolverRegistry.DEVICE_SOLVER, DEVICE_PLANNING_BUDGET_SHARE);
+            solvedDeviceRepresentation = deviceSolver.solve(unsolvedDeviceRepresentation);
+        }
+        return solvedDeviceRepresentation;
+    }
+
+    /**
+     *
+     * @param modalityScorePresentabilityMap
+     * @return the unsolved DeviceRepresentation containing a phrase modality component for each element and each modality which can present it
+     */
+    private DeviceRepresentation createDeviceRepresentation(Map<ModalityType,Map<PredicateElement, Double>> modalityScorePresentabilityMap) {
         ArrayList<PhraseModalityComponent> phraseModalityComponents = new ArrayList<>();
         for(PredicateElement element: predicate.getElements()) {
             for(Modality modality: modalities) {
@@ -249,23 +419,101 @@ public class Controller {
         DeviceRepresentation unsolvedDeviceRepresentation = new DeviceRepresentation();
         unsolvedDeviceRepresentation.setPhraseModalityComponents(phraseModalityComponents);
         unsolvedDeviceRepresentation.setDevices(devices);
+        return unsolvedDeviceRepresentation;
+    }
 
-        // Solve the problem
-        DeviceRepresentation solvedDeviceRepresentation = deviceSolver.solve(unsolvedDeviceRepresentation);
+    private ModalityRepresentation planModalities(DeviceRepresentation solvedDeviceRepresentation, Map<ModalityType,Map<PredicateElement, Double>> modalityScorePresentabilityMap) {
+        ModalityRepresentation solvedModalityRepresentation = solveModalities(createModalityRepresentation(solvedDeviceRepresentation, modalityScorePresentabilityMap));
+        modalityScore = solvedModalityRepresentation.getScore();
+
+        generateObjectDescriptionOutput(solvedModalityRepresentation);
 
         // Display the result
-        System.out.println("\nSolved DeviceRepresentation for sentence: \n"
-                + toDisplayDeviceRepresentation(solvedDeviceRepresentation));
+        System.out.println("\nSolved ModalityRepresentation for sentence: \n"
+                + toDisplayModalityRepresentation(solvedModalityRepresentation));
 
-        return solvedDeviceRepresentation;
+        return solvedModalityRepresentation;
     }
 
-    private ModalityRepresentation planModalities(DeviceRepresentation solvedDeviceRepresentation, Map<ModalityType,Map<PredicateElement, Double>> modalityScorePresentabilityMap) {
-        // Build the Solver
-        SolverFactory<ModalityRepresentation> modalitySolverFactory = SolverFactory.createFromXmlResource(
-                "ModalityRepresentationSolverConfig.xml");
-        Solver<ModalityRepresentation> modalitySolver = modalitySolverFactory.buildSolver();
+    /**
+     *
+     * @param modalityRepresentation
+     * @return the solved ModalityRepresentation
+     */
+    private ModalityRepresentation solveModalities(ModalityRepresentation modalityRepresentation) {
+        // Solve the problem (with the modality planning engine or in the running planning session if there is one)
+        ModalityRepresentation solvedModalityRepresentation = null;
+        if(modalityPlanningEngine != null) {
+            solvedModalityRepresentation = planningDeadline == null ? modalityPlanningEngine.solve(modalityRepresentation)
+                    : modalityPlanningEngine.solve(modalityRepresentation, getRemainingBudgetMillis(MODALITY_PLANNING_BUDGET_SHARE));
+        }
+        if(solvedModalityRepresentation == null && planningSession != null) {
+            try {
+                solvedModalityRepresentation = planningDeadline == null ? planningSession.planModalities(modalityRepresentation)
+                        : planningSession.planModalities(modalityRepresentation, getRemainingBudgetMillis(MODALITY_PLANNING_BUDGET_SHARE));
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+                Thread.currentThread().interrupt();
+            }
+        }
+        if(solvedModalityRepresentation == null) {
+            // Build the Solver (the solver factory is cached by the registry)
+            Solver<ModalityRepresentation> modalitySolver = buildSolver(SolverRegistry.MODALITY_SOLVER, MODALITY_PLANNING_BUDGET_SHARE);
+            solvedModalityRepresentation = modalitySolver.solve(modalityRepresentation);
+        }
+        return solvedModalityRepresentation;
+    }
 
+    /**
+     * plan the devices and the modalities together (see JointRepresentation): the result of the two-stage planning is improved
+     * by the local search of the joint solver, which changes devices and modalities where this improves the summed score
+     * @param modalityScorePresentabilityMap
+     * @return the solved ModalityRepresentation, its solvedDeviceRepresentation contains the planned devices
+     */
+    private ModalityRepresentation planJointly(Map<ModalityType,Map<PredicateElement, Double>> modalityScorePresentabilityMap) {
+        DeviceRepresentation twoStageDeviceRepresentation = solveDevices(createDeviceRepresentation(modalityScorePresentabilityMap));
+        ModalityRepresentation twoStageModalityRepresentation = solveModalities(
+                createModalityRepresentation(twoStageDeviceRepresentation, modalityScorePresentabilityMap));
+
+        //Build the solver (the solver factory is cached by the registry), it works on a clone of the two-stage result
+        Solver<JointRepresentation> jointSolver = buildSolver(SolverRegistry.JOINT_SOLVER, MODALITY_PLANNING_BUDGET_SHARE);
+        JointRepresentation solvedJointRepresentation = jointSolver.solve(new JointRepresentation(twoStageDeviceRepresentation, twoStageModalityRepresentation));
+
+        DeviceRepresentation solvedDeviceRepresentation;
+        ModalityRepresentation solvedModalityRepresentation;
+        HardSoftScore twoStageScore = twoStageDeviceRepresentation.getScore().add(twoStageModalityRepresentation.getScore());
+        if(solvedJointRepresentation.getScore().compareTo(twoStageScore) > 0) {
+            //split the result into the results of the device and the modality planning
+            solvedDeviceRepresentation = solvedJointRepresentation.createDeviceRepresentation();
+            solvedModalityRepresentation = solvedJointRepresentation.createModalityRepresentation(solvedDeviceRepresentation);
+            //the joint score is the sum of both scores, only the (cheap) device score has to be calculated to split it
+            deviceScore = (HardSoftScore) new DeviceRepresentationEasyScoreCalculator().calculateScore(solvedDeviceRepresentation);
+            modalityScore = solvedJointRepresentation.getScore().subtract(deviceScore);
+            solvedDeviceRepresentation.setScore(deviceScore);
+            solvedModalityRepresentation.setScore(modalityScore);
+        } else {
+            solvedDeviceRepresentation = twoStageDeviceRepresentation;
+            solvedModalityRepresentation = twoStageModalityRepresentation;
+            deviceScore = twoStageDeviceRepresentation.getScore();
+            modalityScore = twoStageModalityRepresentation.getScore();
+        }
+
+        generateObjectDescriptionOutput(solvedModalityRepresentation);
+
+        // Display the result
+        System.out.println("\nSolved DeviceRepresentation and ModalityRepresentation for sentence (" + solvedJointRepresentation.getScore() + "): \n"
+                + toDisplayDeviceRepresentation(solvedDeviceRepresentation) + toDisplayModalityRepresentation(solvedModalityRepresentation));
+
+        return solvedModalityRepresentation;
+    }
+
+    /**
+     *
+     * @param deviceRepresentation
+     * @param modalityScorePresentabilityMap
+     * @return the unsolved ModalityRepresentation containing a phrase component for each element
+     */
+    private ModalityRepresentation createModalityRepresentation(DeviceRepresentation deviceRepresentation, Map<ModalityType,Map<PredicateElement, Double>> modalityScorePresentabilityMap) {
         ArrayList<PhraseComponent> phraseComponents = new ArrayList<>();
         //create the phrase components used in the modality planning process, each refers to one predicate element
         for(PredicateElement element: predicate.getElements()) {
@@ -294,28 +542,22 @@ public class Controller {
             phraseComponent.setModalityRepresentationMap(modalityRepresentationMap);
         }
 
-        //get attributive identifier for each element which refer to world object
+        //get attributive identifier for each element which refer to world object, the attribute selections run concurrently
+        Map<PhraseComponent, CompletableFuture<AttributiveObjectIdentifier>> identifierFutureMap = new LinkedHashMap<>();
         for(PhraseComponent component: phraseComponents) {
-            AttributiveObjectIdentifier identifier = null;
-            try {
-                if(speechModality != null) {
-                    //test if world object id of the element has been set -> if so element refers to world object
-                    if (component.getPredicateElement().getWorldObjectId() != null) {
-                        //no search for attributive identifier if current robot or current user is referenced ("I", "you" should be used instead)
-                        if (!(component.getPredicateElement().getWorldObjectType().equals("robot") ||
-                                (component.getPredicateElement().getWorldObjectType().equals("user") && talkingToUserList.contains(component.getPredicateElement().getWorldObjectId())))) {
-                            //search for attributive identifier
-                            identifier = speechModality.findAttributiveObjectIdentifier(component.getPredicateElement());
-                        }
+            if(speechModality != null) {
+                //test if world object id of the element has been set -> if so element refers to world object
+                if (component.getPredicateElement().getWorldObjectId() != null) {
+                    //no search for attributive identifier if current robot or current user is referenced ("I", "you" should be used instead)
+                    if (!(component.getPredicateElement().getWorldObjectType().equals("robot") ||
+                            (component.getPredicateElement().getWorldObjectType().equals("user") && talkingToUserList.contains(component.getPredicateElement().getWorldObjectId())))) {
+                        //search for attributive identifier
+                        identifierFutureMap.put(component, speechModality.findAttributiveObjectIdentifierAsync(component.getPredicateElement()));
                     }
                 }
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-                Thread.currentThread().interrupt();
             }
-            //set identifier for the phrase component
-            component.setAttributiveObjectIdentifier(identifier);
         }
+        Set<PhraseComponent> typeOnlyComponents = resolveAttributiveObjectIdentifiers(speechModality, phraseComponents, identifierFutureMap);
 
         //create PowersetModalities -> each Phrasecomponent will have a different combination of modalities
         ArrayList<PowerSetModality> powerSetModalities = new ArrayList<>();
@@ -329,13 +571,26 @@ public class Controller {
         for(Set<ModalityType> singleModPowerSet: modPowerSet) {
             powerSetModalities.add(new PowerSetModality(singleModPowerSet));
         }
+        //each phrase component only chooses among the PowersetModalities which can represent its predicate element
+        for(PhraseComponent phraseComponent: phraseComponents) {
+            phraseComponent.filterPossiblePowerSetModalities(powerSetModalities);
+        }
 
        //create the main planning unit and add its properties
         ModalityRepresentation modalityRepresentation = new ModalityRepresentation();
         modalityRepresentation.setPhraseComponents(phraseComponents);
         modalityRepresentation.setPowerSetModalityList(powerSetModalities);
-        modalityRepresentation.setSolvedDeviceRepresentation(solvedDeviceRepresentation);
+        modalityRepresentation.setSolvedDeviceRepresentation(deviceRepresentation);
         modalityRepresentation.setDefaultSpeechOutputTypeList();
+        //only elements with attributive identifier choose among these speech output types
+        for(PhraseComponent phraseComponent: phraseComponents) {
+            if(typeOnlyComponents.contains(phraseComponent)) {
+                //the attribute selection did not finish in time -> refer to the object by its type
+                phraseComponent.setPossibleSpeechOutputTypeList(Collections.singletonList(SpeechOutputType.THE_TYPE));
+            } else {
+                phraseComponent.setPossibleSpeechOutputTypeList(modalityRepresentation.getSpeechOutputTypeList());
+            }
+        }
 
         //set the scorer which should be used, if no scorer is specified use default one
         if(scorer != null && !scorer.isEmpty()) {
@@ -343,11 +598,78 @@ public class Controller {
         }else {
             modalityRepresentation.setScorer(getStandardScorer());
         }
+        return modalityRepresentation;
+    }
 
-        // Solve the problem
-        ModalityRepresentation solvedModalityRepresentation = modalitySolver.solve(modalityRepresentation);
+    /**
+     * wait for the attribute selections of the predicate (at most the identifier lookup timeout and the latency budget of the plan)
+     * and set the attributive identifiers of the phrase components
+     * @param speechModality
+     * @param phraseComponents
+     * @param identifierFutureMap running attribute selections of the phrase components referring to world objects
+     * @return phrase components whose attribute selection has not finished in time, their identifier only contains the type
+     */
+    private Set<PhraseComponent> resolveAttributiveObjectIdentifiers(SpeechModality speechModality, List<PhraseComponent> phraseComponents,
+                                                                     Map<PhraseComponent, CompletableFuture<AttributiveObjectIdentifier>> identifierFutureMap) {
+        Set<PhraseComponent> typeOnlyComponents = new HashSet<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(identifierLookupTimeoutMillis);
+        if(planningDeadline != null) {
+            deadline = Math.min(deadline, planningDeadline);
+        }
+        boolean interrupted = false;
+        for(PhraseComponent component: phraseComponents) {
+            CompletableFuture<AttributiveObjectIdentifier> identifierFuture = identifierFutureMap.get(component);
+            AttributiveObjectIdentifier identifier = null;
+            if(identifierFuture != null && interrupted) {
+                //the remaining attribute selections have been cancelled -> only the type is used
+                identifier = speechModality.createTypeIdentifier(component.getPredicateElement());
+                typeOnlyComponents.add(component);
+            } else if(identifierFuture != null) {
+                try {
+                    identifier = identifierFuture.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    identifierFuture.cancel(true);
+                    System.out.println("Warning: the attribute selection for " + component.getPredicateElement() + " did not finish in time, only the type is used.");
+                    identifier = speechModality.createTypeIdentifier(component.getPredicateElement());
+                    typeOnlyComponents.add(component);
+                } catch (InterruptedException e) {
+                    //the planning is stopped -> the remaining attribute selections are not needed anymore
+                    for(CompletableFuture<AttributiveObjectIdentifier> remainingFuture: identifierFutureMap.values()) {
+                        remainingFuture.cancel(true);
+                    }
+                    Thread.currentThread().interrupt();
+                    interrupted = true;
+                    System.out.println("Warning: waiting for the attribute selection for " + component.getPredicateElement() + " has been interrupted, only the type is used.");
+                    identifier = speechModality.createTypeIdentifier(component.getPredicateElement());
+                    typeOnlyComponents.add(component);
+                } catch (ExecutionException e) {
+                    //the plan cannot be generated -> the remaining attribute selections are not needed anymore
+                    for(CompletableFuture<AttributiveObjectIdentifier> remainingFuture: identifierFutureMap.values()) {
+                        remainingFuture.cancel(true);
+                    }
+                    if(e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new IllegalStateException("The attribute selection for " + component.getPredicateElement() + " failed.", e.getCause());
+                }
+            }
+            //set identifier for the phrase component
+            component.setAttributiveObjectIdentifier(identifier);
+        }
+        return typeOnlyComponents;
+    }
 
-        //generate object output description and write updated output into the modality output map
+    /**
+     * generate object output description and write updated output into the modality output map
+     * @param solvedModalityRepresentation
+     */
+    private void generateObjectDescriptionOutput(ModalityRepresentation solvedModalityRepresentation) {
+        SpeechModality speechModality = null;
+        for(Modality modality: modalities) {
+            if(modality.getModalityType().equals(ModalityType.SPEECH)) {
+                speechModality = (SpeechModality) modality;
+            }
+        }
         for(PhraseComponent phraseComponent: solvedModalityRepresentation.getPhraseComponents()) {
             if(phraseComponent.getAttributiveObjectIdentifier() != null) {
                 if(speechModality != null) {
@@ -358,12 +680,6 @@ public class Controller {
                 }
             }
         }
-
-        // Display the result
-        System.out.println("\nSolved ModalityRepresentation for sentence: \n"
-                + toDisplayModalityRepresentation(solvedModalityRepresentation));
-
-        return solvedModalityRepresentation;
     }
 
     /**
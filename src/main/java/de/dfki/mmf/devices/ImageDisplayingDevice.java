@@ -26,6 +26,7 @@ package de.dfki.mmf.devices;
 
 
 import com.google.gson.JsonObject;
+import de.dfki.mmf.attributeselection.AttributiveObjectIdentifierPrecomputation;
 import de.dfki.mmf.input.worldmodel.WorldModel;
 
 import java.net.URL;
@@ -80,6 +81,8 @@ public abstract class ImageDisplayingDevice extends Device {
                 }
             }
         }
+        WorldModel.worldPropertiesChanged();
+        AttributiveObjectIdentifierPrecomputation.getInstance().worldModelChanged();
     }
 
     public abstract void run();
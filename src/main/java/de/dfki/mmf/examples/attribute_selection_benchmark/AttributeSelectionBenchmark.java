@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.examples.attribute_selection_benchmark;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import de.dfki.mmf.attributeselection.AttributeSelectionAlgorithm;
+import de.dfki.mmf.attributeselection.AttributeSelectorType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares the attribute selectors on randomly generated objects with an increasing number of attributes:
+ * time to find the identifier of one object as well as length and summed saliency of the found identifier.
+ * The selectors combining all discriminating attributes build their power set, they are only run up to MAX_POWER_SET_ATTRIBUTES,
+ * the shortest selectors are additionally run with the smallest identifier search for all numbers of attributes
+ */
+public class AttributeSelectionBenchmark {
+
+    private static final int MIN_ATTRIBUTES = 4;
+    private static final int MAX_ATTRIBUTES = 20;
+    private static final int MAX_POWER_SET_ATTRIBUTES = 14;
+    //number of other objects of the same type
+    private static final int DATABASE_OBJECTS = 10;
+    //number of different values of each attribute
+    private static final int ATTRIBUTE_VALUES = 3;
+    private static final int ROUNDS = 5;
+
+    private final Random random = new Random(0);
+
+    public static void main(String[] args) {
+        AttributeSelectionBenchmark benchmark = new AttributeSelectionBenchmark();
+        //warm up
+        benchmark.runScenario(MIN_ATTRIBUTES, true);
+        for(int attributeCount = MIN_ATTRIBUTES; attributeCount <= MAX_ATTRIBUTES; attributeCount += 2) {
+            System.out.println("\n" + attributeCount + " attributes, " + DATABASE_OBJECTS + " other objects:");
+            benchmark.runScenario(attributeCount, false);
+        }
+    }
+
+    /**
+     * run all selectors on the same randomly generated objects
+     * @param attributeCount
+     * @param warmUp do not print the results
+     */
+    private void runScenario(int attributeCount, boolean warmUp) {
+        JsonObject saliencyAnnotations = new JsonObject();
+        for(int i = 0; i < attributeCount; i++) {
+            //all saliency values are above the pruning threshold of the algorithm
+            saliencyAnnotations.addProperty("attribute" + i, String.valueOf(0.5 + random.nextInt(50)/100.0));
+        }
+        JsonObject queriedObject = createObject(attributeCount);
+        List<JsonObject> databaseObjects = new ArrayList<>();
+        for(int i = 0; i < DATABASE_OBJECTS; i++) {
+            databaseObjects.add(createObject(attributeCount));
+        }
+        for(AttributeSelectorType selectorType: AttributeSelectorType.values()) {
+            if(selectorType.equals(AttributeSelectorType.INCREMENTAL) || attributeCount <= MAX_POWER_SET_ATTRIBUTES) {
+                runSelector(selectorType, false, queriedObject, databaseObjects, saliencyAnnotations, warmUp);
+            }
+            if(selectorType.equals(AttributeSelectorType.SHORTEST) || selectorType.equals(AttributeSelectorType.SHORTEST_MOST_SALIENT_ABOVE_THRESHOLD)) {
+                runSelector(selectorType, true, queriedObject, databaseObjects, saliencyAnnotations, warmUp);
+            }
+        }
+    }
+
+    /**
+     * run one selector ROUNDS times
+     * @param selectorType
+     * @param smallestIdentifierSearch search only the smallest identifiers instead of all
+     * @param queriedObject
+     * @param databaseObjects
+     * @param saliencyAnnotations
+     * @param warmUp do not print the results
+     */
+    private void runSelector(AttributeSelectorType selectorType, boolean smallestIdentifierSearch, JsonObject queriedObject,
+                             List<JsonObject> databaseObjects, JsonObject saliencyAnnotations, boolean warmUp) {
+        JsonObject identifier = null;
+        boolean partial = false;
+        long startTime = System.nanoTime();
+        for(int round = 0; round < ROUNDS; round++) {
+            AttributeSelectionAlgorithm algorithm = new AttributeSelectionAlgorithm(databaseObjects, queriedObject, saliencyAnnotations);
+            algorithm.setIncrementalSelection(selectorType.equals(AttributeSelectorType.INCREMENTAL));
+            algorithm.setSmallestIdentifierSearch(smallestIdentifierSearch);
+            if(smallestIdentifierSearch && selectorType.equals(AttributeSelectorType.SHORTEST_MOST_SALIENT_ABOVE_THRESHOLD)) {
+                //default threshold of the selector
+                algorithm.setMinimumIdentifierSaliency(0.8);
+            }
+            algorithm.run();
+            Set<JsonObject> resultSet;
+            try {
+                resultSet = algorithm.getResult();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            partial = algorithm.isPartialIdentifiable();
+            identifier = partial ? null : selectIdentifier(algorithm, selectorType, resultSet);
+        }
+        double millis = (System.nanoTime() - startTime)/1000000.0/ROUNDS;
+        if(!warmUp) {
+            System.out.println(String.format("  %-58s %10.3f ms, %s", selectorType + (smallestIdentifierSearch ? " (smallest search)" : ""), millis,
+                    partial ? "partial identifier only" : toDisplayIdentifier(identifier, saliencyAnnotations)));
+        }
+    }
+
+    private JsonObject selectIdentifier(AttributeSelectionAlgorithm algorithm, AttributeSelectorType selectorType, Set<JsonObject> resultSet) {
+        switch(selectorType) {
+            case SHORTEST_MOST_SALIENT_ABOVE_THRESHOLD:
+                return algorithm.getShortestMostSalientAboveThresholdIdentifier(resultSet);
+            case SHORTEST:
+                return algorithm.getShortestIdentifier(resultSet);
+            case MOST_SALIENT:
+                return algorithm.getMostSalientIdentifier(resultSet);
+            case MAXIMIZED_SALIENCY_MAXIMIZED_SHORTNESS:
+                return algorithm.getMaxSalientMaxShortestIdentifier(resultSet);
+            default:
+                return resultSet.iterator().next();
+        }
+    }
+
+    private JsonObject createObject(int attributeCount) {
+        JsonObject object = new JsonObject();
+        for(int i = 0; i < attributeCount; i++) {
+            object.addProperty("attribute" + i, "value" + random.nextInt(ATTRIBUTE_VALUES));
+        }
+        return object;
+    }
+
+    private String toDisplayIdentifier(JsonObject identifier, JsonObject saliencyAnnotations) {
+        if(identifier == null) {
+            return "no identifier";
+        }
+        double saliency = 0.0;
+        for(Map.Entry<String, JsonElement> entry: identifier.entrySet()) {
+            saliency += saliencyAnnotations.get(entry.getKey()).getAsDouble();
+        }
+        return String.format("%d attributes, summed saliency %.2f", identifier.size(), saliency);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.dfki.mmf.examples.cone_intersection_benchmark;
+
+import com.google.gson.JsonObject;
+import de.dfki.mmf.input.worldmodel.ConeIntersectionGraph;
+import de.dfki.mmf.input.worldmodel.RobotModel;
+import de.dfki.mmf.input.worldmodel.WorldModel;
+import de.dfki.mmf.input.worldmodel.WorldObjectConeIntersectionCalculator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the cone intersection calculation on randomly placed objects around the robot with an increasing number of objects:
+ * the sequential calculation and the parallel calculation with 2, 4, ... threads (up to the number of available processors)
+ */
+public class ConeIntersectionBenchmark {
+
+    private static final int[] OBJECT_COUNTS = {100, 1000, 5000, 10000, 50000};
+    //size of the room around the robot (in meters)
+    private static final double ROOM_SIZE = 10.0;
+    private static final double ROOM_HEIGHT = 2.0;
+    //radius around the objects (in meters)
+    private static final double MIN_PROXIMITY_RADIUS = 0.01;
+    private static final double MAX_PROXIMITY_RADIUS = 0.05;
+    private static final int ROUNDS = 3;
+
+    private final Random random = new Random(0);
+
+    public static void main(String[] args) {
+        ConeIntersectionBenchmark benchmark = new ConeIntersectionBenchmark();
+        JsonObject robotProperties = new JsonObject();
+        robotProperties.addProperty("worldobjectid", "robot");
+        robotProperties.addProperty("worldobjecttype", "robot");
+        robotProperties.addProperty("xposition", 0.0);
+        robotProperties.addProperty("yposition", 0.0);
+        robotProperties.addProperty("zposition", 1.0);
+        RobotModel robotModel = new RobotModel();
+        robotModel.setRobotProperties(robotProperties);
+        WorldModel.setRobotModel(robotModel);
+
+        //the parallel calculation is only used with at least 2 threads
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        List<Integer> threadCounts = new ArrayList<>();
+        for(int threads = 2; threads < maxThreads; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(maxThreads);
+        //warm up
+        benchmark.runScenario(benchmark.createWorld(OBJECT_COUNTS[1]), threadCounts, true);
+        for(int objectCount: OBJECT_COUNTS) {
+            System.out.println("\n" + objectCount + " objects:");
+            benchmark.runScenario(benchmark.createWorld(objectCount), threadCounts, false);
+        }
+    }
+
+    /**
+     * run the sequential and the parallel calculation on the same objects
+     * @param worldProperties
+     * @param threadCounts numbers of threads of the parallel calculation
+     * @param warmUp do not print the results
+     */
+    private void runScenario(List<JsonObject> worldProperties, List<Integer> threadCounts, boolean warmUp) {
+        WorldObjectConeIntersectionCalculator calculator = new WorldObjectConeIntersectionCalculator();
+        calculator.setParallelThreshold(Integer.MAX_VALUE);
+        runCalculator(calculator, "sequential", worldProperties, warmUp);
+        for(int threads: threadCounts) {
+            ForkJoinPool forkJoinPool = new ForkJoinPool(threads);
+            calculator = new WorldObjectConeIntersectionCalculator();
+            calculator.setParallelThreshold(0);
+            calculator.setForkJoinPool(forkJoinPool);
+            runCalculator(calculator, "parallel, " + threads + " threads", worldProperties, warmUp);
+            forkJoinPool.shutdown();
+        }
+    }
+
+    /**
+     * run one calculation ROUNDS times
+     * @param calculator
+     * @param name
+     * @param worldProperties
+     * @param warmUp do not print the results
+     */
+    private void runCalculator(WorldObjectConeIntersectionCalculator calculator, String name, List<JsonObject> worldProperties, boolean warmUp) {
+        ConeIntersectionGraph graph = null;
+        long startTime = System.nanoTime();
+        for(int round = 0; round < ROUNDS; round++) {
+            graph = calculator.calculateConeIntersectionGraph(worldProperties);
+        }
+        double millis = (System.nanoTime() - startTime)/1000000.0/ROUNDS;
+        if(!warmUp) {
+            long intersections = 0;
+            for(int i = 0; i < graph.getObjectCount(); i++) {
+                intersections += graph.getNeighbourCount(i);
+            }
+            System.out.println(String.format("  %-24s %10.3f ms, %d intersections", name, millis, intersections));
+        }
+    }
+
+    private List<JsonObject> createWorld(int objectCount) {
+        List<JsonObject> worldProperties = new ArrayList<>();
+        for(int i = 0; i < objectCount; i++) {
+            JsonObject worldObject = new JsonObject();
+            worldObject.addProperty("worldobjectid", "object" + i);
+            worldObject.addProperty("worldobjecttype", "object");
+            worldObject.addProperty("xposition", (random.nextDouble() - 0.5) * ROOM_SIZE);
+            worldObject.addProperty("yposition", (random.nextDouble() - 0.5) * ROOM_SIZE);
+            worldObject.addProperty("zposition", random.nextDouble() * ROOM_HEIGHT);
+            //small items (the radius does not grow with the distance)
+            worldObject.addProperty("proximityradius", MIN_PROXIMITY_RADIUS + random.nextDouble() * (MAX_PROXIMITY_RADIUS - MIN_PROXIMITY_RADIUS));
+            worldProperties.add(worldObject);
+        }
+        return worldProperties;
+    }
+}
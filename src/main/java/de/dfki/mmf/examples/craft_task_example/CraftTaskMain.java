@@ -44,6 +44,7 @@ import de.dfki.mmf.modalities.NoddingHeadShakingModality;
 import de.dfki.mmf.output.ComposedPlanComponent;
 import de.dfki.mmf.output.PlanComponent;
 import de.dfki.mmf.output.PlanExecutor;
+import de.dfki.mmf.planner.SolverRegistry;
 
 import java.io.File;
 import java.io.IOException;
@@ -77,6 +78,8 @@ public class CraftTaskMain {
         //inialize the world model
         main.initializeWorldModel(saliencyAnnotation, ModelType.MONGODB, "craftdb");
         ArrayList<Predicate> predicates = main.createPredicates();
+        //build the solvers at startup so that the first predicate is not delayed by parsing the solver configurations
+        SolverRegistry.getInstance().preload();
          //start Nao's init
         main.callNaoInitNaoRest("init");
         //define which persons the robot is currently talking to
@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.examples.vase_selling_example;
+
+import com.google.gson.JsonObject;
+import de.dfki.mmf.controller.Controller;
+import de.dfki.mmf.history.OutputHistory;
+import de.dfki.mmf.input.LanguageFormat;
+import de.dfki.mmf.input.worldmodel.ModelType;
+import de.dfki.mmf.input.worldmodel.WorldModel;
+import de.dfki.mmf.planner.SolverRegistry;
+import de.dfki.mmf.planner.modalityplanner.score.*;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the two-stage planning (devices first, then modalities) with the joint planning of devices and modalities
+ * on the predicates of the vase selling example: latency per predicate and quality of the plans (sum of device and modality score)
+ */
+public class VaseSellingJointPlanningBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 10;
+
+    private VaseSellingMain main = new VaseSellingMain();
+    private JsonObject saliencyAnnotations;
+    private List<String> predicateStrings = new ArrayList<>();
+
+    public static void main(String[] args) {
+        VaseSellingJointPlanningBenchmark benchmark = new VaseSellingJointPlanningBenchmark();
+        benchmark.initialize();
+        //build the solver factories before measuring
+        SolverRegistry.getInstance().preload();
+
+        for(int i = 0; i < WARMUP_ROUNDS; i++) {
+            benchmark.runRound(false);
+            benchmark.runRound(true);
+        }
+        double[] twoStageTimes = new double[MEASURED_ROUNDS];
+        double[] jointTimes = new double[MEASURED_ROUNDS];
+        HardSoftScore twoStageScore = null;
+        HardSoftScore jointScore = null;
+        for(int i = 0; i < MEASURED_ROUNDS; i++) {
+            long startTime = System.nanoTime();
+            twoStageScore = benchmark.runRound(false);
+            twoStageTimes[i] = (System.nanoTime() - startTime)/1000000.0;
+            startTime = System.nanoTime();
+            jointScore = benchmark.runRound(true);
+            jointTimes[i] = (System.nanoTime() - startTime)/1000000.0;
+        }
+        int predicateCount = benchmark.predicateStrings.size();
+        System.out.println("\nTwo-stage planning: " + toDisplayTimes(twoStageTimes, predicateCount) + ", summed score " + twoStageScore);
+        System.out.println("Joint planning: " + toDisplayTimes(jointTimes, predicateCount) + ", summed score " + jointScore);
+    }
+
+    /**
+     * create the modalities, devices and the world model of the vase selling example
+     */
+    private void initialize() {
+        main.createModalityDevices();
+        saliencyAnnotations = main.generateSaliencyAnnotations();
+        main.initializeWorldModel(saliencyAnnotations, ModelType.OWL, "vase-ontology.owl");
+
+        predicateStrings.add("coi()");
+        predicateStrings.add("lamji(vase4, vase5, [zoe], [zoe])");
+        predicateStrings.add("[xu] viska(user1, vase4, [zoe])");
+        predicateStrings.add("bramau(vase1, vase2, [zoe], [zoe])");
+        predicateStrings.add("jarco(robot1, image1, user1)");
+        predicateStrings.add("jarco(image1, vase1, [zoe])");
+        predicateStrings.add("jarco(image2, colorful vase, [zoe])");
+        predicateStrings.add("[na] nonseldia(colorful vase, [zoe], [zoe])");
+        predicateStrings.add("[na] skari(vase3, blue, [zoe], [zoe])");
+        predicateStrings.add("vecnu(robot1, vase4, user1, 70 euro)");
+        predicateStrings.add("[xu] terveu(user1, vase4, [zoe], [zoe])");
+        predicateStrings.add("coo()");
+    }
+
+    /**
+     * plan all predicates after each other, starting with an empty output history
+     * @param jointPlanning
+     * @return sum of the device and modality scores of all predicates
+     */
+    private HardSoftScore runRound(boolean jointPlanning) {
+        OutputHistory.clearOutputHistory();
+        ArrayList<String> talkingToUserList = new ArrayList<>();
+        talkingToUserList.add("User1");
+        HardSoftScore summedScore = HardSoftScore.valueOf(0, 0);
+        for(String predicateString: predicateStrings) {
+            //same saliency changes as in the vase selling example
+            if(predicateString.contains("skari")) {
+                saliencyAnnotations.addProperty("color", "0.0");
+            }else if(predicateString.contains("bramau")) {
+                saliencyAnnotations.addProperty("approximatesize", "0.0");
+            }
+            main.updateWorldModel(saliencyAnnotations, WorldModel.getRobotModel(), ModelType.OWL, "vase-ontology.owl");
+            Controller controller = new Controller(predicateString, LanguageFormat.ENG_SIMPLENLG, talkingToUserList);
+            ArrayList<AbstractScorer> scorers = new ArrayList<>();
+            scorers.add(new UserInfoScorer());
+            scorers.add(new GeneralHumanLikenessScorer());
+            scorers.add(new OutputHistoryScorer());
+            scorers.add(new ObjectIdentificationScorer());
+            scorers.add(new TechnicalEfficiencyScorer());
+            controller.setScorer(scorers);
+            controller.setJointPlanning(jointPlanning);
+            controller.generatePlan();
+            summedScore = summedScore.add(controller.getDeviceScore()).add(controller.getModalityScore());
+            saliencyAnnotations.addProperty("color", "1.0");
+            saliencyAnnotations.addProperty("approximatesize", "0.8");
+        }
+        return summedScore;
+    }
+
+    /**
+     *
+     * @param roundTimes time in milliseconds of each round
+     * @param predicateCount number of predicates planned in each round
+     * @return average and minimum time per predicate in string format
+     */
+    private static String toDisplayTimes(double[] roundTimes, int predicateCount) {
+        double sum = 0.0;
+        double min = Double.MAX_VALUE;
+        for(double roundTime: roundTimes) {
+            sum += roundTime;
+            min = Math.min(min, roundTime);
+        }
+        return String.format("average %.2f ms, minimum %.2f ms per predicate", sum/roundTimes.length/predicateCount, min/predicateCount);
+    }
+}
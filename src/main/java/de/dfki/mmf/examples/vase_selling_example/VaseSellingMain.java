@@ -148,7 +148,7 @@ public class VaseSellingMain {
     /**
      * state which modalities and devices are available and should be used
      */
-    private void createModalityDevices() {
+    void createModalityDevices() {
         //create modalities
         ModalityFactory modalityFactory = new ModalityFactory();
         Modality speechMod = modalityFactory.createModality(ModalityType.SPEECH);
@@ -231,7 +231,7 @@ public class VaseSellingMain {
      * @param type of the world model
      * @param dbName
      */
-    private void initializeWorldModel(JsonObject saliencyAnnotations, ModelType type, String dbName) {
+    void initializeWorldModel(JsonObject saliencyAnnotations, ModelType type, String dbName) {
         RobotModel robotModel = new RobotModel();
         robotModel.setModalities(modalities);
         robotModel.setDevices(devices);
@@ -246,7 +246,7 @@ public class VaseSellingMain {
      * @param type
      * @param dbName
      */
-    private void updateWorldModel(JsonObject saliencyAnnotations, RobotModel robotModel, ModelType type, String dbName) {
+    void updateWorldModel(JsonObject saliencyAnnotations, RobotModel robotModel, ModelType type, String dbName) {
         WorldModelFactory worldModelFactory = new WorldModelFactory();
         //create/update the world model, different procedure for different kinds of models
         if(type.equals(ModelType.OWL)) {
@@ -269,7 +269,7 @@ public class VaseSellingMain {
      * JsonObject containing object properties and how salient they are (value between 0.0 - 1.0) to identify the object
      * @return saliencyAnnotation JsonObject
      */
-    private JsonObject generateSaliencyAnnotations() {
+    JsonObject generateSaliencyAnnotations() {
         JsonObject saliencyAnnotation = new JsonObject();
         saliencyAnnotation.addProperty("worldobjectid", "0.0");
         saliencyAnnotation.addProperty("worldobjecttype", "0.0");
@@ -0,0 +1,259 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.dfki.mmf.input.worldmodel;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dictionary encoding the property names and attribute values of the world objects as int codes:
+ * equal names/values receive the same code, so comparing them is an integer comparison,
+ * and each distinct primitive value is stored once (see internValues())
+ *
+ * property names and types are encoded globally (their number is bounded by the schema of the world objects),
+ * the values are encoded by the dictionary of the world model (see WorldModel.getAttributeDictionary()), which encodes only the changed objects.
+ * Codes are never reused, so the values of previous versions (e.g. old coordinates) stay in the dictionary:
+ * it is replaced by a new one once most of its values are not used any more (see isOutgrown())
+ */
+public class AttributeDictionary {
+    private static final Map<String, Integer> nameCodeMap = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> typeCodeMap = new ConcurrentHashMap<>();
+
+    //values are encoded by their canonical form (see canonicalValue())
+    private final Map<String, Integer> valueCodeMap = new ConcurrentHashMap<>();
+    private final List<JsonElement> values = new ArrayList<>();
+    //int-coded views of the current world objects by their worldobjectid
+    private final Map<String, EncodedWorldObject> encodedWorldObjectMap = new ConcurrentHashMap<>();
+    //number of the encoded properties of the current world objects (an upper bound of the number of values which are still used)
+    private final AtomicLong encodedPropertyCount = new AtomicLong();
+
+    AttributeDictionary() {
+    }
+
+    /**
+     * encodes the new or changed world object (replaces the view of the object with the same worldobjectid)
+     * @param worldId worldobjectid of the object
+     * @param worldObject
+     * @param internValues if true, the primitive values of the world object are replaced by the equal values stored in the dictionary,
+     *                     values like colours or sizes are then shared by all objects instead of being stored once per object
+     */
+    void putWorldObject(String worldId, JsonObject worldObject, boolean internValues) {
+        if(internValues) {
+            internValues(worldObject);
+        }
+        setEncodedWorldObject(worldId, encode(worldObject));
+    }
+
+    /**
+     * takes over a new instance of the world object with the same content as the encoded one (without encoding it again)
+     * @param worldId worldobjectid of the object
+     * @param worldObject
+     */
+    void replaceWorldObject(String worldId, JsonObject worldObject) {
+        EncodedWorldObject encodedWorldObject = encodedWorldObjectMap.get(worldId);
+        if(encodedWorldObject == null) {
+            putWorldObject(worldId, worldObject, false);
+        } else if(encodedWorldObject.getWorldObject() != worldObject) {
+            encodedWorldObjectMap.put(worldId, encodedWorldObject.withWorldObject(worldObject));
+        }
+    }
+
+    void removeWorldObject(String worldId) {
+        setEncodedWorldObject(worldId, null);
+    }
+
+    private void setEncodedWorldObject(String worldId, EncodedWorldObject encodedWorldObject) {
+        EncodedWorldObject previous = encodedWorldObject == null ? encodedWorldObjectMap.remove(worldId) : encodedWorldObjectMap.put(worldId, encodedWorldObject);
+        encodedPropertyCount.addAndGet((encodedWorldObject == null ? 0 : encodedWorldObject.getPropertyCount())
+                - (previous == null ? 0 : previous.getPropertyCount()));
+    }
+
+    /**
+     * @return true if most of the values are not used by the current world objects any more
+     */
+    boolean isOutgrown() {
+        return getValueCount() > 2 * encodedPropertyCount.get() + 1024;
+    }
+
+    /**
+     *
+     * @param name property name
+     * @return code of the property name
+     */
+    public static int encodeName(String name) {
+        Integer code = nameCodeMap.get(name);
+        return code != null ? code : addCode(nameCodeMap, name);
+    }
+
+    /**
+     *
+     * @param type worldobjecttype
+     * @return code of the type
+     */
+    public static int encodeType(String type) {
+        Integer code = typeCodeMap.get(type);
+        return code != null ? code : addCode(typeCodeMap, type);
+    }
+
+    private static synchronized int addCode(Map<String, Integer> codeMap, String key) {
+        Integer code = codeMap.get(key);
+        if(code == null) {
+            code = codeMap.size();
+            codeMap.put(key, code);
+        }
+        return code;
+    }
+
+    /**
+     * only primitives and arrays of primitives are compared by the attribute selection,
+     * nested objects like the position are not encoded
+     * @param value property value
+     * @return true if the value is encoded
+     */
+    public static boolean isAttributeValue(JsonElement value) {
+        if(value.isJsonArray()) {
+            for(JsonElement element: value.getAsJsonArray()) {
+                if(!element.isJsonPrimitive()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return value.isJsonPrimitive();
+    }
+
+    /**
+     *
+     * @param value attribute value (see isAttributeValue())
+     * @return code of the value, equal for equal primitives and for arrays containing the same elements
+     */
+    public int encodeValue(JsonElement value) {
+        String canonicalValue = canonicalValue(value);
+        Integer code = valueCodeMap.get(canonicalValue);
+        return code != null ? code : addValue(canonicalValue, value);
+    }
+
+    private synchronized int addValue(String canonicalValue, JsonElement value) {
+        Integer code = valueCodeMap.get(canonicalValue);
+        if(code == null) {
+            code = values.size();
+            values.add(value);
+            valueCodeMap.put(canonicalValue, code);
+        }
+        return code;
+    }
+
+    /**
+     *
+     * @param code
+     * @return the first value which has been encoded with this code
+     */
+    public synchronized JsonElement getValue(int code) {
+        return values.get(code);
+    }
+
+    public synchronized int getValueCount() {
+        return values.size();
+    }
+
+    /**
+     *
+     * @param worldObject
+     * @return int-coded view of the world object, created on the fly if the object is not part of the world model
+     */
+    public EncodedWorldObject getEncodedWorldObject(JsonObject worldObject) {
+        JsonElement worldId = worldObject.get("worldobjectid");
+        if(worldId != null && worldId.isJsonPrimitive()) {
+            EncodedWorldObject encodedWorldObject = encodedWorldObjectMap.get(worldId.getAsString());
+            if(encodedWorldObject != null && encodedWorldObject.getWorldObject() == worldObject) {
+                return encodedWorldObject;
+            }
+        }
+        return encode(worldObject);
+    }
+
+    /**
+     *
+     * @param worldObject
+     * @return int-coded view of the attribute values of the world object (has to be created again if the object changes)
+     */
+    private EncodedWorldObject encode(JsonObject worldObject) {
+        int[] nameCodes = new int[worldObject.size()];
+        int[] valueCodes = new int[worldObject.size()];
+        int count = 0;
+        for(Map.Entry<String, JsonElement> entry: worldObject.entrySet()) {
+            if(isAttributeValue(entry.getValue())) {
+                nameCodes[count] = encodeName(entry.getKey());
+                valueCodes[count] = encodeValue(entry.getValue());
+                count++;
+            }
+        }
+        int typeCode = worldObject.has("worldobjecttype") ? encodeType(worldObject.get("worldobjecttype").getAsString()) : -1;
+        return new EncodedWorldObject(worldObject, count, nameCodes, valueCodes, typeCode);
+    }
+
+    /**
+     * replaces the primitive values of the world object by the equal values stored in the dictionary
+     * @param worldObject
+     */
+    private void internValues(JsonObject worldObject) {
+        List<Map.Entry<String, JsonElement>> primitiveEntries = new ArrayList<>();
+        for(Map.Entry<String, JsonElement> entry: worldObject.entrySet()) {
+            if(entry.getValue().isJsonPrimitive()) {
+                primitiveEntries.add(entry);
+            }
+        }
+        for(Map.Entry<String, JsonElement> entry: primitiveEntries) {
+            JsonElement sharedValue = getValue(encodeValue(entry.getValue()));
+            if(sharedValue != entry.getValue()) {
+                worldObject.add(entry.getKey(), sharedValue);
+            }
+        }
+    }
+
+    /**
+     * @param value
+     * @return string which is equal for equal values (arrays are equal if they contain the same elements)
+     */
+    private static String canonicalValue(JsonElement value) {
+        if(value.isJsonArray()) {
+            Set<String> elements = new TreeSet<>();
+            for(JsonElement element: value.getAsJsonArray()) {
+                elements.add(element.toString());
+            }
+            return elements.toString();
+        }
+        return value.toString();
+    }
+}
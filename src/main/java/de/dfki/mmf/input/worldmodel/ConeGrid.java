@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.dfki.mmf.input.worldmodel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Uniform grid over the unit sphere (the directions of the cones from the robot), used to find the cones close to a direction
+ * without going over all cones
+ * @param <T> the stored elements
+ */
+class ConeGrid<T> {
+    //smallest cell size of the grid
+    private static final double MIN_CELL_SIZE = 1e-5;
+    //added to the query radius so that rounding errors do not lose intersecting cones
+    private static final double QUERY_EPSILON = 1e-9;
+
+    private final double cellSize;
+    private final Map<Long, List<T>> cells = new HashMap<>();
+
+    ConeGrid(double cellSize) {
+        this.cellSize = Math.max(MIN_CELL_SIZE, cellSize);
+    }
+
+    /**
+     * @param angles angles of the cones
+     * @return cell size for cones with these angles: diameter of a typical query
+     */
+    static double calculateCellSize(double[] angles) {
+        if(angles.length == 0) {
+            return MIN_CELL_SIZE;
+        }
+        double[] sortedAngles = Arrays.copyOf(angles, angles.length);
+        Arrays.sort(sortedAngles);
+        return chordLength(Math.min(2 * sortedAngles[sortedAngles.length / 2], Math.PI / 2));
+    }
+
+    double getCellSize() {
+        return cellSize;
+    }
+
+    void add(T element, double x, double y, double z) {
+        cells.computeIfAbsent(cellKey(cell(x), cell(y), cell(z)), key -> new ArrayList<>()).add(element);
+    }
+
+    void remove(T element, double x, double y, double z) {
+        long key = cellKey(cell(x), cell(y), cell(z));
+        List<T> cellElements = cells.get(key);
+        if(cellElements != null) {
+            cellElements.remove(element);
+            if(cellElements.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    void clear() {
+        cells.clear();
+    }
+
+    /**
+     * passes all elements whose direction is within the angle around the direction to the consumer (and possibly some more)
+     * @param x
+     * @param y
+     * @param z
+     * @param angle at most 90 degrees are used, cones can only intersect within 90 degrees
+     * @param consumer
+     */
+    void query(double x, double y, double z, double angle, Consumer<T> consumer) {
+        double queryRadius = chordLength(Math.min(angle, Math.PI / 2)) + QUERY_EPSILON;
+        int minX = cell(x - queryRadius), maxX = cell(x + queryRadius);
+        int minY = cell(y - queryRadius), maxY = cell(y + queryRadius);
+        int minZ = cell(z - queryRadius), maxZ = cell(z + queryRadius);
+        long queryCellCount = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        if(queryCellCount > cells.size()) {
+            //the query covers more cells than are occupied -> go over the occupied ones
+            for(List<T> cellElements: cells.values()) {
+                cellElements.forEach(consumer);
+            }
+            return;
+        }
+        for(int cellX = minX; cellX <= maxX; cellX++) {
+            for(int cellY = minY; cellY <= maxY; cellY++) {
+                for(int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+                    List<T> cellElements = cells.get(cellKey(cellX, cellY, cellZ));
+                    if(cellElements != null) {
+                        cellElements.forEach(consumer);
+                    }
+                }
+            }
+        }
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long cellKey(int cellX, int cellY, int cellZ) {
+        return ((long) (cellX & 0x1FFFFF) << 42) | ((long) (cellY & 0x1FFFFF) << 21) | (cellZ & 0x1FFFFF);
+    }
+
+    /**
+     * @param angle
+     * @return distance between two unit vectors with this angle between them
+     */
+    private static double chordLength(double angle) {
+        return 2 * Math.sin(angle / 2);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.dfki.mmf.input.worldmodel;
+
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Read-only index over the cones of the world objects which finds the cones intersecting with a single cone:
+ * the directions and angles are copied into arrays once and the cones are put into one grid per size class of their angles
+ * (a query with the biggest angle of a class finds all cones of the class which can intersect).
+ * Can be queried from several threads at once
+ */
+class ConeIndex {
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+    private final double[] angles;
+    private final double[] cosAngles;
+    private final double[] sinAngles;
+    private final boolean[] hasDirection;
+    private final JsonObject[] worldObjects;
+    private final List<ConeGrid<Integer>> grids = new ArrayList<>();
+    private final List<Double> maxAngles = new ArrayList<>();
+
+    ConeIndex(List<ObjectCone> cones) {
+        int coneCount = cones.size();
+        x = new double[coneCount];
+        y = new double[coneCount];
+        z = new double[coneCount];
+        angles = new double[coneCount];
+        cosAngles = new double[coneCount];
+        sinAngles = new double[coneCount];
+        hasDirection = new boolean[coneCount];
+        worldObjects = new JsonObject[coneCount];
+        //indices of the cones with direction for each size class (binary exponent of the angle)
+        Map<Integer, List<Integer>> sizeClassMap = new TreeMap<>();
+        for(int i = 0; i < coneCount; i++) {
+            ObjectCone cone = cones.get(i);
+            x[i] = cone.getX();
+            y[i] = cone.getY();
+            z[i] = cone.getZ();
+            angles[i] = cone.getAngle();
+            cosAngles[i] = cone.getCosAngle();
+            sinAngles[i] = cone.getSinAngle();
+            worldObjects[i] = cone.getWorldObject();
+            //an object at the position of the robot has no direction and intersects with no other cone
+            hasDirection[i] = cone.hasDirection();
+            if(hasDirection[i]) {
+                sizeClassMap.computeIfAbsent(Math.getExponent(angles[i]), key -> new ArrayList<>()).add(i);
+            }
+        }
+        for(List<Integer> sizeClass: sizeClassMap.values()) {
+            double maxAngle = 0;
+            for(int i: sizeClass) {
+                maxAngle = Math.max(maxAngle, angles[i]);
+            }
+            ConeGrid<Integer> grid = new ConeGrid<>(ConeGrid.calculateCellSize(new double[]{maxAngle}));
+            for(int i: sizeClass) {
+                grid.add(i, x[i], y[i], z[i]);
+            }
+            grids.add(grid);
+            maxAngles.add(maxAngle);
+        }
+    }
+
+    int size() {
+        return worldObjects.length;
+    }
+
+    JsonObject getWorldObject(int cone) {
+        return worldObjects[cone];
+    }
+
+    /**
+     * @param cone
+     * @return the cones intersecting with the cone in ascending order
+     */
+    int[] findIntersections(int cone) {
+        return findIntersections(cone, new IntersectionCollector());
+    }
+
+    /**
+     * @param cone
+     * @param collector reused for several cones of the same thread
+     * @return the cones intersecting with the cone in ascending order
+     */
+    int[] findIntersections(int cone, IntersectionCollector collector) {
+        collector.cone = cone;
+        collector.intersectionCount = 0;
+        if(hasDirection[cone]) {
+            for(int sizeClass = 0; sizeClass < grids.size(); sizeClass++) {
+                grids.get(sizeClass).query(x[cone], y[cone], z[cone], angles[cone] + maxAngles.get(sizeClass), collector);
+            }
+        }
+        int[] sortedIntersections = Arrays.copyOf(collector.intersections, collector.intersectionCount);
+        Arrays.sort(sortedIntersections);
+        return sortedIntersections;
+    }
+
+    /**
+     * Collects the cones intersecting with one cone from the candidates of the grid queries
+     */
+    class IntersectionCollector implements Consumer<Integer> {
+        private int cone;
+        private int[] intersections = new int[16];
+        private int intersectionCount;
+
+        @Override
+        public void accept(Integer candidate) {
+            if(candidate == cone) {
+                return;
+            }
+            //same check as ObjectCone.intersects()
+            double scalarProduct = x[cone]*x[candidate] + y[cone]*y[candidate] + z[cone]*z[candidate];
+            if(ObjectCone.intersects(scalarProduct, angles[cone], cosAngles[cone], sinAngles[cone], angles[candidate], cosAngles[candidate], sinAngles[candidate])
+                    && !worldObjects[cone].equals(worldObjects[candidate])) {
+                if(intersectionCount == intersections.length) {
+                    intersections = Arrays.copyOf(intersections, 2 * intersectionCount);
+                }
+                intersections[intersectionCount++] = candidate;
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.input.worldmodel;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cone intersections of the world objects as adjacency arrays over dense object indices:
+ * the objects whose cones intersect with the cone of the object with index i are
+ * neighbours[neighbourOffsets[i]] ... neighbours[neighbourOffsets[i+1]-1] (in the order of the world properties).
+ * Objects are found by their worldobjectid without hashing the JsonObjects.
+ * Small changes (see patch()) are kept next to the shared adjacency arrays instead of building them again
+ */
+public class ConeIntersectionGraph {
+    private static final ConeIntersectionGraph EMPTY_GRAPH = new ConeIntersectionGraph(new JsonObject[0], new int[1], new int[0]);
+    private static final int[] NO_NEIGHBOURS = new int[0];
+
+    private final JsonObject[] worldObjects;
+    private final int[] neighbourOffsets;
+    private final int[] neighbours;
+    //worldobjectid -> index of the object
+    private final Map<String, Integer> indexMap;
+    //changes since the adjacency arrays have been built: objects by index (null if removed), their intersecting objects
+    //and the indices of added (-1: removed) objects
+    private final Map<Integer, JsonObject> patchedObjects;
+    private final Map<Integer, int[]> patchedNeighbours;
+    private final Map<String, Integer> patchedIndexMap;
+    private final int objectCount;
+    //JsonObject-keyed view, only created if requested
+    private Map<JsonObject, List<JsonObject>> coneIntersectionMap;
+
+    /**
+     * @param worldObjects objects (with a position) in the order of the world properties
+     * @param neighbourOffsets start of the neighbours of each object in neighbours, followed by the total number of neighbours
+     * @param neighbours indices of the intersecting objects, ascending for each object
+     */
+    ConeIntersectionGraph(JsonObject[] worldObjects, int[] neighbourOffsets, int[] neighbours) {
+        this.worldObjects = worldObjects;
+        this.neighbourOffsets = neighbourOffsets;
+        this.neighbours = neighbours;
+        this.indexMap = new HashMap<>();
+        for(int i = 0; i < worldObjects.length; i++) {
+            JsonElement worldId = worldObjects[i].get("worldobjectid");
+            if(worldId != null && worldId.isJsonPrimitive()) {
+                indexMap.putIfAbsent(worldId.getAsString(), i);
+            }
+        }
+        this.patchedObjects = Collections.emptyMap();
+        this.patchedNeighbours = Collections.emptyMap();
+        this.patchedIndexMap = Collections.emptyMap();
+        this.objectCount = worldObjects.length;
+    }
+
+    private ConeIntersectionGraph(ConeIntersectionGraph graph, Map<Integer, JsonObject> patchedObjects, Map<Integer, int[]> patchedNeighbours,
+                                  Map<String, Integer> patchedIndexMap, int objectCount) {
+        this.worldObjects = graph.worldObjects;
+        this.neighbourOffsets = graph.neighbourOffsets;
+        this.neighbours = graph.neighbours;
+        this.indexMap = graph.indexMap;
+        this.patchedObjects = patchedObjects;
+        this.patchedNeighbours = patchedNeighbours;
+        this.patchedIndexMap = patchedIndexMap;
+        this.objectCount = objectCount;
+    }
+
+    public static ConeIntersectionGraph empty() {
+        return EMPTY_GRAPH;
+    }
+
+    /**
+     * @param worldObjects objects in the order of the world properties
+     * @param adjacency for each object the indices of the intersecting objects in ascending order
+     * @return graph with these intersections
+     */
+    static ConeIntersectionGraph fromAdjacency(List<JsonObject> worldObjects, int[][] adjacency) {
+        int[] neighbourOffsets = new int[worldObjects.size() + 1];
+        for(int i = 0; i < worldObjects.size(); i++) {
+            neighbourOffsets[i + 1] = neighbourOffsets[i] + adjacency[i].length;
+        }
+        int[] neighbours = new int[neighbourOffsets[worldObjects.size()]];
+        for(int i = 0; i < worldObjects.size(); i++) {
+            System.arraycopy(adjacency[i], 0, neighbours, neighbourOffsets[i], adjacency[i].length);
+        }
+        return new ConeIntersectionGraph(worldObjects.toArray(new JsonObject[0]), neighbourOffsets, neighbours);
+    }
+
+    /**
+     * compatibility with the former JsonObject-keyed cone intersection map
+     * @param coneIntersectionMap map containing for each object those objects whose cone intersect with the object's cone
+     * @return graph with these intersections
+     */
+    public static ConeIntersectionGraph fromMap(Map<JsonObject, List<JsonObject>> coneIntersectionMap) {
+        List<JsonObject> worldObjects = new ArrayList<>(coneIntersectionMap.keySet());
+        Map<JsonObject, Integer> objectIndexMap = new HashMap<>();
+        for(int i = 0; i < worldObjects.size(); i++) {
+            objectIndexMap.put(worldObjects.get(i), i);
+        }
+        int[][] adjacency = new int[worldObjects.size()][];
+        for(int i = 0; i < worldObjects.size(); i++) {
+            List<JsonObject> objectNeighbours = coneIntersectionMap.get(worldObjects.get(i));
+            adjacency[i] = new int[objectNeighbours.size()];
+            for(int k = 0; k < objectNeighbours.size(); k++) {
+                Integer neighbourIndex = objectIndexMap.get(objectNeighbours.get(k));
+                if(neighbourIndex == null) {
+                    throw new IllegalArgumentException("Intersecting object is not part of the cone intersection map: " + objectNeighbours.get(k));
+                }
+                adjacency[i][k] = neighbourIndex;
+            }
+        }
+        ConeIntersectionGraph graph = fromAdjacency(worldObjects, adjacency);
+        graph.coneIntersectionMap = Collections.unmodifiableMap(coneIntersectionMap);
+        return graph;
+    }
+
+    /**
+     * Applies the changes of some objects without copying the adjacency arrays, this graph stays unchanged.
+     * Added objects get the next free indices, removed objects keep their index without object and neighbours
+     * @param objects added or replaced objects by index, null for removed objects
+     * @param objectNeighbours new indices (ascending) of the intersecting objects of the objects whose intersections changed
+     * @param indices worldobjectid -> index of the added objects, -1 for removed objects
+     * @param newObjectCount number of indices after the change
+     * @return graph with the changes
+     */
+    ConeIntersectionGraph patch(Map<Integer, JsonObject> objects, Map<Integer, int[]> objectNeighbours, Map<String, Integer> indices, int newObjectCount) {
+        Map<Integer, JsonObject> newPatchedObjects = new HashMap<>(patchedObjects);
+        newPatchedObjects.putAll(objects);
+        Map<Integer, int[]> newPatchedNeighbours = new HashMap<>(patchedNeighbours);
+        newPatchedNeighbours.putAll(objectNeighbours);
+        Map<String, Integer> newPatchedIndexMap = new HashMap<>(patchedIndexMap);
+        newPatchedIndexMap.putAll(indices);
+        return new ConeIntersectionGraph(this, newPatchedObjects, newPatchedNeighbours, newPatchedIndexMap, newObjectCount);
+    }
+
+    /**
+     * @return number of objects and neighbour lists which have been changed by patch() since the adjacency arrays have been built
+     */
+    int getPatchCount() {
+        return patchedObjects.size() + patchedNeighbours.size();
+    }
+
+    /**
+     * @return number of object indices (objects without position are not part of the graph,
+     * removed objects keep their index until the graph is built again)
+     */
+    public int getObjectCount() {
+        return objectCount;
+    }
+
+    /**
+     * @param worldId worldobjectid
+     * @return index of the object, -1 if it is not part of the graph
+     */
+    public int getIndex(String worldId) {
+        Integer index = patchedIndexMap.isEmpty() ? null : patchedIndexMap.get(worldId);
+        if(index == null) {
+            index = indexMap.get(worldId);
+        }
+        return index != null ? index : -1;
+    }
+
+    /**
+     * @param index index of the object
+     * @return the object, null if it has been removed
+     */
+    public JsonObject getWorldObject(int index) {
+        if(!patchedObjects.isEmpty() && patchedObjects.containsKey(index)) {
+            return patchedObjects.get(index);
+        }
+        return worldObjects[index];
+    }
+
+    /**
+     * @param index index of the object
+     * @return number of objects whose cones intersect with the object's cone
+     */
+    public int getNeighbourCount(int index) {
+        int[] objectNeighbours = getPatchedNeighbours(index);
+        if(objectNeighbours != null) {
+            return objectNeighbours.length;
+        }
+        return neighbourOffsets[index + 1] - neighbourOffsets[index];
+    }
+
+    /**
+     * @param index index of the object
+     * @param position 0 <= position < getNeighbourCount(index)
+     * @return index of the position-th object whose cone intersects with the object's cone
+     */
+    public int getNeighbour(int index, int position) {
+        int[] objectNeighbours = getPatchedNeighbours(index);
+        if(objectNeighbours != null) {
+            return objectNeighbours[position];
+        }
+        return neighbours[neighbourOffsets[index] + position];
+    }
+
+    private int[] getPatchedNeighbours(int index) {
+        if(patchedNeighbours.isEmpty()) {
+            return null;
+        }
+        int[] objectNeighbours = patchedNeighbours.get(index);
+        //added objects without intersections
+        return objectNeighbours == null && index >= worldObjects.length ? NO_NEIGHBOURS : objectNeighbours;
+    }
+
+    /**
+     * @param worldId worldobjectid
+     * @return unmodifiable view of the objects whose cones intersect with the object's cone (in the order of the world properties),
+     * empty if the object is not part of the graph
+     */
+    public List<JsonObject> getNeighbourObjects(String worldId) {
+        int index = getIndex(worldId);
+        if(index < 0) {
+            return Collections.emptyList();
+        }
+        return new AbstractList<JsonObject>() {
+            @Override
+            public JsonObject get(int position) {
+                if(position < 0 || position >= size()) {
+                    throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + size());
+                }
+                return getWorldObject(getNeighbour(index, position));
+            }
+
+            @Override
+            public int size() {
+                return getNeighbourCount(index);
+            }
+        };
+    }
+
+    /**
+     * compatibility view for code which works with the JsonObject-keyed map
+     * @return unmodifiable map containing for each object those objects whose cone intersect with the object's cone
+     */
+    public synchronized Map<JsonObject, List<JsonObject>> asMap() {
+        if(coneIntersectionMap == null) {
+            coneIntersectionMap = Collections.unmodifiableMap(toMap());
+        }
+        return coneIntersectionMap;
+    }
+
+    /**
+     * @return new JsonObject-keyed map of the cone intersections
+     */
+    Map<JsonObject, List<JsonObject>> toMap() {
+        Map<JsonObject, List<JsonObject>> map = new HashMap<>();
+        for(int i = 0; i < objectCount; i++) {
+            JsonObject worldObject = getWorldObject(i);
+            if(worldObject == null) {
+                continue;
+            }
+            ArrayList<JsonObject> coneIntersectionList = new ArrayList<>();
+            for(int k = 0; k < getNeighbourCount(i); k++) {
+                coneIntersectionList.add(getWorldObject(getNeighbour(i, k)));
+            }
+            map.put(worldObject, coneIntersectionList);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,532 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.dfki.mmf.input.worldmodel;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import de.dfki.mmf.math.Position;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the cone intersections of the world objects (see WorldObjectConeIntersectionCalculator) up to date:
+ * when an object is added, moved or removed only the neighbourhood of this object is recomputed,
+ * when the robot moves all cones are projected again into the existing grid.
+ * The objects are identified by their worldobjectid, the current cone intersection graph is published to the WorldModel after each change:
+ * only the changed objects and neighbour lists are patched into the graph, its adjacency arrays are built again
+ * when the patches become too many or the order of all objects changed.
+ * Single objects are changed through WorldModel.updateWorldObject() and WorldModel.removeWorldObject()
+ */
+public class ConeIntersectionTracker {
+    private static volatile ConeIntersectionTracker trackerInstance = new ConeIntersectionTracker();
+    //patches of the graph before its adjacency arrays are built again (plus 1/16 of the objects)
+    private static final int MAX_GRAPH_PATCHES = 64;
+
+    private final WorldObjectConeIntersectionCalculator coneIntersectionCalculator = new WorldObjectConeIntersectionCalculator();
+    private final Map<String, TrackedObject> trackedObjects = new HashMap<>();
+    private ConeIntersectionGraph coneIntersectionGraph = ConeIntersectionGraph.empty();
+    //objects whose intersecting objects have to be listed again
+    private final Set<TrackedObject> changedObjects = new HashSet<>();
+    //objects which have to be removed from the graph
+    private final List<TrackedObject> removedObjects = new ArrayList<>();
+    private ConeGrid<TrackedObject> grid;
+    //upper bound of the angles of all cones (only decreases when all cones are projected again)
+    private double maxAngle;
+    private Position robotPosition;
+    private int nextSequence;
+    //highest sequence of the objects in the cone intersection graph
+    private int lastGraphSequence = -1;
+    private boolean initialized = false;
+
+    private ConeIntersectionTracker() {
+    }
+
+    public static ConeIntersectionTracker getInstance() {
+        return trackerInstance;
+    }
+
+    /**
+     * Tracked world object with its current cone and the objects whose cones intersect with it
+     */
+    private static class TrackedObject {
+        private JsonObject worldObject;
+        //index in the published cone intersection graph, -1 if the object is not part of it
+        private int index = -1;
+        //position in the world properties, the intersecting objects are listed in this order
+        private int sequence;
+        //null if the object has no position
+        private ObjectCone cone;
+        private final Set<TrackedObject> neighbours = new HashSet<>();
+
+        private TrackedObject(JsonObject worldObject, int sequence) {
+            this.worldObject = worldObject;
+            this.sequence = sequence;
+        }
+
+        private boolean isInGrid() {
+            return cone != null && cone.hasDirection();
+        }
+    }
+
+    /**
+     * Brings the cone intersections up to date with the given world, only the changed objects are recomputed
+     * (or all cones are projected again if the robot moved)
+     * @param worldProperties
+     * @param robotPos
+     */
+    public synchronized void update(List<JsonObject> worldProperties, Position robotPos) {
+        if(robotPos == null) {
+            reset();
+            WorldModel.setConeIntersectionGraph(coneIntersectionGraph);
+            return;
+        }
+        Map<String, Integer> sequenceMap = new HashMap<>();
+        for(int i = 0; i < worldProperties.size(); i++) {
+            String worldId = getWorldId(worldProperties.get(i));
+            if(worldId == null || sequenceMap.put(worldId, i) != null) {
+                //objects cannot be tracked without unique ids -> calculate the cone intersections from scratch
+                reset();
+                coneIntersectionGraph = coneIntersectionCalculator.calculateConeIntersectionGraph(worldProperties);
+                WorldModel.setConeIntersectionGraph(coneIntersectionGraph);
+                return;
+            }
+        }
+        if(!initialized) {
+            rebuild(worldProperties, robotPos);
+            publishGraph();
+            return;
+        }
+        //remove the objects which are not part of the world any more
+        for(TrackedObject trackedObject: new ArrayList<>(trackedObjects.values())) {
+            if(!sequenceMap.containsKey(getWorldId(trackedObject.worldObject))) {
+                removeTrackedObject(trackedObject);
+            }
+        }
+        //take over the new order of the objects, the graph has to be built again if the order of the remaining objects changed
+        //or new objects are not appended (the indices of the graph are in the order of the world properties)
+        boolean orderChanged = false;
+        boolean newObjectFound = false;
+        int lastSequence = -1;
+        lastGraphSequence = -1;
+        for(JsonObject worldObject: worldProperties) {
+            TrackedObject trackedObject = trackedObjects.get(getWorldId(worldObject));
+            if(trackedObject != null) {
+                orderChanged |= trackedObject.sequence < lastSequence || newObjectFound;
+                lastSequence = trackedObject.sequence;
+                trackedObject.sequence = sequenceMap.get(getWorldId(worldObject));
+                if(trackedObject.index >= 0) {
+                    lastGraphSequence = trackedObject.sequence;
+                }
+            } else {
+                newObjectFound = true;
+            }
+        }
+        nextSequence = worldProperties.size();
+        boolean robotMoved = !samePosition(robotPosition, robotPos);
+        robotPosition = robotPos;
+        for(int i = 0; i < worldProperties.size(); i++) {
+            JsonObject worldObject = worldProperties.get(i);
+            TrackedObject trackedObject = trackedObjects.get(getWorldId(worldObject));
+            if(trackedObject == null) {
+                trackedObject = new TrackedObject(worldObject, i);
+                trackedObjects.put(getWorldId(worldObject), trackedObject);
+                if(!robotMoved) {
+                    moveTrackedObject(trackedObject, createCone(worldObject));
+                }
+            } else if(!robotMoved) {
+                updateTrackedObject(trackedObject, worldObject);
+            } else {
+                replaceWorldObject(trackedObject, worldObject);
+            }
+        }
+        if(robotMoved) {
+            reproject();
+        }
+        if(robotMoved || orderChanged) {
+            publishGraph();
+        } else {
+            publishChanges();
+        }
+    }
+
+    /**
+     * @param worldObject new object of the world (appended to the world properties)
+     */
+    synchronized void onObjectAdded(JsonObject worldObject) {
+        checkInitialized();
+        String worldId = getWorldId(worldObject);
+        if(worldId == null) {
+            throw new IllegalArgumentException("World object without worldobjectid cannot be tracked: " + worldObject);
+        }
+        if(trackedObjects.containsKey(worldId)) {
+            //already known -> treat as update
+            updateTrackedObject(trackedObjects.get(worldId), worldObject);
+        } else {
+            TrackedObject trackedObject = new TrackedObject(worldObject, nextSequence++);
+            trackedObjects.put(worldId, trackedObject);
+            moveTrackedObject(trackedObject, createCone(worldObject));
+        }
+        publishChanges();
+    }
+
+    /**
+     * @param worldObject object of the world with its new position
+     */
+    synchronized void onObjectMoved(JsonObject worldObject) {
+        checkInitialized();
+        TrackedObject trackedObject = trackedObjects.get(getWorldId(worldObject));
+        if(trackedObject == null) {
+            onObjectAdded(worldObject);
+            return;
+        }
+        updateTrackedObject(trackedObject, worldObject);
+        publishChanges();
+    }
+
+    /**
+     * @param worldObject object which is no longer part of the world
+     */
+    synchronized void onObjectRemoved(JsonObject worldObject) {
+        checkInitialized();
+        TrackedObject trackedObject = trackedObjects.get(getWorldId(worldObject));
+        if(trackedObject == null) {
+            throw new IllegalArgumentException("Cone intersection tracker does not know the removed object " + getWorldId(worldObject));
+        }
+        removeTrackedObject(trackedObject);
+        publishChanges();
+    }
+
+    /**
+     * Projects all cones again, the grid keeps its cell size
+     * @param robotPos new position of the robot
+     */
+    synchronized void onRobotMoved(Position robotPos) {
+        checkInitialized();
+        if(robotPos == null) {
+            throw new IllegalArgumentException("Robot position must not be null");
+        }
+        if(!samePosition(robotPosition, robotPos)) {
+            robotPosition = robotPos;
+            reproject();
+            publishGraph();
+        }
+    }
+
+    /**
+     * @return the current cone intersection graph
+     */
+    public synchronized ConeIntersectionGraph getConeIntersectionGraph() {
+        return coneIntersectionGraph;
+    }
+
+    /**
+     * @return true if update() has been called since the last reset()
+     */
+    synchronized boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * forgets all tracked objects, the next update() calculates all cone intersections again
+     */
+    public synchronized void reset() {
+        trackedObjects.clear();
+        coneIntersectionGraph = ConeIntersectionGraph.empty();
+        changedObjects.clear();
+        removedObjects.clear();
+        grid = null;
+        maxAngle = 0;
+        robotPosition = null;
+        nextSequence = 0;
+        lastGraphSequence = -1;
+        initialized = false;
+    }
+
+    private void checkInitialized() {
+        if(!initialized) {
+            throw new IllegalStateException("Cone intersection tracker has no world yet, call update() first");
+        }
+    }
+
+    private void rebuild(List<JsonObject> worldProperties, Position robotPos) {
+        reset();
+        robotPosition = robotPos;
+        List<Double> angles = new ArrayList<>();
+        for(int i = 0; i < worldProperties.size(); i++) {
+            TrackedObject trackedObject = new TrackedObject(worldProperties.get(i), i);
+            trackedObject.cone = createCone(trackedObject.worldObject);
+            if(trackedObject.isInGrid()) {
+                angles.add(trackedObject.cone.getAngle());
+            }
+            trackedObjects.put(getWorldId(trackedObject.worldObject), trackedObject);
+        }
+        double[] angleArray = new double[angles.size()];
+        for(int i = 0; i < angleArray.length; i++) {
+            angleArray[i] = angles.get(i);
+        }
+        grid = new ConeGrid<>(ConeGrid.calculateCellSize(angleArray));
+        nextSequence = worldProperties.size();
+        initialized = true;
+        linkAll();
+    }
+
+    /**
+     * projects all cones from the current robot position into the grid (keeping its cell size) and finds their intersections again
+     */
+    private void reproject() {
+        grid.clear();
+        for(TrackedObject trackedObject: trackedObjects.values()) {
+            trackedObject.neighbours.clear();
+            trackedObject.cone = createCone(trackedObject.worldObject);
+        }
+        linkAll();
+    }
+
+    private void linkAll() {
+        maxAngle = 0;
+        for(TrackedObject trackedObject: trackedObjects.values()) {
+            if(trackedObject.isInGrid()) {
+                ObjectCone cone = trackedObject.cone;
+                grid.add(trackedObject, cone.getX(), cone.getY(), cone.getZ());
+                maxAngle = Math.max(maxAngle, cone.getAngle());
+            }
+        }
+        for(TrackedObject trackedObject: trackedObjects.values()) {
+            if(!trackedObject.isInGrid()) {
+                continue;
+            }
+            ObjectCone cone = trackedObject.cone;
+            //each pair is checked by the cone with the bigger angle (see WorldObjectConeIntersectionCalculator.findConeIntersections())
+            grid.query(cone.getX(), cone.getY(), cone.getZ(), 2 * cone.getAngle(), candidate -> {
+                ObjectCone otherCone = candidate.cone;
+                if(otherCone.getAngle() > cone.getAngle() || (otherCone.getAngle() == cone.getAngle() && candidate.sequence <= trackedObject.sequence)) {
+                    return;
+                }
+                if(cone.intersects(otherCone)) {
+                    trackedObject.neighbours.add(candidate);
+                    candidate.neighbours.add(trackedObject);
+                }
+            });
+        }
+        changedObjects.addAll(trackedObjects.values());
+    }
+
+    /**
+     * takes over the new instance of the world object and recomputes its neighbourhood if its cone changed
+     * @param trackedObject
+     * @param worldObject
+     */
+    private void updateTrackedObject(TrackedObject trackedObject, JsonObject worldObject) {
+        replaceWorldObject(trackedObject, worldObject);
+        ObjectCone cone = createCone(worldObject);
+        if(cone == null || trackedObject.cone == null || !cone.hasSameGeometry(trackedObject.cone)) {
+            moveTrackedObject(trackedObject, cone);
+        }
+    }
+
+    private void replaceWorldObject(TrackedObject trackedObject, JsonObject worldObject) {
+        if(trackedObject.worldObject != worldObject) {
+            trackedObject.worldObject = worldObject;
+            changedObjects.add(trackedObject);
+        }
+    }
+
+    /**
+     * places the object with its new cone into the grid and finds the cones intersecting with it
+     * @param trackedObject
+     * @param cone
+     */
+    private void moveTrackedObject(TrackedObject trackedObject, ObjectCone cone) {
+        unlink(trackedObject);
+        trackedObject.cone = cone;
+        changedObjects.add(trackedObject);
+        if(!trackedObject.isInGrid()) {
+            return;
+        }
+        maxAngle = Math.max(maxAngle, cone.getAngle());
+        //intersecting cones are at most the sum of both angles away
+        grid.query(cone.getX(), cone.getY(), cone.getZ(), cone.getAngle() + maxAngle, candidate -> {
+            if(cone.intersects(candidate.cone)) {
+                trackedObject.neighbours.add(candidate);
+                candidate.neighbours.add(trackedObject);
+                changedObjects.add(candidate);
+            }
+        });
+        grid.add(trackedObject, cone.getX(), cone.getY(), cone.getZ());
+    }
+
+    private void removeTrackedObject(TrackedObject trackedObject) {
+        unlink(trackedObject);
+        trackedObjects.remove(getWorldId(trackedObject.worldObject));
+        changedObjects.remove(trackedObject);
+        if(trackedObject.index >= 0) {
+            removedObjects.add(trackedObject);
+        }
+    }
+
+    private void unlink(TrackedObject trackedObject) {
+        for(TrackedObject neighbour: trackedObject.neighbours) {
+            neighbour.neighbours.remove(trackedObject);
+            changedObjects.add(neighbour);
+        }
+        trackedObject.neighbours.clear();
+        if(trackedObject.isInGrid()) {
+            ObjectCone cone = trackedObject.cone;
+            grid.remove(trackedObject, cone.getX(), cone.getY(), cone.getZ());
+        }
+    }
+
+    /**
+     * patches the changed objects and their intersecting objects into the cone intersection graph and publishes it to the WorldModel
+     * (the adjacency arrays are built again if there are too many patches)
+     */
+    private void publishChanges() {
+        if(coneIntersectionGraph.getPatchCount() > MAX_GRAPH_PATCHES + coneIntersectionGraph.getObjectCount() / 16) {
+            publishGraph();
+            return;
+        }
+        Map<Integer, JsonObject> objects = new HashMap<>();
+        Map<Integer, int[]> objectNeighbours = new HashMap<>();
+        Map<String, Integer> indices = new HashMap<>();
+        int objectCount = coneIntersectionGraph.getObjectCount();
+        for(TrackedObject trackedObject: removedObjects) {
+            removeFromGraph(trackedObject, objects, objectNeighbours, indices);
+        }
+        removedObjects.clear();
+        //objects which lost their position leave the graph, new objects with a position get the next indices (they are appended to the world properties)
+        List<TrackedObject> addedObjects = new ArrayList<>();
+        for(TrackedObject trackedObject: changedObjects) {
+            if(trackedObject.cone == null && trackedObject.index >= 0) {
+                removeFromGraph(trackedObject, objects, objectNeighbours, indices);
+            } else if(trackedObject.cone != null && trackedObject.index < 0) {
+                addedObjects.add(trackedObject);
+            }
+        }
+        addedObjects.sort(Comparator.comparingInt(trackedObject -> trackedObject.sequence));
+        if(!addedObjects.isEmpty() && addedObjects.get(0).sequence < lastGraphSequence) {
+            //an object got a position again, the indices have to be assigned in the order of the world properties
+            publishGraph();
+            return;
+        }
+        for(TrackedObject trackedObject: addedObjects) {
+            trackedObject.index = objectCount++;
+            indices.put(getWorldId(trackedObject.worldObject), trackedObject.index);
+            lastGraphSequence = trackedObject.sequence;
+        }
+        for(TrackedObject trackedObject: changedObjects) {
+            if(trackedObject.index < 0) {
+                continue;
+            }
+            if(coneIntersectionGraph.getObjectCount() <= trackedObject.index
+                    || coneIntersectionGraph.getWorldObject(trackedObject.index) != trackedObject.worldObject) {
+                objects.put(trackedObject.index, trackedObject.worldObject);
+            }
+            int[] neighbourIndices = new int[trackedObject.neighbours.size()];
+            int position = 0;
+            for(TrackedObject neighbour: trackedObject.neighbours) {
+                neighbourIndices[position++] = neighbour.index;
+            }
+            Arrays.sort(neighbourIndices);
+            objectNeighbours.put(trackedObject.index, neighbourIndices);
+        }
+        changedObjects.clear();
+        coneIntersectionGraph = coneIntersectionGraph.patch(objects, objectNeighbours, indices, objectCount);
+        WorldModel.setConeIntersectionGraph(coneIntersectionGraph);
+    }
+
+    private static void removeFromGraph(TrackedObject trackedObject, Map<Integer, JsonObject> objects, Map<Integer, int[]> objectNeighbours,
+                                        Map<String, Integer> indices) {
+        objects.put(trackedObject.index, null);
+        objectNeighbours.put(trackedObject.index, new int[0]);
+        indices.put(getWorldId(trackedObject.worldObject), -1);
+        trackedObject.index = -1;
+    }
+
+    /**
+     * builds the adjacency arrays of the cone intersection graph from all tracked objects and publishes it to the WorldModel
+     */
+    private void publishGraph() {
+        changedObjects.clear();
+        removedObjects.clear();
+        lastGraphSequence = -1;
+        Comparator<TrackedObject> sequenceOrder = Comparator.comparingInt(trackedObject -> trackedObject.sequence);
+        //objects without position are not part of the graph
+        List<TrackedObject> graphObjects = new ArrayList<>();
+        for(TrackedObject trackedObject: trackedObjects.values()) {
+            trackedObject.index = -1;
+            if(trackedObject.cone != null) {
+                graphObjects.add(trackedObject);
+            }
+        }
+        graphObjects.sort(sequenceOrder);
+        List<JsonObject> worldObjects = new ArrayList<>();
+        int[] neighbourOffsets = new int[graphObjects.size() + 1];
+        for(int i = 0; i < graphObjects.size(); i++) {
+            TrackedObject trackedObject = graphObjects.get(i);
+            trackedObject.index = i;
+            lastGraphSequence = trackedObject.sequence;
+            worldObjects.add(trackedObject.worldObject);
+            neighbourOffsets[i + 1] = neighbourOffsets[i] + trackedObject.neighbours.size();
+        }
+        int[] neighbours = new int[neighbourOffsets[graphObjects.size()]];
+        for(int i = 0; i < graphObjects.size(); i++) {
+            int position = neighbourOffsets[i];
+            for(TrackedObject neighbour: graphObjects.get(i).neighbours) {
+                neighbours[position++] = neighbour.index;
+            }
+            //the graph indices are in the order of the world properties
+            Arrays.sort(neighbours, neighbourOffsets[i], position);
+        }
+        coneIntersectionGraph = new ConeIntersectionGraph(worldObjects.toArray(new JsonObject[0]), neighbourOffsets, neighbours);
+        WorldModel.setConeIntersectionGraph(coneIntersectionGraph);
+    }
+
+    private ObjectCone createCone(JsonObject worldObject) {
+        Position worldObjectPosition = coneIntersectionCalculator.getWorldObjectPosition(worldObject);
+        if(worldObjectPosition == null) {
+            return null;
+        }
+        return new ObjectCone(worldObject, worldObjectPosition, robotPosition,
+                coneIntersectionCalculator.getProximityRadius(worldObject, worldObjectPosition, robotPosition));
+    }
+
+    private static String getWorldId(JsonObject worldObject) {
+        JsonElement worldId = worldObject.get("worldobjectid");
+        return worldId != null && worldId.isJsonPrimitive() ? worldId.getAsString() : null;
+    }
+
+    private static boolean samePosition(Position position, Position otherPosition) {
+        return position != null && position.getX() == otherPosition.getX() && position.getY() == otherPosition.getY()
+                && position.getZ() == otherPosition.getZ();
+    }
+}
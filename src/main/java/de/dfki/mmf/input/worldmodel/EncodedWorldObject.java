@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.dfki.mmf.input.worldmodel;
+
+import com.google.gson.JsonObject;
+
+import java.util.Arrays;
+
+/**
+ * Int-coded view of a world object: the codes of its property names and attribute values in the AttributeDictionary
+ */
+public class EncodedWorldObject {
+    private final JsonObject worldObject;
+    //property name codes in ascending order and the codes of the corresponding values
+    private final int[] nameCodes;
+    private final int[] valueCodes;
+    private final int typeCode;
+
+    /**
+     *
+     * @param worldObject
+     * @param count number of the encoded properties (the first ones of the arrays)
+     * @param nameCodes
+     * @param valueCodes
+     * @param typeCode
+     */
+    EncodedWorldObject(JsonObject worldObject, int count, int[] nameCodes, int[] valueCodes, int typeCode) {
+        this.worldObject = worldObject;
+        this.typeCode = typeCode;
+        //sort the names (together with their values) to find them by binary search
+        long[] entries = new long[count];
+        for(int i = 0; i < entries.length; i++) {
+            entries[i] = ((long) nameCodes[i] << 32) | (valueCodes[i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(entries);
+        this.nameCodes = new int[count];
+        this.valueCodes = new int[count];
+        for(int i = 0; i < entries.length; i++) {
+            this.nameCodes[i] = (int) (entries[i] >>> 32);
+            this.valueCodes[i] = (int) entries[i];
+        }
+    }
+
+    private EncodedWorldObject(JsonObject worldObject, EncodedWorldObject encodedWorldObject) {
+        this.worldObject = worldObject;
+        this.nameCodes = encodedWorldObject.nameCodes;
+        this.valueCodes = encodedWorldObject.valueCodes;
+        this.typeCode = encodedWorldObject.typeCode;
+    }
+
+    /**
+     * @param worldObject new instance of the world object with the same content
+     * @return view of the new instance sharing the codes of this one
+     */
+    EncodedWorldObject withWorldObject(JsonObject worldObject) {
+        return new EncodedWorldObject(worldObject, this);
+    }
+
+    public JsonObject getWorldObject() {
+        return worldObject;
+    }
+
+    /**
+     * @return number of the encoded properties
+     */
+    public int getPropertyCount() {
+        return nameCodes.length;
+    }
+
+    /**
+     *
+     * @param nameCode code of the property name
+     * @return code of the property's value, -1 if the object does not have the property or its value is not an attribute value
+     */
+    public int getValueCode(int nameCode) {
+        int i = Arrays.binarySearch(nameCodes, nameCode);
+        return i < 0 ? -1 : valueCodes[i];
+    }
+
+    /**
+     * @return code of the worldobjecttype (see AttributeDictionary.encodeType()), -1 if it has none
+     */
+    public int getTypeCode() {
+        return typeCode;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.dfki.mmf.input.worldmodel;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import de.dfki.mmf.math.Position;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cone intersections of the lazy mode of the WorldModel: loading the world only projects the objects into a ConeIndex (linear in the number of objects),
+ * the intersecting objects of an object are calculated when they are queried first and then kept until the world changes
+ */
+class LazyConeIntersections {
+    private final ConeIndex coneIndex;
+    //worldobjectid -> index of the object in the cone index
+    private final Map<String, Integer> indexMap = new HashMap<>();
+    //intersecting objects of each object, null until queried
+    private final AtomicReferenceArray<List<JsonObject>> neighbourLists;
+    //graph of all objects, only created if requested
+    private ConeIntersectionGraph coneIntersectionGraph;
+
+    /**
+     * @param worldProperties
+     * @param robotPosition null: no object has a cone
+     */
+    LazyConeIntersections(List<JsonObject> worldProperties, Position robotPosition) {
+        List<ObjectCone> cones = robotPosition != null
+                ? new WorldObjectConeIntersectionCalculator().createCones(worldProperties, robotPosition) : new ArrayList<>();
+        coneIndex = new ConeIndex(cones);
+        neighbourLists = new AtomicReferenceArray<>(cones.size());
+        for(int i = 0; i < cones.size(); i++) {
+            JsonElement worldId = cones.get(i).getWorldObject().get("worldobjectid");
+            if(worldId != null && worldId.isJsonPrimitive()) {
+                indexMap.putIfAbsent(worldId.getAsString(), i);
+            }
+        }
+    }
+
+    /**
+     * @param worldId worldobjectid
+     * @return unmodifiable list of the objects whose cones intersect with the object's cone (in the order of the world properties),
+     * empty if the object has no position
+     */
+    List<JsonObject> getConeNeighbours(String worldId) {
+        Integer index = indexMap.get(worldId);
+        if(index == null) {
+            return Collections.emptyList();
+        }
+        List<JsonObject> neighbourList = neighbourLists.get(index);
+        if(neighbourList == null) {
+            List<JsonObject> neighbours = new ArrayList<>();
+            for(int neighbour: coneIndex.findIntersections(index)) {
+                neighbours.add(coneIndex.getWorldObject(neighbour));
+            }
+            neighbourList = Collections.unmodifiableList(neighbours);
+            //another thread may have calculated the same list in the meantime
+            if(!neighbourLists.compareAndSet(index, null, neighbourList)) {
+                neighbourList = neighbourLists.get(index);
+            }
+        }
+        return neighbourList;
+    }
+
+    /**
+     * @return graph of the cone intersections of all objects (calculated on the first call)
+     */
+    synchronized ConeIntersectionGraph getConeIntersectionGraph() {
+        if(coneIntersectionGraph == null) {
+            List<JsonObject> worldObjects = new ArrayList<>();
+            int[][] coneIntersections = new int[coneIndex.size()][];
+            for(int i = 0; i < coneIndex.size(); i++) {
+                worldObjects.add(coneIndex.getWorldObject(i));
+                coneIntersections[i] = coneIndex.findIntersections(i);
+            }
+            coneIntersectionGraph = ConeIntersectionGraph.fromAdjacency(worldObjects, coneIntersections);
+        }
+        return coneIntersectionGraph;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.dfki.mmf.input.worldmodel;
+
+import com.google.gson.JsonObject;
+import de.dfki.mmf.math.DirectionVector;
+import de.dfki.mmf.math.Position;
+
+/**
+ * Cone from the robot to a world object, given by its direction (unit vector) and its angle
+ */
+class ObjectCone {
+    //scalar products further away from the cosine of the summed angles decide the intersection without acos
+    static final double ACOS_MARGIN = 1e-9;
+
+    private final JsonObject worldObject;
+    private final DirectionVector unitNormalVector;
+    //angle between the cone wall and the normal vector
+    private final double angle;
+    private final double cosAngle;
+    private final double sinAngle;
+
+    ObjectCone(JsonObject worldObject, Position position, Position robotOrigin, double radius) {
+        this.worldObject = worldObject;
+        DirectionVector normalVector = new DirectionVector(position.getX()-robotOrigin.getX(), position.getY()-robotOrigin.getY(), position.getZ()-robotOrigin.getZ());
+        unitNormalVector = normalVector.getUnitVector();
+        angle = Math.atan(radius/normalVector.getVectorLength());
+        cosAngle = Math.cos(angle);
+        sinAngle = Math.sin(angle);
+    }
+
+    JsonObject getWorldObject() {
+        return worldObject;
+    }
+
+    double getAngle() {
+        return angle;
+    }
+
+    double getX() {
+        return unitNormalVector.getxDirection();
+    }
+
+    double getY() {
+        return unitNormalVector.getyDirection();
+    }
+
+    double getZ() {
+        return unitNormalVector.getzDirection();
+    }
+
+    double getCosAngle() {
+        return cosAngle;
+    }
+
+    double getSinAngle() {
+        return sinAngle;
+    }
+
+    /**
+     * @return false if the object is at the position of the robot (it then intersects with no other cone)
+     */
+    boolean hasDirection() {
+        return !Double.isNaN(getX()) && !Double.isNaN(getY()) && !Double.isNaN(getZ()) && !Double.isNaN(angle);
+    }
+
+    /**
+     * @param otherCone
+     * @return true if the cone has the same direction and angle as the other cone
+     */
+    boolean hasSameGeometry(ObjectCone otherCone) {
+        return getX() == otherCone.getX() && getY() == otherCone.getY() && getZ() == otherCone.getZ() && angle == otherCone.angle;
+    }
+
+    /**
+     * same check as in WorldObjectConeIntersectionCalculator.HasConeIntersection()
+     * @param otherCone
+     * @return true if the cones intersect with each other
+     */
+    boolean intersects(ObjectCone otherCone) {
+        double scalarProduct = unitNormalVector.calculateScalarProduct(otherCone.unitNormalVector);
+        return intersects(scalarProduct, angle, cosAngle, sinAngle, otherCone.angle, otherCone.cosAngle, otherCone.sinAngle);
+    }
+
+    /**
+     * same result as scalarProduct > 0 && angle+otherAngle >= acos(scalarProduct), acos is only calculated
+     * if the scalar product is very close to the cosine of the summed angles
+     */
+    static boolean intersects(double scalarProduct, double angle, double cosAngle, double sinAngle, double otherAngle, double otherCosAngle, double otherSinAngle) {
+        //acos is NaN for scalar products rounded above 1 (same direction), the comparison is then false
+        if(scalarProduct <= 0 || scalarProduct > 1) {
+            return false;
+        }
+        //both angles are below 90 degrees, so the angle between the cones is at most their sum if the scalar product is at least the cosine of the sum
+        double cosAngleSum = cosAngle*otherCosAngle - sinAngle*otherSinAngle;
+        if(scalarProduct < cosAngleSum - ACOS_MARGIN) {
+            return false;
+        }
+        if(scalarProduct > cosAngleSum + ACOS_MARGIN) {
+            return true;
+        }
+        return angle+otherAngle >= Math.acos(scalarProduct);
+    }
+}
@@ -24,12 +24,16 @@
 
 package de.dfki.mmf.input.worldmodel;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import de.dfki.mmf.math.Position;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by Magdalena Kaiser on 23.08.2016.
@@ -37,7 +41,7 @@ import java.util.Map;
 /**
  * Defines a model for the interaction environment (= the world).
  * Contains the submodels for users and the robot and the visibiltyAnnotations for the different object properties
- * Contains a map containing for each objects those objects whose cone intersect with the object's cone
+ * Contains a graph containing for each objects those objects whose cone intersect with the object's cone
  */
 public class WorldModel {
 
@@ -45,7 +49,42 @@ public class WorldModel {
     private static RobotModel robotModel;
     private static List<JsonObject> worldProperties = new ArrayList<>();
     private static JsonObject saliencyAnnotation;
-    private static Map<JsonObject, List<JsonObject>> coneIntersectionMap = new HashMap<>();
+    private static volatile ConeIntersectionGraph coneIntersectionGraph = ConeIntersectionGraph.empty();
+    //lazy mode: the cone intersections of an object are calculated when they are queried first (instead of the graph of all objects when the world is loaded)
+    private static boolean lazyConeIntersection = false;
+    private static volatile LazyConeIntersections lazyConeIntersections;
+    //versions of the saliency annotation and of the objects of each type, increased whenever their content changes
+    //(results computed from them, e.g. cached attributive identifiers, are outdated if the version differs)
+    private static final AtomicLong saliencyAnnotationVersion = new AtomicLong();
+    private static String saliencyAnnotationSnapshot;
+    private static final Map<String, Long> worldObjectTypeVersionMap = new ConcurrentHashMap<>();
+    //type and content hash of each world object (see getStateKey()) to find the changed objects
+    private static Map<String, WorldObjectState> worldObjectStateMap = new HashMap<>();
+    //dictionary of the attribute values of the world objects, only the changed objects are encoded again
+    private static volatile AttributeDictionary attributeDictionary = new AttributeDictionary();
+    //world objects by their worldobjectid
+    private static volatile Map<String, JsonObject> worldObjectIdMap = new ConcurrentHashMap<>();
+
+    /**
+     * State of a world object when the world model has been updated last
+     */
+    private static class WorldObjectState {
+        private final JsonObject worldObject;
+        private final String type;
+        private final long contentHash;
+        //the object is encoded by the attribute dictionary (its worldobjectid is unique)
+        private final boolean encoded;
+        //position in the world properties
+        private int index;
+
+        private WorldObjectState(JsonObject worldObject, String type, long contentHash, boolean encoded, int index) {
+            this.worldObject = worldObject;
+            this.type = type;
+            this.contentHash = contentHash;
+            this.encoded = encoded;
+            this.index = index;
+        }
+    }
 
     public static RobotModel getRobotModel() {
         return robotModel;
@@ -68,24 +107,345 @@ public class WorldModel {
         return worldProperties;
     }
 
+    /**
+     * sets the world properties, equal primitive values of different objects are then stored once
+     * @param worldProps
+     */
     public static void setWorldProperties(List<JsonObject> worldProps) {
         worldProperties = worldProps;
+        worldPropertiesChanged(true);
+    }
+
+    /**
+     * call this after world objects have been changed directly (e.g. their visibility), increases the versions of the changed types
+     */
+    public static void worldPropertiesChanged() {
+        worldPropertiesChanged(false);
+    }
+
+    private static synchronized void worldPropertiesChanged(boolean internValues) {
+        //a dictionary whose values are mostly outdated is replaced, all objects are encoded again
+        boolean newDictionary = attributeDictionary.isOutgrown();
+        AttributeDictionary dictionary = newDictionary ? new AttributeDictionary() : attributeDictionary;
+        Map<String, WorldObjectState> stateMap = new HashMap<>();
+        Map<String, JsonObject> idMap = new ConcurrentHashMap<>();
+        int unkeyedCount = 0;
+        for(int i = 0; i < worldProperties.size(); i++) {
+            JsonObject worldObject = worldProperties.get(i);
+            String worldId = getWorldId(worldObject);
+            boolean encoded = worldId != null && !idMap.containsKey(worldId);
+            if(encoded) {
+                idMap.put(worldId, worldObject);
+            }
+            //objects without (unique) worldobjectid are compared by their position in the world properties
+            String key = encoded ? worldId : "\u0000" + unkeyedCount++;
+            String type = getWorldObjectType(worldObject);
+            long contentHash = contentHash(worldObject);
+            WorldObjectState previousState = worldObjectStateMap.get(key);
+            if(previousState == null || previousState.contentHash != contentHash || !previousState.type.equals(type)) {
+                //added or changed object
+                worldObjectTypeVersionMap.merge(type, 1L, Long::sum);
+                if(previousState != null && !previousState.type.equals(type)) {
+                    worldObjectTypeVersionMap.merge(previousState.type, 1L, Long::sum);
+                }
+                if(encoded) {
+                    dictionary.putWorldObject(worldId, worldObject, internValues);
+                }
+            } else if(encoded) {
+                if(newDictionary || !previousState.encoded) {
+                    dictionary.putWorldObject(worldId, worldObject, internValues);
+                } else {
+                    dictionary.replaceWorldObject(worldId, worldObject);
+                }
+            }
+            stateMap.put(key, new WorldObjectState(worldObject, type, contentHash, encoded, i));
+        }
+        //removed objects
+        for(Map.Entry<String, WorldObjectState> entry: worldObjectStateMap.entrySet()) {
+            if(!stateMap.containsKey(entry.getKey())) {
+                worldObjectTypeVersionMap.merge(entry.getValue().type, 1L, Long::sum);
+            }
+            WorldObjectState state = stateMap.get(entry.getKey());
+            if(entry.getValue().encoded && (state == null || !state.encoded) && !newDictionary) {
+                dictionary.removeWorldObject(entry.getKey());
+            }
+        }
+        worldObjectStateMap = stateMap;
+        attributeDictionary = dictionary;
+        worldObjectIdMap = idMap;
+    }
+
+    /**
+     * Adds the world object (at the end of the world properties) or replaces the object with the same worldobjectid, e.g. after it has moved.
+     * Only this object is encoded again and only the cone intersections of its neighbourhood are recomputed
+     * @param worldObject object with a worldobjectid
+     */
+    public static synchronized void updateWorldObject(JsonObject worldObject) {
+        String worldId = getWorldId(worldObject);
+        if(worldId == null) {
+            throw new IllegalArgumentException("World object without worldobjectid cannot be updated: " + worldObject);
+        }
+        String type = getWorldObjectType(worldObject);
+        long contentHash = contentHash(worldObject);
+        WorldObjectState previousState = worldObjectStateMap.get(worldId);
+        if(previousState == null) {
+            //copy on write, the world properties may be iterated in the background (see AttributiveObjectIdentifierPrecomputation)
+            List<JsonObject> newWorldProperties = new ArrayList<>(worldProperties.size() + 1);
+            newWorldProperties.addAll(worldProperties);
+            newWorldProperties.add(worldObject);
+            worldObjectStateMap.put(worldId, new WorldObjectState(worldObject, type, contentHash, true, worldProperties.size()));
+            worldProperties = newWorldProperties;
+            worldObjectTypeVersionMap.merge(type, 1L, Long::sum);
+            attributeDictionary.putWorldObject(worldId, worldObject, false);
+        } else {
+            worldProperties.set(previousState.index, worldObject);
+            worldObjectStateMap.put(worldId, new WorldObjectState(worldObject, type, contentHash, true, previousState.index));
+            if(previousState.contentHash != contentHash || !previousState.type.equals(type)) {
+                worldObjectTypeVersionMap.merge(type, 1L, Long::sum);
+                if(!previousState.type.equals(type)) {
+                    worldObjectTypeVersionMap.merge(previousState.type, 1L, Long::sum);
+                }
+                attributeDictionary.putWorldObject(worldId, worldObject, false);
+            } else {
+                attributeDictionary.replaceWorldObject(worldId, worldObject);
+            }
+        }
+        worldObjectIdMap.put(worldId, worldObject);
+        renewOutgrownAttributeDictionary();
+
+        boolean robotMoved = false;
+        if(robotModel != null && isWorldObject(robotModel.getRobotProperties(), worldId)) {
+            //the tracker projects the cones again if the position changed
+            robotModel.setRobotProperties(worldObject);
+            robotMoved = robotModel.getRobotPosition() != null;
+        } else if(userModels != null) {
+            for(UserModel userModel: userModels) {
+                if(isWorldObject(userModel.getUserProperties(), worldId)) {
+                    userModel.setUserProperties(worldObject);
+                }
+            }
+        }
+        ConeIntersectionTracker tracker = ConeIntersectionTracker.getInstance();
+        if(lazyConeIntersection || !tracker.isInitialized()) {
+            coneIntersectionsChanged();
+            return;
+        }
+        if(robotMoved) {
+            tracker.onRobotMoved(robotModel.getRobotPosition());
+        }
+        if(previousState == null) {
+            tracker.onObjectAdded(worldObject);
+        } else {
+            tracker.onObjectMoved(worldObject);
+        }
+    }
+
+    /**
+     * Removes the world object with this worldobjectid, only the cone intersections of its neighbourhood are recomputed
+     * @param worldObjectId
+     * @return false if there is no such object
+     */
+    public static synchronized boolean removeWorldObject(String worldObjectId) {
+        WorldObjectState state = worldObjectStateMap.get(worldObjectId);
+        if(state == null || !state.encoded) {
+            return false;
+        }
+        worldObjectStateMap.remove(worldObjectId);
+        List<JsonObject> newWorldProperties = new ArrayList<>(worldProperties);
+        newWorldProperties.remove(state.index);
+        worldProperties = newWorldProperties;
+        for(WorldObjectState otherState: worldObjectStateMap.values()) {
+            if(otherState.index > state.index) {
+                otherState.index--;
+            }
+        }
+        worldObjectTypeVersionMap.merge(state.type, 1L, Long::sum);
+        attributeDictionary.removeWorldObject(worldObjectId);
+        worldObjectIdMap.remove(worldObjectId);
+
+        ConeIntersectionTracker tracker = ConeIntersectionTracker.getInstance();
+        if(lazyConeIntersection || !tracker.isInitialized()) {
+            coneIntersectionsChanged();
+        } else {
+            tracker.onObjectRemoved(state.worldObject);
+        }
+        return true;
+    }
+
+    /**
+     * calculates the cone intersections of the current world again (lazily in the lazy mode)
+     */
+    private static void coneIntersectionsChanged() {
+        Position robotPosition = robotModel != null ? robotModel.getRobotPosition() : null;
+        if(lazyConeIntersection) {
+            setLazyConeIntersections(worldProperties, robotPosition);
+        } else {
+            ConeIntersectionTracker.getInstance().update(worldProperties, robotPosition);
+        }
+    }
+
+    /**
+     * encodes all objects by a new dictionary if most values of the current one are outdated
+     */
+    private static void renewOutgrownAttributeDictionary() {
+        if(!attributeDictionary.isOutgrown()) {
+            return;
+        }
+        AttributeDictionary dictionary = new AttributeDictionary();
+        for(Map.Entry<String, WorldObjectState> entry: worldObjectStateMap.entrySet()) {
+            if(entry.getValue().encoded) {
+                dictionary.putWorldObject(entry.getKey(), entry.getValue().worldObject, false);
+            }
+        }
+        attributeDictionary = dictionary;
+    }
+
+    /**
+     * hash of the properties of the world object in their order, equal objects have the same hash
+     * (objects whose content changed are detected unless their hashes collide)
+     * @param worldObject
+     * @return 64 bit hash of the content
+     */
+    private static long contentHash(JsonObject worldObject) {
+        long hash = 17;
+        for(Map.Entry<String, JsonElement> entry: worldObject.entrySet()) {
+            hash = 1000003 * hash + entry.getKey().hashCode();
+            hash = 1000003 * hash + entry.getValue().hashCode();
+        }
+        return hash;
+    }
+
+    private static String getWorldId(JsonObject worldObject) {
+        JsonElement worldId = worldObject.get("worldobjectid");
+        return worldId != null && worldId.isJsonPrimitive() ? worldId.getAsString() : null;
+    }
+
+    private static boolean isWorldObject(JsonObject worldObject, String worldId) {
+        return worldObject != null && worldId.equals(getWorldId(worldObject));
+    }
+
+    private static String getWorldObjectType(JsonObject worldObject) {
+        return worldObject.has("worldobjecttype") ? worldObject.get("worldobjecttype").getAsString() : "";
+    }
+
+    /**
+     *
+     * @param worldObjectId
+     * @return the (first) world object with this worldobjectid, null if there is none
+     */
+    public static JsonObject getWorldObject(String worldObjectId) {
+        return worldObjectIdMap.get(worldObjectId);
+    }
+
+    /**
+     * @return dictionary of the attribute values of the current world objects (objects which are compared with each other should be encoded by the same one)
+     */
+    public static AttributeDictionary getAttributeDictionary() {
+        return attributeDictionary;
+    }
+
+    /**
+     *
+     * @param worldObject
+     * @return int-coded view of the world object, created on the fly if the object is not part of the world model
+     */
+    public static EncodedWorldObject getEncodedWorldObject(JsonObject worldObject) {
+        return attributeDictionary.getEncodedWorldObject(worldObject);
+    }
+
+    /**
+     *
+     * @param type worldobjecttype
+     * @return version of the objects of this type
+     */
+    public static long getWorldObjectTypeVersion(String type) {
+        Long version = worldObjectTypeVersionMap.get(type);
+        return version == null ? 0 : version;
     }
 
     public static JsonObject getSaliencyAnnotation() {
         return saliencyAnnotation;
     }
 
-    public static void setSaliencyAnnotation(JsonObject saliencyAnnotation) {
+    public static synchronized void setSaliencyAnnotation(JsonObject saliencyAnnotation) {
         WorldModel.saliencyAnnotation = saliencyAnnotation;
+        //the annotation is often changed in place before it is set again -> compare with the content it had before
+        String snapshot = saliencyAnnotation == null ? null : saliencyAnnotation.toString();
+        if(snapshot == null ? saliencyAnnotationSnapshot != null : !snapshot.equals(saliencyAnnotationSnapshot)) {
+            saliencyAnnotationVersion.incrementAndGet();
+            saliencyAnnotationSnapshot = snapshot;
+        }
+    }
+
+    public static long getSaliencyAnnotationVersion() {
+        return saliencyAnnotationVersion.get();
+    }
+
+    public static boolean isLazyConeIntersection() {
+        return lazyConeIntersection;
+    }
+
+    /**
+     * @param lazy calculate the cone intersections of an object only when they are queried (see getConeNeighbours()), applies from the next loaded world
+     */
+    public static void setLazyConeIntersection(boolean lazy) {
+        lazyConeIntersection = lazy;
+    }
+
+    /**
+     * in the lazy mode the graph is calculated for all objects on the first call
+     * @return the cone intersections of all objects
+     */
+    public static ConeIntersectionGraph getConeIntersectionGraph() {
+        LazyConeIntersections lazyIntersections = lazyConeIntersections;
+        if(lazyIntersections != null) {
+            return lazyIntersections.getConeIntersectionGraph();
+        }
+        return coneIntersectionGraph;
+    }
+
+    public static void setConeIntersectionGraph(ConeIntersectionGraph coneIntersectionGraph) {
+        WorldModel.coneIntersectionGraph = coneIntersectionGraph;
+        lazyConeIntersections = null;
+    }
+
+    /**
+     * replaces the cone intersections by the lazily calculated ones of the given world
+     * @param worldProps
+     * @param robotPosition
+     */
+    static void setLazyConeIntersections(List<JsonObject> worldProps, Position robotPosition) {
+        lazyConeIntersections = new LazyConeIntersections(worldProps, robotPosition);
+        coneIntersectionGraph = ConeIntersectionGraph.empty();
+    }
+
+    /**
+     * in the lazy mode the objects are calculated on the first query and kept until the world model changes
+     * @param worldObjectId worldobjectid
+     * @return unmodifiable list of the objects whose cone intersect with the object's cone, empty if the object has no position
+     */
+    public static List<JsonObject> getConeNeighbours(String worldObjectId) {
+        LazyConeIntersections lazyIntersections = lazyConeIntersections;
+        if(lazyIntersections != null) {
+            return lazyIntersections.getConeNeighbours(worldObjectId);
+        }
+        return coneIntersectionGraph.getNeighbourObjects(worldObjectId);
     }
 
+    /**
+     * compatibility view of the cone intersection graph, use getConeIntersectionGraph() instead
+     * @return unmodifiable map containing for each object those objects whose cone intersect with the object's cone
+     */
     public static Map<JsonObject, List<JsonObject>> getConeIntersectionMap() {
-        return coneIntersectionMap;
+        return getConeIntersectionGraph().asMap();
     }
 
+    /**
+     * compatibility with the JsonObject-keyed map, use setConeIntersectionGraph() instead
+     * @param coneIntersectionMap
+     */
     public static void setConeIntersectionMap(Map<JsonObject, List<JsonObject>> coneIntersectionMap) {
-        WorldModel.coneIntersectionMap = coneIntersectionMap;
+        setConeIntersectionGraph(ConeIntersectionGraph.fromMap(coneIntersectionMap));
     }
 
 }
@@ -30,6 +30,7 @@ import com.mongodb.MongoClient;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.MongoIterable;
+import de.dfki.mmf.attributeselection.AttributiveObjectIdentifierPrecomputation;
 import org.bson.Document;
 
 import java.util.*;
@@ -141,7 +142,7 @@ public class WorldModelFactory {
                 }
             }
         }
-        //set the world properties of the world model
+        //set the world properties of the world model (equal values of different objects are stored once)
         WorldModel.setWorldProperties(worldProperties);
        // System.out.println("worldproperties after processing: " + worldProperties.toString());
 
@@ -163,10 +164,17 @@ public class WorldModelFactory {
         WorldModel.setUserModels(userModels);
 
         //calculate cone intersection of the world objects (used in the planning phase to determine if pointing is useful)
-        WorldObjectConeIntersectionCalculator coneIntersectionCalculator = new WorldObjectConeIntersectionCalculator();
-        Map<JsonObject, List<JsonObject>> coneIntersectionMap = coneIntersectionCalculator.calculateObjectsConeIntersection(worldProperties);
-        WorldModel.setConeIntersectionMap(coneIntersectionMap);
+        if(WorldModel.isLazyConeIntersection()) {
+            //only calculated for the objects which are queried
+            ConeIntersectionTracker.getInstance().reset();
+            WorldModel.setLazyConeIntersections(worldProperties, robotModel.getRobotPosition());
+        } else {
+            //only the neighbourhoods of changed objects are recomputed, the tracker sets the cone intersection graph of the world model
+            ConeIntersectionTracker.getInstance().update(worldProperties, robotModel.getRobotPosition());
+        }
 
+        //precompute the attributive identifiers of the changed objects in the background (if enabled)
+        AttributiveObjectIdentifierPrecomputation.getInstance().worldModelChanged();
     }
 
 
@@ -29,9 +29,10 @@ import de.dfki.mmf.math.DirectionVector;
 import de.dfki.mmf.math.Position;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Created by Magdalena Kaiser on 06.01.2017.
@@ -41,6 +42,27 @@ import java.util.Map;
  * Intersection Calculator for each cone from robot to world object
  */
 public class WorldObjectConeIntersectionCalculator {
+    //number of objects from which on the cone intersections are calculated in parallel
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 2000;
+    //number of objects handled by one fork/join task
+    private static final int OBJECTS_PER_TASK = 256;
+
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+
+    /**
+     * @param parallelThreshold number of objects from which on the cone intersections are calculated in parallel (Integer.MAX_VALUE: never)
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * @param forkJoinPool pool running the parallel calculation
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
 
     /**
      *
@@ -48,89 +70,184 @@ public class WorldObjectConeIntersectionCalculator {
      * @return map containing for each objects those objects whose cone intersect with the object's cone
      */
     public Map<JsonObject, List<JsonObject>> calculateObjectsConeIntersection(List<JsonObject> worldProperties) {
-        //a cone is the area from the robot's position to the world object with certain radius around the world object
-        //map for saving for each object those objects those cones intersect with the object
-        Map<JsonObject, List<JsonObject>> coneIntersectionMap = new HashMap<>();
+        return calculateConeIntersectionGraph(worldProperties).toMap();
+    }
+
+    /**
+     * a cone is the area from the robot's position to the world object with certain radius around the world object
+     * @param worldProperties
+     * @return graph containing for each object (with a position) those objects whose cone intersect with the object's cone
+     */
+    public ConeIntersectionGraph calculateConeIntersectionGraph(List<JsonObject> worldProperties) {
         //get position of robot
         Position robotPosition = WorldModel.getRobotModel().getRobotPosition();
         if(robotPosition == null) {
-            return new HashMap<>();
+            return ConeIntersectionGraph.empty();
+        }
+        List<ObjectCone> cones = createCones(worldProperties, robotPosition);
+        List<JsonObject> worldObjects = new ArrayList<>();
+        for(ObjectCone cone: cones) {
+            worldObjects.add(cone.getWorldObject());
         }
+        //the parallel calculation checks each pair twice, it only pays off with several threads
+        boolean parallel = cones.size() >= parallelThreshold && forkJoinPool.getParallelism() > 1;
+        int[][] coneIntersections = parallel ? findConeIntersectionsParallel(cones) : findConeIntersections(cones);
+        return ConeIntersectionGraph.fromAdjacency(worldObjects, coneIntersections);
+    }
+
+    /**
+     * projects the objects into the robot's angular space (direction of the cone and its angle), once per object
+     * @param worldProperties
+     * @param robotPosition
+     * @return cones of the objects with a position (in the order of the world properties)
+     */
+    List<ObjectCone> createCones(List<JsonObject> worldProperties, Position robotPosition) {
+        List<ObjectCone> cones = new ArrayList<>();
         for(JsonObject worldObject: worldProperties) {
-            Position worldObjectPosition = null;
-            //get position of current world object
-            if (worldObject.has("xposition") && worldObject.has("yposition") && worldObject.has("zposition")) {
-                double xPos = worldObject.get("xposition").getAsDouble();
-                double yPos = worldObject.get("yposition").getAsDouble();
-                double zPos = worldObject.get("zposition").getAsDouble();
-                worldObjectPosition = new Position(xPos, yPos, zPos);
-            } else if (worldObject.has("position")) {
-                JsonObject innerObject = worldObject.get("position").getAsJsonObject();
-                if (innerObject.has("xposition") && innerObject.has("yposition") && innerObject.has("zposition")) {
-                    double xPos = innerObject.get("xposition").getAsDouble();
-                    double yPos = innerObject.get("yposition").getAsDouble();
-                    double zPos = innerObject.get("zposition").getAsDouble();
-                    worldObjectPosition =  new Position(xPos, yPos, zPos);
-                }
+            Position worldObjectPosition = getWorldObjectPosition(worldObject);
+            if(worldObjectPosition != null) {
+                cones.add(new ObjectCone(worldObject, worldObjectPosition, robotPosition, getProximityRadius(worldObject, worldObjectPosition, robotPosition)));
             }
-            if(worldObjectPosition != null ) {
-                //list to save objects whose cones intersect with the current one's cone
-                ArrayList<JsonObject> coneIntersectionList = new ArrayList<>();
-                double worldObjectRadius;
-                //check if certain radius is given for the current world object
-                if(worldObject.has("proximityradius")) {
-                    worldObjectRadius = worldObject.get("proximityradius").getAsDouble();
-                 //if not: calculate radius based on the size of the object -> if no size is given: assume small size
-                }else {
-                    String sizeSpecification = "";
-                    if(worldObject.has("worldobjectsizecategory")) {
-                        sizeSpecification = worldObject.get("worldobjectsizecategory").getAsString();
-                    }
-                    worldObjectRadius = calculateProximityRadius(worldObjectPosition, robotPosition, sizeSpecification);
+        }
+        return cones;
+    }
+
+    /**
+     * Finds the intersecting cones with a grid over the unit sphere (the directions of the cones) instead of comparing all pairs:
+     * each pair is checked by the cone with the bigger angle, whose range query around its direction covers all cones with smaller angles
+     * which can intersect with it
+     * @param cones
+     * @return for each cone the indices of the cones intersecting with it in ascending order
+     */
+    int[][] findConeIntersections(List<ObjectCone> cones) {
+        List<List<Integer>> coneIntersections = new ArrayList<>();
+        List<Integer> validCones = new ArrayList<>();
+        for(int i = 0; i < cones.size(); i++) {
+            coneIntersections.add(new ArrayList<>());
+            //an object at the position of the robot has no direction and intersects with no other cone
+            if(cones.get(i).hasDirection()) {
+                validCones.add(i);
+            }
+        }
+        double[] angles = new double[validCones.size()];
+        for(int i = 0; i < angles.length; i++) {
+            angles[i] = cones.get(validCones.get(i)).getAngle();
+        }
+        ConeGrid<Integer> grid = new ConeGrid<>(ConeGrid.calculateCellSize(angles));
+        for(int i: validCones) {
+            ObjectCone cone = cones.get(i);
+            grid.add(i, cone.getX(), cone.getY(), cone.getZ());
+        }
+        for(int i: validCones) {
+            ObjectCone cone = cones.get(i);
+            //intersecting cones with a smaller angle are at most twice the angle away
+            grid.query(cone.getX(), cone.getY(), cone.getZ(), 2 * cone.getAngle(), candidate -> {
+                ObjectCone otherCone = cones.get(candidate);
+                //the pair is checked by the cone with the bigger angle (or the first one if the angles are equal)
+                if(otherCone.getAngle() > cone.getAngle() || (otherCone.getAngle() == cone.getAngle() && candidate <= i)) {
+                    return;
+                }
+                if(cone.intersects(otherCone) && !cone.getWorldObject().equals(otherCone.getWorldObject())) {
+                    coneIntersections.get(i).add(candidate);
+                    coneIntersections.get(candidate).add(i);
                 }
-                //go through other objects
-                for(JsonObject otherObject: worldProperties) {
-                    if(!worldObject.equals(otherObject)) {
-                        Position otherObjectPosition = null;
-                        //get position of other world object
-                        if (otherObject.has("xposition") && otherObject.has("yposition") && otherObject.has("zposition")) {
-                            double xPos = otherObject.get("xposition").getAsDouble();
-                            double yPos = otherObject.get("yposition").getAsDouble();
-                            double zPos = otherObject.get("zposition").getAsDouble();
-                            otherObjectPosition = new Position(xPos, yPos, zPos);
-                        } else if (otherObject.has("position")) {
-                            JsonObject innerObject = otherObject.get("position").getAsJsonObject();
-                            if (innerObject.has("xposition") && innerObject.has("yposition") && innerObject.has("zposition")) {
-                                double xPos = innerObject.get("xposition").getAsDouble();
-                                double yPos = innerObject.get("yposition").getAsDouble();
-                                double zPos = innerObject.get("zposition").getAsDouble();
-                                otherObjectPosition =  new Position(xPos, yPos, zPos);
-                            }
+            });
+        }
+        int[][] sortedConeIntersections = new int[cones.size()][];
+        for(int i = 0; i < cones.size(); i++) {
+            sortedConeIntersections[i] = coneIntersections.get(i).stream().mapToInt(Integer::intValue).sorted().toArray();
+        }
+        return sortedConeIntersections;
+    }
+
+    /**
+     * Same result as findConeIntersections(), but each cone looks for all cones intersecting with it (see ConeIndex), so that the cones can be handled in parallel
+     * without shared mutable state
+     * @param cones
+     * @return for each cone the indices of the cones intersecting with it in ascending order
+     */
+    int[][] findConeIntersectionsParallel(List<ObjectCone> cones) {
+        ConeIndex coneIndex = new ConeIndex(cones);
+        int[][] coneIntersections = new int[cones.size()][];
+        //each task only writes the entries of its own cones
+        forkJoinPool.invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                computeConeIntersections(0, cones.size());
+            }
+
+            private void computeConeIntersections(int from, int to) {
+                if(to - from > OBJECTS_PER_TASK) {
+                    int middle = (from + to) >>> 1;
+                    invokeAll(new RecursiveAction() {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        protected void compute() {
+                            computeConeIntersections(from, middle);
                         }
-                        if(otherObjectPosition != null) {
-                            double otherObjectRadius;
-                            //check if certain radius is given for the other world object
-                            if(otherObject.has("proximityradius")) {
-                                otherObjectRadius = otherObject.get("proximityradius").getAsDouble();
-                                //if not: calculate radius based on the size of the object -> if no size is given: assume small size
-                            }else {
-                                String sizeSpecification = "";
-                                if(otherObject.has("worldobjectsizecategory")) {
-                                    sizeSpecification = otherObject.get("worldobjectsizecategory").getAsString();
-                                }
-                                otherObjectRadius = calculateProximityRadius(otherObjectPosition, robotPosition, sizeSpecification);
-                            }
-                            //check if the cones of the two objects intersect -> if so, add other object to list
-                            if(HasConeIntersection(worldObjectPosition, otherObjectPosition, robotPosition, worldObjectRadius, otherObjectRadius)) {
-                                coneIntersectionList.add(otherObject);
-                            }
+                    }, new RecursiveAction() {
+                        private static final long serialVersionUID = 1L;
+
+                        @Override
+                        protected void compute() {
+                            computeConeIntersections(middle, to);
                         }
-                    }
+                    });
+                    return;
+                }
+                ConeIndex.IntersectionCollector collector = coneIndex.new IntersectionCollector();
+                for(int i = from; i < to; i++) {
+                    coneIntersections[i] = coneIndex.findIntersections(i, collector);
                 }
-                coneIntersectionMap.put(worldObject, coneIntersectionList);
             }
+        });
+        return coneIntersections;
+    }
+
+    /**
+     *
+     * @param worldObject
+     * @return position of the world object, null if it has none
+     */
+    Position getWorldObjectPosition(JsonObject worldObject) {
+        if (worldObject.has("xposition") && worldObject.has("yposition") && worldObject.has("zposition")) {
+            double xPos = worldObject.get("xposition").getAsDouble();
+            double yPos = worldObject.get("yposition").getAsDouble();
+            double zPos = worldObject.get("zposition").getAsDouble();
+            return new Position(xPos, yPos, zPos);
+        } else if (worldObject.has("position")) {
+            JsonObject innerObject = worldObject.get("position").getAsJsonObject();
+            if (innerObject.has("xposition") && innerObject.has("yposition") && innerObject.has("zposition")) {
+                double xPos = innerObject.get("xposition").getAsDouble();
+                double yPos = innerObject.get("yposition").getAsDouble();
+                double zPos = innerObject.get("zposition").getAsDouble();
+                return new Position(xPos, yPos, zPos);
+            }
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @param worldObject
+     * @param worldObjectPosition
+     * @param robotPosition
+     * @return radius around the world object
+     */
+    double getProximityRadius(JsonObject worldObject, Position worldObjectPosition, Position robotPosition) {
+        //check if certain radius is given for the current world object
+        if(worldObject.has("proximityradius")) {
+            return worldObject.get("proximityradius").getAsDouble();
+        }
+        //if not: calculate radius based on the size of the object -> if no size is given: assume small size
+        String sizeSpecification = "";
+        if(worldObject.has("worldobjectsizecategory")) {
+            sizeSpecification = worldObject.get("worldobjectsizecategory").getAsString();
         }
-        return  coneIntersectionMap;
+        return calculateProximityRadius(worldObjectPosition, robotPosition, sizeSpecification);
     }
 
     /**
@@ -28,11 +28,14 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import de.dfki.mmf.input.predicates.*;
+import de.dfki.mmf.input.worldmodel.AttributeDictionary;
 import de.dfki.mmf.input.worldmodel.WorldModel;
 import de.dfki.mmf.planner.modalityplanner.SpeechOutputType;
 import de.dfki.mmf.attributeselection.AttributeSelectionAlgorithm;
+import de.dfki.mmf.attributeselection.AttributeSelectionService;
 import de.dfki.mmf.attributeselection.AttributeSelectorType;
 import de.dfki.mmf.attributeselection.AttributiveObjectIdentifier;
+import de.dfki.mmf.attributeselection.AttributiveObjectIdentifierCache;
 import simplenlg.features.Feature;
 import simplenlg.features.Form;
 import simplenlg.features.InterrogativeType;
@@ -42,6 +45,12 @@ import simplenlg.phrasespec.SPhraseSpec;
 import simplenlg.realiser.english.Realiser;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static de.dfki.mmf.modalities.ModalityType.SPEECH;
 
@@ -64,6 +73,12 @@ public class SpeechModality extends Modality implements StructureFormingModality
     //some configuration parameters for the Attribute Selection Algorithm
     private AttributeSelectorType attributeSelectorType;
     private double finalAttributeSelectionSaliencyThreshold = -1.0;
+    //search only the smallest identifiers if the selector is looking for the shortest one
+    private boolean smallestIdentifierSearch = true;
+    //budgets of the attribute selection, if one is exceeded the best identifier found so far is used (see AttributeSelectionAlgorithm)
+    private long attributeSelectionMaxCandidateCount = Long.MAX_VALUE;
+    private int attributeSelectionMaxAttributeCount = Integer.MAX_VALUE;
+    private long attributeSelectionTimeLimitMillis = 2000;
 
     private static volatile SpeechModality speechInstance = new SpeechModality();
 
@@ -91,6 +106,46 @@ public class SpeechModality extends Modality implements StructureFormingModality
         this.finalAttributeSelectionSaliencyThreshold = finalAttributeSelectionSaliencyThreshold;
     }
 
+    public boolean isSmallestIdentifierSearch() {
+        return smallestIdentifierSearch;
+    }
+
+    /**
+     * @param smallestIdentifierSearch if true (default), the attribute selection stops at the smallest identifiers
+     * for the selectors which choose the shortest identifier, instead of computing all identifiers
+     */
+    public void setSmallestIdentifierSearch(boolean smallestIdentifierSearch) {
+        this.smallestIdentifierSearch = smallestIdentifierSearch;
+    }
+
+    public long getAttributeSelectionMaxCandidateCount() {
+        return attributeSelectionMaxCandidateCount;
+    }
+
+    public void setAttributeSelectionMaxCandidateCount(long attributeSelectionMaxCandidateCount) {
+        this.attributeSelectionMaxCandidateCount = attributeSelectionMaxCandidateCount;
+    }
+
+    public int getAttributeSelectionMaxAttributeCount() {
+        return attributeSelectionMaxAttributeCount;
+    }
+
+    public void setAttributeSelectionMaxAttributeCount(int attributeSelectionMaxAttributeCount) {
+        this.attributeSelectionMaxAttributeCount = attributeSelectionMaxAttributeCount;
+    }
+
+    public long getAttributeSelectionTimeLimitMillis() {
+        return attributeSelectionTimeLimitMillis;
+    }
+
+    /**
+     * @param attributeSelectionTimeLimitMillis time after which the attribute selection uses the best identifier found so far (0 if not limited),
+     * should be lower than the timeout of the AttributeSelectionService after which only the type is used
+     */
+    public void setAttributeSelectionTimeLimitMillis(long attributeSelectionTimeLimitMillis) {
+        this.attributeSelectionTimeLimitMillis = attributeSelectionTimeLimitMillis;
+    }
+
 
     public String getOutputStructure() {
         return outputStructure;
@@ -143,34 +198,106 @@ public class SpeechModality extends Modality implements StructureFormingModality
     /**
      *
      * @param element input predicate element that refer to world object
-     * @return AttributiveObjectIdentifier that identify corresponding world object by using some selected attributes
+     * @return AttributiveObjectIdentifier that identify corresponding world object by using some selected attributes,
+     * if the attribute selection does not finish within the timeout of the AttributeSelectionService an identifier using only the type
      * @throws InterruptedException
      */
     public AttributiveObjectIdentifier findAttributiveObjectIdentifier(PredicateElement element) throws InterruptedException {
-        JsonObject queriedObject = null;
-        String queriedType = "";
-        ArrayList<JsonObject> databaseObjects = new ArrayList<>();
-        //retrieve the jsonObject in the world model which is referenced by the predicate element
-        for (JsonObject objectProperties : WorldModel.getWorldProperties()) {
-            if (objectProperties.has("worldobjectid") && objectProperties.has("worldobjecttype")) {
-                if (element.getWorldObjectId().equals(objectProperties.get("worldobjectid").getAsString())) {
-                    queriedObject = objectProperties;
-                    queriedType = objectProperties.get("worldobjecttype").getAsString();
-                    break;
-                }
-            } else {
-                throw new IllegalStateException("worldobjectid and worldobjecttype are required for each object");
+        CompletableFuture<AttributiveObjectIdentifier> identifierFuture = findAttributiveObjectIdentifierAsync(element);
+        try {
+            return identifierFuture.get(AttributeSelectionService.getInstance().getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            identifierFuture.cancel(true);
+            System.out.println("Warning: the attribute selection for " + element + " did not finish within "
+                    + AttributeSelectionService.getInstance().getTimeoutMillis() + " ms, only the type is used.");
+            return createTypeIdentifier(element);
+        } catch (InterruptedException e) {
+            identifierFuture.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw new IllegalStateException("The attribute selection for " + element + " failed.", e.getCause());
         }
+    }
+
+    /**
+     * runs the attribute selection on the AttributeSelectionService, cancelling the returned future cancels the attribute selection
+     * @param element input predicate element that refer to world object
+     * @return future of the AttributiveObjectIdentifier that identify corresponding world object by using some selected attributes
+     * (completed with null if no corresponding object exists)
+     */
+    public CompletableFuture<AttributiveObjectIdentifier> findAttributiveObjectIdentifierAsync(PredicateElement element) {
+        return findAttributiveObjectIdentifier(element, false, null);
+    }
+
+    /**
+     * runs the attribute selection for the element in the calling thread (unless the identifier is already cached) and caches its identifier,
+     * used to precompute the identifiers before they are needed
+     * @param element input predicate element that refer to world object
+     * @return true if the identifier is cached (or no corresponding object exists),
+     * false if it could not be computed within the budgets of the attribute selection or the cache is disabled
+     */
+    public boolean precomputeAttributiveObjectIdentifier(PredicateElement element) {
+        AtomicBoolean cached = new AtomicBoolean(false);
+        AttributiveObjectIdentifier identifier = findAttributiveObjectIdentifier(element, true, cached).join();
+        return identifier == null || cached.get();
+    }
+
+    /**
+     *
+     * @param element input predicate element that refer to world object
+     * @param inCallingThread run the attribute selection in the calling thread instead of the AttributeSelectionService
+     * @param cached if not null, set to true if the identifier is cached when the returned future completes (only supported in the calling thread)
+     * @return future of the AttributiveObjectIdentifier (completed with null if no corresponding object exists)
+     */
+    private CompletableFuture<AttributiveObjectIdentifier> findAttributiveObjectIdentifier(PredicateElement element, boolean inCallingThread, AtomicBoolean cached) {
+        //retrieve the jsonObject in the world model which is referenced by the predicate element
+        JsonObject queriedObject = findWorldObject(element);
 
         //no corresponding object has been found
         if(queriedObject == null) {
-            return null;
+            return CompletableFuture.completedFuture(null);
+        }
+        String queriedWorldId = queriedObject.get("worldobjectid").getAsString();
+        String queriedType = queriedObject.get("worldobjecttype").getAsString();
+
+        //get the saliency annotation
+        JsonObject saliencyAnnotation = WorldModel.getSaliencyAnnotation();
+        //the database objects are collected below, after the cache has been checked
+        ArrayList<JsonObject> databaseObjects = new ArrayList<>();
+        //create and call the Attribute Selection Algorithm to select those attributes which makes queried object distinguishable from the other database objects
+        AttributeSelectionAlgorithm attributeSelectionAlgorithm = new AttributeSelectionAlgorithm(databaseObjects, queriedObject, saliencyAnnotation);
+        attributeSelectionAlgorithm.setIncrementalSelection(AttributeSelectorType.INCREMENTAL.equals(attributeSelectorType));
+        attributeSelectionAlgorithm.setMaxCandidateCount(attributeSelectionMaxCandidateCount);
+        attributeSelectionAlgorithm.setMaxAttributeCount(attributeSelectionMaxAttributeCount);
+        attributeSelectionAlgorithm.setTimeLimitMillis(attributeSelectionTimeLimitMillis);
+        if(smallestIdentifierSearch) {
+            if(attributeSelectorType == null || attributeSelectorType.equals(AttributeSelectorType.SHORTEST_MOST_SALIENT_ABOVE_THRESHOLD)) {
+                //the selector takes a longer identifier if none of the shortest ones is salient enough
+                attributeSelectionAlgorithm.setSmallestIdentifierSearch(true);
+                attributeSelectionAlgorithm.setMinimumIdentifierSaliency(attributeSelectorType == null || finalAttributeSelectionSaliencyThreshold == -1.0 ?
+                        0.8 : finalAttributeSelectionSaliencyThreshold);
+            } else if(attributeSelectorType.equals(AttributeSelectorType.SHORTEST)) {
+                attributeSelectionAlgorithm.setSmallestIdentifierSearch(true);
+            }
+        }
+        //the same object is usually referenced several times -> reuse the identifier if neither the objects nor the saliency have changed since
+        String cacheKey = AttributiveObjectIdentifierCache.createKey(queriedWorldId, element.toString(), queriedType,
+                attributeSelectorType, finalAttributeSelectionSaliencyThreshold, attributeSelectionAlgorithm);
+        AttributiveObjectIdentifier cachedIdentifier = AttributiveObjectIdentifierCache.getInstance().get(cacheKey, element);
+        if(cachedIdentifier != null) {
+            if(cached != null) {
+                cached.set(true);
+            }
+            return CompletableFuture.completedFuture(cachedIdentifier);
         }
 
         //get all other objects of same type from the world model
+        int queriedTypeCode = AttributeDictionary.encodeType(queriedType);
         for(JsonObject objectProperties: WorldModel.getWorldProperties()) {
-            if (objectProperties.get("worldobjecttype").getAsString().equals(queriedType) && !element.toString().contains(objectProperties.get("worldobjectid").getAsString())) {
+            if (WorldModel.getEncodedWorldObject(objectProperties).getTypeCode() == queriedTypeCode && !element.toString().contains(objectProperties.get("worldobjectid").getAsString())) {
                 //if object is an image and the image is not displayed yet (invisible = true), then do not use object's properties
                 if(objectProperties.has("isinvisible") && objectProperties.get("isinvisible").getAsBoolean()) {
                     continue;
@@ -182,21 +309,94 @@ public class SpeechModality extends Modality implements StructureFormingModality
         //(type is used in generateObjectDescriptionOutput())
         if(databaseObjects.isEmpty()) {
             //create the identifier, no attributes need to be selected since the type is sufficient
-            AttributiveObjectIdentifier attributiveObjectIdentifier = new AttributiveObjectIdentifier(element, queriedObject.get("worldobjectid").getAsString(), queriedObject.get("worldobjecttype").getAsString());
+            AttributiveObjectIdentifier attributiveObjectIdentifier = new AttributiveObjectIdentifier(element, queriedWorldId, queriedType);
             attributiveObjectIdentifier.setSelectedAttributes(null);
             attributiveObjectIdentifier.setSuccess(true);
-            return attributiveObjectIdentifier;
+            if(AttributiveObjectIdentifierCache.getInstance().put(cacheKey, attributiveObjectIdentifier) && cached != null) {
+                cached.set(true);
+            }
+            return CompletableFuture.completedFuture(attributiveObjectIdentifier);
+        }
+        if(inCallingThread) {
+            attributeSelectionAlgorithm.run();
+            AttributiveObjectIdentifier identifier;
+            try {
+                identifier = createAttributiveObjectIdentifier(element, queriedObject, attributeSelectionAlgorithm, attributeSelectionAlgorithm.getResult());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("The attribute selection for " + element + " has been interrupted.");
+            }
+            if(!attributeSelectionAlgorithm.isBudgetExceeded() && AttributiveObjectIdentifierCache.getInstance().put(cacheKey, identifier) && cached != null) {
+                cached.set(true);
+            }
+            return CompletableFuture.completedFuture(identifier);
         }
-
-        //get the saliency annotation
-        JsonObject saliencyAnnotation = WorldModel.getSaliencyAnnotation();
-        //create and call the Attribute Selection Algorithm to select those attributes which makes queried object distinguishable from the other database objects
-        AttributeSelectionAlgorithm attributeSelectionAlgorithm = new AttributeSelectionAlgorithm(databaseObjects, queriedObject, saliencyAnnotation);
-        Thread asThread = new Thread(attributeSelectionAlgorithm);
-        asThread.start();
         //get result set containing jsonObjects where each object contains the different possible attributes to identify the queried object
-        Set<JsonObject> resultSet = attributeSelectionAlgorithm.getResult();
+        CompletableFuture<Set<JsonObject>> resultFuture = AttributeSelectionService.getInstance().selectAttributes(attributeSelectionAlgorithm);
+        CompletableFuture<AttributiveObjectIdentifier> identifierFuture = resultFuture.thenApply(resultSet ->
+                createAttributiveObjectIdentifier(element, queriedObject, attributeSelectionAlgorithm, resultSet));
+        //cancelling the identifier also cancels the attribute selection
+        identifierFuture.whenComplete((identifier, throwable) -> {
+            if(throwable != null) {
+                resultFuture.cancel(true);
+            } else if(!attributeSelectionAlgorithm.isBudgetExceeded()) {
+                //an identifier found within the budgets only does not need to be the best one -> do not cache it
+                AttributiveObjectIdentifierCache.getInstance().put(cacheKey, identifier);
+            }
+        });
+        return identifierFuture;
+    }
 
+    /**
+     *
+     * @param element input predicate element that refer to world object
+     * @return AttributiveObjectIdentifier without selected attributes (only the type of the object can be used to refer to it)
+     * which is not successful since the type does not uniquely identify the object, null if no corresponding object exists
+     */
+    public AttributiveObjectIdentifier createTypeIdentifier(PredicateElement element) {
+        JsonObject queriedObject = findWorldObject(element);
+        if(queriedObject == null) {
+            return null;
+        }
+        AttributiveObjectIdentifier attributiveObjectIdentifier = new AttributiveObjectIdentifier(element, queriedObject.get("worldobjectid").getAsString(), queriedObject.get("worldobjecttype").getAsString());
+        attributiveObjectIdentifier.setSelectedAttributes(null);
+        attributiveObjectIdentifier.setSuccess(false);
+        return attributiveObjectIdentifier;
+    }
+
+    /**
+     *
+     * @param element
+     * @return the jsonObject in the world model which is referenced by the predicate element, null if there is none
+     */
+    private JsonObject findWorldObject(PredicateElement element) {
+        JsonObject worldObject = WorldModel.getWorldObject(element.getWorldObjectId());
+        if(worldObject != null && worldObject.has("worldobjecttype")) {
+            return worldObject;
+        }
+        //not indexed (or invalid) -> check all objects
+        for (JsonObject objectProperties : WorldModel.getWorldProperties()) {
+            if (objectProperties.has("worldobjectid") && objectProperties.has("worldobjecttype")) {
+                if (element.getWorldObjectId().equals(objectProperties.get("worldobjectid").getAsString())) {
+                    return objectProperties;
+                }
+            } else {
+                throw new IllegalStateException("worldobjectid and worldobjecttype are required for each object");
+            }
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @param element
+     * @param queriedObject
+     * @param attributeSelectionAlgorithm the finished attribute selection
+     * @param resultSet result of the attribute selection
+     * @return AttributiveObjectIdentifier containing the attributes chosen by the attribute selector type
+     */
+    private AttributiveObjectIdentifier createAttributiveObjectIdentifier(PredicateElement element, JsonObject queriedObject,
+                                                                          AttributeSelectionAlgorithm attributeSelectionAlgorithm, Set<JsonObject> resultSet) {
         //no unique and no partial unique identifier have been found
         if(resultSet.isEmpty()) {
             //set identifier properties accordingly
@@ -244,6 +444,9 @@ public class SpeechModality extends Modality implements StructureFormingModality
             jsonIdentifier = attributeSelectionAlgorithm.getMostSalientIdentifier(resultSet);
         }else if(attributeSelectorType.equals(AttributeSelectorType.MAXIMIZED_SALIENCY_MAXIMIZED_SHORTNESS)) {
             jsonIdentifier = attributeSelectionAlgorithm.getMaxSalientMaxShortestIdentifier(resultSet);
+        }else if(attributeSelectorType.equals(AttributeSelectorType.INCREMENTAL)) {
+            //the result set only contains the identifier found by the incremental algorithm
+            jsonIdentifier = resultSet.iterator().next();
         }
         //create attributive identifier
         AttributiveObjectIdentifier attributiveObjectIdentifier = new AttributiveObjectIdentifier(element, queriedObject.get("worldobjectid").getAsString(), queriedObject.get("worldobjecttype").getAsString());
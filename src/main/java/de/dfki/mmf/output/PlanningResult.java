@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.output;
+
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.util.List;
+
+/**
+ * Result of a planning request with latency budget: the best plan found within the budget and the scores of the device and the modality planning
+ */
+public class PlanningResult {
+
+    //the resulting plan: sequence of ComposedPlanComponents
+    private final List<ComposedPlanComponent> plan;
+    private final HardSoftScore deviceScore;
+    private final HardSoftScore modalityScore;
+    //time the planning took and the time it was allowed to take in milliseconds
+    private final double planningTimeMillis;
+    private final long latencyBudgetMillis;
+
+    public PlanningResult(List<ComposedPlanComponent> plan, HardSoftScore deviceScore, HardSoftScore modalityScore, double planningTimeMillis, long latencyBudgetMillis) {
+        this.plan = plan;
+        this.deviceScore = deviceScore;
+        this.modalityScore = modalityScore;
+        this.planningTimeMillis = planningTimeMillis;
+        this.latencyBudgetMillis = latencyBudgetMillis;
+    }
+
+    public List<ComposedPlanComponent> getPlan() {
+        return plan;
+    }
+
+    public HardSoftScore getDeviceScore() {
+        return deviceScore;
+    }
+
+    public HardSoftScore getModalityScore() {
+        return modalityScore;
+    }
+
+    public double getPlanningTimeMillis() {
+        return planningTimeMillis;
+    }
+
+    public long getLatencyBudgetMillis() {
+        return latencyBudgetMillis;
+    }
+
+    /**
+     *
+     * @return true if no hard constraint of the device and the modality planning is broken (both hardScores are 0)
+     */
+    public boolean isFeasible() {
+        return deviceScore != null && deviceScore.getHardScore() == 0 && modalityScore != null && modalityScore.getHardScore() == 0;
+    }
+
+    /**
+     *
+     * @return true if the planning did not take longer than the latency budget
+     */
+    public boolean isWithinBudget() {
+        return planningTimeMillis <= latencyBudgetMillis;
+    }
+
+    public String toString() {
+        return "device score (" + deviceScore + "), modality score (" + modalityScore + "), " + (isFeasible() ? "feasible" : "not feasible")
+                + ", planning time " + planningTimeMillis + " ms of " + latencyBudgetMillis + " ms";
+    }
+}
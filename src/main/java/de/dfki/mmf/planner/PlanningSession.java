@@ -0,0 +1,416 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.planner;
+
+import de.dfki.mmf.planner.deviceplanner.DeviceRepresentation;
+import de.dfki.mmf.planner.deviceplanner.PhraseModalityComponent;
+import de.dfki.mmf.planner.modalityplanner.ModalityRepresentation;
+import de.dfki.mmf.planner.modalityplanner.PhraseComponent;
+import de.dfki.mmf.planner.modalityplanner.PowerSetModality;
+import org.optaplanner.core.api.domain.solution.Solution;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.api.solver.event.BestSolutionChangedEvent;
+import org.optaplanner.core.api.solver.event.SolverEventListener;
+import org.optaplanner.core.impl.phase.event.PhaseLifecycleListenerAdapter;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.score.director.ScoreDirector;
+import org.optaplanner.core.impl.solver.DefaultSolver;
+import org.optaplanner.core.impl.solver.ProblemFactChange;
+import org.optaplanner.core.impl.solver.scope.DefaultSolverScope;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiPredicate;
+
+/**
+ * Long-lived planning session for a dialogue: the device and the modality solver are kept running in daemon mode,
+ * each new predicate is fed into the running solvers as a problem fact change instead of solving it from scratch.
+ * A session is used by one controller at a time (requests are serialized), close it when the dialogue ends
+ */
+public class PlanningSession {
+
+    //time in milliseconds to wait for the solution of a request before giving up, if the caller does not give a budget
+    private long latencyBudgetMillis = 1000;
+
+    private final DaemonSolver<DeviceRepresentation> deviceSolver = new DaemonSolver<>(SolverRegistry.DEVICE_SESSION_SOLVER);
+    private final DaemonSolver<ModalityRepresentation> modalitySolver = new DaemonSolver<>(SolverRegistry.MODALITY_SESSION_SOLVER);
+
+    public long getLatencyBudgetMillis() {
+        return latencyBudgetMillis;
+    }
+
+    public void setLatencyBudgetMillis(long latencyBudgetMillis) {
+        this.latencyBudgetMillis = latencyBudgetMillis;
+    }
+
+    /**
+     * replace the current device planning problem by the given one using the default latency budget
+     * @param unsolvedDeviceRepresentation
+     * @return the solved DeviceRepresentation or null if no solution was found within the latency budget
+     */
+    public DeviceRepresentation planDevices(DeviceRepresentation unsolvedDeviceRepresentation) throws InterruptedException {
+        return planDevices(unsolvedDeviceRepresentation, latencyBudgetMillis);
+    }
+
+    /**
+     * replace the current device planning problem by the given one,
+     * components of the previous problem which are still part of the new one keep their device (warm start)
+     * @param unsolvedDeviceRepresentation
+     * @param latencyBudgetMillis time in milliseconds to wait for the solution
+     * @return the solved DeviceRepresentation or null if no solution was found within the latency budget
+     */
+    public DeviceRepresentation planDevices(DeviceRepresentation unsolvedDeviceRepresentation, long latencyBudgetMillis) throws InterruptedException {
+        return deviceSolver.solve(unsolvedDeviceRepresentation, scoreDirector -> {
+            DeviceRepresentation workingSolution = (DeviceRepresentation) scoreDirector.getWorkingSolution();
+            List<PhraseModalityComponent> workingComponents = workingSolution.getPhraseModalityComponents();
+            List<PhraseModalityComponent> newComponents = unsolvedDeviceRepresentation.getPhraseModalityComponents();
+            //a component is kept if it has the same modality and refers to the same predicate element
+            Map<PhraseModalityComponent, PhraseModalityComponent> keptComponents = matchComponents(workingComponents, newComponents,
+                    (workingComponent, newComponent) -> workingComponent.getModality() == newComponent.getModality()
+                            && workingComponent.getPredicateElement().toString().equals(newComponent.getPredicateElement().toString()));
+            //remove the components of the previous predicate which are not part of the new one
+            removeComponents(scoreDirector, workingComponents, keptComponents);
+            for(Map.Entry<PhraseModalityComponent, PhraseModalityComponent> entry: keptComponents.entrySet()) {
+                PhraseModalityComponent newComponent = entry.getKey();
+                PhraseModalityComponent keptComponent = entry.getValue();
+                //a device which is no longer available has to be chosen again by the solver
+                if(keptComponent.getDevice() != null && !newComponent.getPossibleDeviceList().contains(keptComponent.getDevice())) {
+                    scoreDirector.beforeVariableChanged(keptComponent, "device");
+                    keptComponent.setDevice(null);
+                    scoreDirector.afterVariableChanged(keptComponent, "device");
+                }
+                if(keptComponent.getPredicateElement() != newComponent.getPredicateElement()
+                        || !Objects.equals(keptComponent.getArgumentObjectPosition(), newComponent.getArgumentObjectPosition())) {
+                    scoreDirector.beforeProblemFactChanged(newComponent.getPredicateElement());
+                    keptComponent.setPredicateElement(newComponent.getPredicateElement());
+                    keptComponent.setArgumentObjectPosition(newComponent.getArgumentObjectPosition());
+                    scoreDirector.afterProblemFactChanged(newComponent.getPredicateElement());
+                }
+            }
+            if(workingSolution.getDevices() != unsolvedDeviceRepresentation.getDevices()) {
+                scoreDirector.beforeProblemFactChanged(unsolvedDeviceRepresentation.getDevices());
+                workingSolution.setDevices(unsolvedDeviceRepresentation.getDevices());
+                scoreDirector.afterProblemFactChanged(unsolvedDeviceRepresentation.getDevices());
+            }
+            //add the components of the new predicate which have not been kept
+            addComponents(scoreDirector, workingComponents, newComponents, keptComponents);
+            scoreDirector.triggerVariableListeners();
+        }, latencyBudgetMillis);
+    }
+
+    /**
+     * replace the current modality planning problem by the given one using the default latency budget
+     * @param unsolvedModalityRepresentation
+     * @return the solved ModalityRepresentation or null if no solution was found within the latency budget
+     */
+    public ModalityRepresentation planModalities(ModalityRepresentation unsolvedModalityRepresentation) throws InterruptedException {
+        return planModalities(unsolvedModalityRepresentation, latencyBudgetMillis);
+    }
+
+    /**
+     * replace the current modality planning problem by the given one,
+     * components of the previous problem whose modality choices are still possible for the new one are kept (warm start)
+     * @param unsolvedModalityRepresentation
+     * @param latencyBudgetMillis time in milliseconds to wait for the solution
+     * @return the solved ModalityRepresentation or null if no solution was found within the latency budget
+     */
+    public ModalityRepresentation planModalities(ModalityRepresentation unsolvedModalityRepresentation, long latencyBudgetMillis) throws InterruptedException {
+        return modalitySolver.solve(unsolvedModalityRepresentation, scoreDirector -> {
+            ModalityRepresentation workingSolution = (ModalityRepresentation) scoreDirector.getWorkingSolution();
+            List<PhraseComponent> workingComponents = workingSolution.getPhraseComponents();
+            List<PhraseComponent> newComponents = unsolvedModalityRepresentation.getPhraseComponents();
+            //a component is kept if it refers to the same predicate element and its chosen modalities and speech output type are still possible
+            Map<PhraseComponent, PhraseComponent> keptComponents = matchComponents(workingComponents, newComponents,
+                    (workingComponent, newComponent) -> workingComponent.getPredicateElement().toString().equals(newComponent.getPredicateElement().toString())
+                            && findPowerSetModality(newComponent, workingComponent.getPowerSetModality()) != null
+                            && (workingComponent.getSpeechOutputType() == null ? newComponent.getPossibleSpeechOutputTypeList().isEmpty()
+                                    : newComponent.getPossibleSpeechOutputTypeList().contains(workingComponent.getSpeechOutputType())));
+            //remove the components of the previous predicate which are not part of the new one
+            removeComponents(scoreDirector, workingComponents, keptComponents);
+            for(Map.Entry<PhraseComponent, PhraseComponent> entry: keptComponents.entrySet()) {
+                PhraseComponent newComponent = entry.getKey();
+                PhraseComponent keptComponent = entry.getValue();
+                //the PowerSetModalities are created for each request -> refer to the equal one of the new problem
+                PowerSetModality powerSetModality = findPowerSetModality(newComponent, keptComponent.getPowerSetModality());
+                if(powerSetModality != keptComponent.getPowerSetModality()) {
+                    scoreDirector.beforeVariableChanged(keptComponent, "powerSetModality");
+                    keptComponent.setPowerSetModality(powerSetModality);
+                    scoreDirector.afterVariableChanged(keptComponent, "powerSetModality");
+                }
+                scoreDirector.beforeProblemFactChanged(newComponent.getPredicateElement());
+                keptComponent.setPredicateElement(newComponent.getPredicateElement());
+                keptComponent.setModalityRepresentationMap(newComponent.getModalityRepresentationMap());
+                keptComponent.setAttributiveObjectIdentifier(newComponent.getAttributiveObjectIdentifier());
+                keptComponent.setPossiblePowerSetModalityList(newComponent.getPossiblePowerSetModalityList());
+                keptComponent.setPossibleSpeechOutputTypeList(newComponent.getPossibleSpeechOutputTypeList());
+                scoreDirector.afterProblemFactChanged(newComponent.getPredicateElement());
+            }
+            //the problem facts are (almost always) the same for consecutive predicates, only the references are replaced
+            ArrayList<PowerSetModality> powerSetModalityList = new ArrayList<>(unsolvedModalityRepresentation.getPowerSetModalityList());
+            scoreDirector.beforeProblemFactChanged(powerSetModalityList);
+            workingSolution.setPowerSetModalityList(powerSetModalityList);
+            scoreDirector.afterProblemFactChanged(powerSetModalityList);
+            if(workingSolution.getSpeechOutputTypeList() != unsolvedModalityRepresentation.getSpeechOutputTypeList()) {
+                scoreDirector.beforeProblemFactChanged(unsolvedModalityRepresentation.getSpeechOutputTypeList());
+                workingSolution.setSpeechOutputTypeList(unsolvedModalityRepresentation.getSpeechOutputTypeList());
+                scoreDirector.afterProblemFactChanged(unsolvedModalityRepresentation.getSpeechOutputTypeList());
+            }
+            if(workingSolution.getSolvedDeviceRepresentation() != unsolvedModalityRepresentation.getSolvedDeviceRepresentation()) {
+                scoreDirector.beforeProblemFactChanged(unsolvedModalityRepresentation.getSolvedDeviceRepresentation());
+                workingSolution.setSolvedDeviceRepresentation(unsolvedModalityRepresentation.getSolvedDeviceRepresentation());
+                scoreDirector.afterProblemFactChanged(unsolvedModalityRepresentation.getSolvedDeviceRepresentation());
+            }
+            if(workingSolution.getScorer() != unsolvedModalityRepresentation.getScorer()) {
+                scoreDirector.beforeProblemFactChanged(unsolvedModalityRepresentation.getScorer());
+                workingSolution.setScorer(unsolvedModalityRepresentation.getScorer());
+                scoreDirector.afterProblemFactChanged(unsolvedModalityRepresentation.getScorer());
+            }
+            //add the components of the new predicate which have not been kept
+            addComponents(scoreDirector, workingComponents, newComponents, keptComponents);
+            scoreDirector.triggerVariableListeners();
+        }, latencyBudgetMillis);
+    }
+
+    /**
+     * assigns each new component the first unassigned working component matching it
+     * @param workingComponents planning entities of the running solver
+     * @param newComponents planning entities of the new request
+     * @param matches
+     * @param <T>
+     * @return map from new component to the working component which is kept for it (identity based, in the order of the new components)
+     */
+    private static <T> Map<T, T> matchComponents(List<T> workingComponents, List<T> newComponents, BiPredicate<T, T> matches) {
+        Map<T, T> keptComponents = new IdentityHashMap<>();
+        Set<T> assignedComponents = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+        for(T newComponent: newComponents) {
+            for(T workingComponent: workingComponents) {
+                if(!assignedComponents.contains(workingComponent) && matches.test(workingComponent, newComponent)) {
+                    assignedComponents.add(workingComponent);
+                    keptComponents.put(newComponent, workingComponent);
+                    break;
+                }
+            }
+        }
+        return keptComponents;
+    }
+
+    private static <T> void removeComponents(ScoreDirector scoreDirector, List<T> workingComponents, Map<T, T> keptComponents) {
+        Set<T> remainingComponents = Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+        remainingComponents.addAll(keptComponents.values());
+        for(T component: new ArrayList<>(workingComponents)) {
+            if(!remainingComponents.contains(component)) {
+                scoreDirector.beforeEntityRemoved(component);
+                workingComponents.remove(component);
+                scoreDirector.afterEntityRemoved(component);
+            }
+        }
+    }
+
+    /**
+     * brings the kept components into the order of the new request and adds the new components in between,
+     * the kept components are removed and added again if their order changes
+     */
+    private static <T> void addComponents(ScoreDirector scoreDirector, List<T> workingComponents, List<T> newComponents, Map<T, T> keptComponents) {
+        List<T> orderedKeptComponents = new ArrayList<>();
+        for(T component: newComponents) {
+            if(keptComponents.containsKey(component)) {
+                orderedKeptComponents.add(keptComponents.get(component));
+            }
+        }
+        //after removeComponents() only the kept components are left
+        boolean sameOrder = orderedKeptComponents.size() == workingComponents.size();
+        for(int i = 0; sameOrder && i < workingComponents.size(); i++) {
+            sameOrder = orderedKeptComponents.get(i) == workingComponents.get(i);
+        }
+        if(!sameOrder) {
+            for(T component: new ArrayList<>(workingComponents)) {
+                scoreDirector.beforeEntityRemoved(component);
+                workingComponents.remove(component);
+                scoreDirector.afterEntityRemoved(component);
+            }
+        }
+        boolean reorder = workingComponents.isEmpty();
+        for(int i = 0; i < newComponents.size(); i++) {
+            T keptComponent = keptComponents.get(newComponents.get(i));
+            T component = keptComponent != null ? keptComponent : newComponents.get(i);
+            if(keptComponent == null || reorder) {
+                scoreDirector.beforeEntityAdded(component);
+                workingComponents.add(i, component);
+                scoreDirector.afterEntityAdded(component);
+            }
+        }
+    }
+
+    /**
+     *
+     * @param component
+     * @param powerSetModality
+     * @return the PowerSetModality of the component's value range with the same modalities or null if there is none
+     */
+    private static PowerSetModality findPowerSetModality(PhraseComponent component, PowerSetModality powerSetModality) {
+        if(powerSetModality == null) {
+            return null;
+        }
+        for(PowerSetModality possiblePowerSetModality: component.getPossiblePowerSetModalityList()) {
+            if(possiblePowerSetModality.getModalitySet().equals(powerSetModality.getModalitySet())) {
+                return possiblePowerSetModality;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * the scorers read the world model and the output history directly,
+     * call this after these have been changed to let the running solvers rescore their current solutions
+     */
+    public void problemFactsChanged() {
+        deviceSolver.rescore();
+        modalitySolver.rescore();
+    }
+
+    /**
+     * terminate the running solvers
+     */
+    public void close() {
+        deviceSolver.terminate();
+        modalitySolver.terminate();
+    }
+
+    /**
+     * one solver running in daemon mode in its own thread,
+     * each request is answered with a copy of the best solution after the solver phases have finished (or the latency budget expired)
+     * @param <Solution_>
+     */
+    private static class DaemonSolver<Solution_ extends Solution<?>> extends PhaseLifecycleListenerAdapter implements SolverEventListener<Solution_> {
+
+        private final String solverKey;
+        private DefaultSolver<Solution_> solver;
+        private Thread solverThread;
+        //creates the copies of the best solutions which are returned
+        private InnerScoreDirector cloningScoreDirector;
+        //number of the current request, of the latest request the solver has already applied and of the latest request it has finished
+        private long requestedGeneration = 0;
+        private volatile long appliedGeneration = 0;
+        private long finishedGeneration = 0;
+        //best solution for the current request
+        private Solution_ bestSolution;
+
+        DaemonSolver(String solverKey) {
+            this.solverKey = solverKey;
+        }
+
+        synchronized Solution_ solve(Solution_ problem, ProblemFactChange replaceProblemChange, long latencyBudgetMillis) throws InterruptedException {
+            long generation = ++requestedGeneration;
+            bestSolution = null;
+            if(solver == null || !solverThread.isAlive()) {
+                //first request (or the solver was terminated): start a new daemon solver with the given problem
+                appliedGeneration = generation;
+                start(problem);
+            } else {
+                solver.addProblemFactChange(scoreDirector -> {
+                    replaceProblemChange.doChange(scoreDirector);
+                    appliedGeneration = generation;
+                });
+            }
+            long deadline = System.currentTimeMillis() + latencyBudgetMillis;
+            long remainingTime = latencyBudgetMillis;
+            while(finishedGeneration != generation && remainingTime > 0) {
+                wait(remainingTime);
+                remainingTime = deadline - System.currentTimeMillis();
+            }
+            if(bestSolution == null) {
+                System.out.println("Warning: no solution found by " + solverKey + " within " + latencyBudgetMillis + " ms.");
+                return null;
+            }
+            //the solver keeps working on the request until the next one, the caller gets its own copy
+            @SuppressWarnings("unchecked")
+            Solution_ solution = (Solution_) cloningScoreDirector.cloneSolution(bestSolution);
+            return solution;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void start(Solution_ problem) {
+            SolverFactory<Solution_> solverFactory = SolverRegistry.getInstance().<Solution_>getSolverFactory(solverKey).cloneSolverFactory();
+            solverFactory.getSolverConfig().setDaemon(true);
+            solver = (DefaultSolver<Solution_>) solverFactory.buildSolver();
+            solver.addEventListener(this);
+            solver.addPhaseLifecycleListener(this);
+            if(cloningScoreDirector == null) {
+                cloningScoreDirector = solver.getScoreDirectorFactory().buildScoreDirector();
+            }
+            DefaultSolver<Solution_> startedSolver = solver;
+            solverThread = new Thread(() -> startedSolver.solve(problem), solverKey);
+            solverThread.setDaemon(true);
+            solverThread.start();
+        }
+
+        @Override
+        public void bestSolutionChanged(BestSolutionChangedEvent<Solution_> event) {
+            //only accept initialized solutions which already contain the latest request
+            if(event.isEveryProblemFactChangeProcessed() && event.isNewBestSolutionInitialized()) {
+                synchronized (this) {
+                    if(appliedGeneration == requestedGeneration) {
+                        bestSolution = event.getNewBestSolution();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void solvingEnded(DefaultSolverScope solverScope) {
+            //all phases have finished (the daemon solver waits for the next problem fact change now)
+            synchronized (this) {
+                if(appliedGeneration == requestedGeneration && bestSolution != null) {
+                    finishedGeneration = requestedGeneration;
+                    notifyAll();
+                }
+            }
+        }
+
+        void rescore() {
+            if(solver != null && solver.isSolving()) {
+                //an empty change lets the solver recalculate the score of its working solution
+                solver.addProblemFactChange(ScoreDirector::triggerVariableListeners);
+            }
+        }
+
+        synchronized void terminate() {
+            if(solver != null) {
+                solver.terminateEarly();
+                solver = null;
+            }
+            if(cloningScoreDirector != null) {
+                cloningScoreDirector.dispose();
+                cloningScoreDirector = null;
+            }
+        }
+    }
+}
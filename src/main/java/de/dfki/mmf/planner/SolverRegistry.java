@@ -0,0 +1,259 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.planner;
+
+import org.optaplanner.core.api.domain.solution.Solution;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.SolverConfigContext;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.localsearch.LocalSearchType;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.core.impl.domain.entity.descriptor.EntityDescriptor;
+import org.optaplanner.core.impl.domain.solution.descriptor.SolutionDescriptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide registry for the solver factories used in the device and modality planning.
+ * Each solver configuration is parsed (and its annotated classes are scanned) only once,
+ * afterwards every planning request receives a new solver built from the cached factory
+ */
+public class SolverRegistry {
+
+    //keys of the solvers used by the controller
+    public static final String DEVICE_SOLVER = "deviceSolver";
+    public static final String MODALITY_SOLVER = "modalitySolver";
+    public static final String JOINT_SOLVER = "jointSolver";
+    //additional modality solvers used in the portfolio modality planning
+    public static final String MODALITY_TABU_SOLVER = "modalityTabuSolver";
+    public static final String MODALITY_LATE_ACCEPTANCE_SOLVER = "modalityLateAcceptanceSolver";
+    //daemon solvers of the planning session (the local search improves the kept components of the previous request)
+    public static final String DEVICE_SESSION_SOLVER = "deviceSessionSolver";
+    public static final String MODALITY_SESSION_SOLVER = "modalitySessionSolver";
+
+    private static volatile SolverRegistry registryInstance = new SolverRegistry();
+
+    //xml resource of the solver configuration used for each solver key
+    private final Map<String, String> solverConfigMap = new ConcurrentHashMap<>();
+    //cached solver factory for each solver key
+    private final Map<String, SolverFactory<?>> solverFactoryMap = new ConcurrentHashMap<>();
+    //time (in nanoseconds) needed for the first build (parsing, scanning and building the solver) and for the latest build
+    private final Map<String, Long> firstBuildTimeMap = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastBuildTimeMap = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> buildCountMap = new ConcurrentHashMap<>();
+
+    public static SolverRegistry getInstance() {
+        return registryInstance;
+    }
+
+    private SolverRegistry() {
+        solverConfigMap.put(DEVICE_SOLVER, "DeviceRepresentationSolverConfig.xml");
+        solverConfigMap.put(MODALITY_SOLVER, "ModalityRepresentationSolverConfig.xml");
+        solverConfigMap.put(JOINT_SOLVER, "JointRepresentationSolverConfig.xml");
+        solverConfigMap.put(MODALITY_TABU_SOLVER, "ModalityRepresentationTabuSolverConfig.xml");
+        solverConfigMap.put(MODALITY_LATE_ACCEPTANCE_SOLVER, "ModalityRepresentationLateAcceptanceSolverConfig.xml");
+        solverConfigMap.put(DEVICE_SESSION_SOLVER, "DeviceRepresentationSessionSolverConfig.xml");
+        solverConfigMap.put(MODALITY_SESSION_SOLVER, "ModalityRepresentationSessionSolverConfig.xml");
+    }
+
+    public String getSolverConfig(String solverKey) {
+        return solverConfigMap.get(solverKey);
+    }
+
+    /**
+     * register (or swap at runtime) the solver configuration used for a solver key,
+     * solvers which are currently solving keep their old configuration
+     * @param solverKey
+     * @param xmlResource classpath resource of the solver configuration
+     */
+    public void setSolverConfig(String solverKey, String xmlResource) {
+        if(xmlResource == null) {
+            throw new IllegalArgumentException("A solver configuration resource is required for solver " + solverKey + ".");
+        }
+        synchronized (this) {
+            solverConfigMap.put(solverKey, xmlResource);
+            solverFactoryMap.remove(solverKey);
+            firstBuildTimeMap.remove(solverKey);
+            lastBuildTimeMap.remove(solverKey);
+            buildCountMap.remove(solverKey);
+        }
+    }
+
+    /**
+     * builds the factories of all registered solvers eagerly (e.g. at startup) so that the first planning request does not pay for it
+     */
+    public void preload() {
+        for(String solverKey: solverConfigMap.keySet()) {
+            buildSolver(solverKey);
+        }
+    }
+
+    /**
+     *
+     * @param solverKey
+     * @return the cached solver factory for the solver key, created on first usage
+     */
+    @SuppressWarnings("unchecked")
+    public <Solution_ extends Solution<?>> SolverFactory<Solution_> getSolverFactory(String solverKey) {
+        SolverFactory<?> solverFactory = solverFactoryMap.get(solverKey);
+        if(solverFactory == null) {
+            synchronized (this) {
+                solverFactory = solverFactoryMap.get(solverKey);
+                if(solverFactory == null) {
+                    String xmlResource = solverConfigMap.get(solverKey);
+                    if(xmlResource == null) {
+                        throw new IllegalArgumentException("No solver configuration registered for solver " + solverKey + ".");
+                    }
+                    solverFactory = createSolverFactory(xmlResource);
+                    solverFactoryMap.put(solverKey, solverFactory);
+                }
+            }
+        }
+        return (SolverFactory<Solution_>) solverFactory;
+    }
+
+    /**
+     *
+     * @param solverKey
+     * @return a new solver for one planning request (solvers must not be shared between threads)
+     */
+    public <Solution_ extends Solution<?>> Solver<Solution_> buildSolver(String solverKey) {
+        long startTime = System.nanoTime();
+        SolverFactory<Solution_> solverFactory = getSolverFactory(solverKey);
+        Solver<Solution_> solver = solverFactory.buildSolver();
+        long buildTime = System.nanoTime() - startTime;
+        firstBuildTimeMap.putIfAbsent(solverKey, buildTime);
+        lastBuildTimeMap.put(solverKey, buildTime);
+        buildCountMap.computeIfAbsent(solverKey, key -> new AtomicLong()).incrementAndGet();
+        return solver;
+    }
+
+    /**
+     * builds a solver which additionally improves the constructed solution by local search for the given time,
+     * the construction heuristic phases are not limited so that the solution is always initialized.
+     * Local search phases of the configuration share the time, if there are none a late acceptance local search phase is added
+     * @param solverKey
+     * @param localSearchMillis time in milliseconds the local search may take
+     * @return a new solver for one planning request
+     */
+    public <Solution_ extends Solution<?>> Solver<Solution_> buildSolver(String solverKey, long localSearchMillis) {
+        if(localSearchMillis <= 0) {
+            throw new IllegalArgumentException("The local search time of solver " + solverKey + " must be positive, but is " + localSearchMillis + ".");
+        }
+        SolverFactory<Solution_> solverFactory = this.<Solution_>getSolverFactory(solverKey).cloneSolverFactory();
+        SolverConfig solverConfig = solverFactory.getSolverConfig();
+        //the phase list and the local search phases are copied, the configuration of the cached factory must not be changed
+        solverConfig.setPhaseConfigList(solverConfig.getPhaseConfigList() == null ? new ArrayList<>() : new ArrayList<>(solverConfig.getPhaseConfigList()));
+        List<LocalSearchPhaseConfig> localSearchPhaseConfigList = new ArrayList<>();
+        for(int i = 0; i < solverConfig.getPhaseConfigList().size(); i++) {
+            if(solverConfig.getPhaseConfigList().get(i) instanceof LocalSearchPhaseConfig) {
+                LocalSearchPhaseConfig localSearchPhaseConfig = new LocalSearchPhaseConfig();
+                localSearchPhaseConfig.inherit((LocalSearchPhaseConfig) solverConfig.getPhaseConfigList().get(i));
+                localSearchPhaseConfigList.add(localSearchPhaseConfig);
+                solverConfig.getPhaseConfigList().set(i, localSearchPhaseConfig);
+            }
+        }
+        if(localSearchPhaseConfigList.isEmpty()) {
+            LocalSearchPhaseConfig localSearchPhaseConfig = new LocalSearchPhaseConfig();
+            localSearchPhaseConfig.setLocalSearchType(LocalSearchType.LATE_ACCEPTANCE);
+            localSearchPhaseConfigList.add(localSearchPhaseConfig);
+            solverConfig.getPhaseConfigList().add(localSearchPhaseConfig);
+        }
+        for(LocalSearchPhaseConfig localSearchPhaseConfig: localSearchPhaseConfigList) {
+            TerminationConfig terminationConfig = new TerminationConfig();
+            terminationConfig.setMillisecondsSpentLimit(Math.max(1L, localSearchMillis / localSearchPhaseConfigList.size()));
+            localSearchPhaseConfig.setTerminationConfig(terminationConfig);
+        }
+        //a solver level termination would also stop the construction heuristic
+        solverConfig.setTerminationConfig(null);
+        return solverFactory.buildSolver();
+    }
+
+    /**
+     * parses the solver configuration and replaces the classpath scanning by the found classes,
+     * otherwise the annotated classes would be scanned again for each built solver
+     * @param xmlResource
+     * @return solver factory for the given configuration
+     */
+    private SolverFactory<?> createSolverFactory(String xmlResource) {
+        SolverFactory<?> solverFactory = SolverFactory.createFromXmlResource(xmlResource);
+        SolverConfig solverConfig = solverFactory.getSolverConfig();
+        if(solverConfig.getScanAnnotatedClassesConfig() != null) {
+            SolutionDescriptor solutionDescriptor = solverConfig.getScanAnnotatedClassesConfig().buildSolutionDescriptor(new SolverConfigContext());
+            List<Class<?>> entityClassList = new ArrayList<>();
+            for(EntityDescriptor entityDescriptor: solutionDescriptor.getGenuineEntityDescriptors()) {
+                entityClassList.add(entityDescriptor.getEntityClass());
+            }
+            solverConfig.setScanAnnotatedClassesConfig(null);
+            solverConfig.setSolutionClass(solutionDescriptor.getSolutionClass());
+            solverConfig.setEntityClassList(entityClassList);
+        }
+        return solverFactory;
+    }
+
+    /**
+     *
+     * @param solverKey
+     * @return time in milliseconds the first build took (including parsing the configuration and scanning the classes), -1.0 if not built yet
+     */
+    public double getFirstBuildTimeMillis(String solverKey) {
+        Long buildTime = firstBuildTimeMap.get(solverKey);
+        return buildTime == null ? -1.0 : buildTime/1000000.0;
+    }
+
+    /**
+     *
+     * @param solverKey
+     * @return time in milliseconds the latest build took, -1.0 if not built yet
+     */
+    public double getLastBuildTimeMillis(String solverKey) {
+        Long buildTime = lastBuildTimeMap.get(solverKey);
+        return buildTime == null ? -1.0 : buildTime/1000000.0;
+    }
+
+    public long getBuildCount(String solverKey) {
+        AtomicLong buildCount = buildCountMap.get(solverKey);
+        return buildCount == null ? 0 : buildCount.get();
+    }
+
+    /**
+     *
+     * @return the build times of all registered solvers in string format
+     */
+    public String getBuildTimeReport() {
+        String resultString = "";
+        for(String solverKey: solverConfigMap.keySet()) {
+            resultString += solverKey + " (" + solverConfigMap.get(solverKey) + "): first build " + getFirstBuildTimeMillis(solverKey)
+                    + " ms, latest build " + getLastBuildTimeMillis(solverKey) + " ms, " + getBuildCount(solverKey) + " builds\n";
+        }
+        return resultString;
+    }
+}
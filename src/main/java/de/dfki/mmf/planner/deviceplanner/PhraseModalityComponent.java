@@ -76,6 +76,10 @@ public class PhraseModalityComponent {
         return this.predicateElement;
     }
 
+    public void setPredicateElement(PredicateElement predicateElement) {
+        this.predicateElement = predicateElement;
+    }
+
     public Modality getModality() {
         return this.modality;
     }
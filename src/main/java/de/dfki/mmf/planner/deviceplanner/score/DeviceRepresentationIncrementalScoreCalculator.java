@@ -0,0 +1,238 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.planner.deviceplanner.score;
+
+import de.dfki.mmf.controller.Controller;
+import de.dfki.mmf.devices.Device;
+import de.dfki.mmf.input.worldmodel.UserModel;
+import de.dfki.mmf.input.worldmodel.WorldModel;
+import de.dfki.mmf.math.Position;
+import de.dfki.mmf.modalities.ModalityType;
+import de.dfki.mmf.modalities.SpeechModality;
+import de.dfki.mmf.planner.deviceplanner.DeviceRepresentation;
+import de.dfki.mmf.planner.deviceplanner.PhraseModalityComponent;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.impl.score.director.incremental.IncrementalScoreCalculator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental version of the DeviceRepresentationEasyScoreCalculator:
+ * the distance ranks of the possible devices of each phrase modality component (to the referred object and to the user)
+ * are calculated once per working solution, a changed device only rescores its own phrase modality component.
+ * The resulting score is the same as the one calculated by the DeviceRepresentationEasyScoreCalculator
+ */
+public class DeviceRepresentationIncrementalScoreCalculator implements IncrementalScoreCalculator<DeviceRepresentation> {
+
+    private DeviceRepresentation workingSolution;
+    //position of the user the robot is talking to, null if unknown
+    private Position userPosition;
+    //for each phrase modality component: number of other possible devices which are closer to the object/user than the given device
+    private final Map<PhraseModalityComponent, Map<Device, Integer>> objectDistanceRankMap = new IdentityHashMap<>();
+    private final Map<PhraseModalityComponent, Map<Device, Integer>> userDistanceRankMap = new IdentityHashMap<>();
+    //hardScore and softScore of each phrase modality component
+    private final Map<PhraseModalityComponent, int[]> componentScoreMap = new IdentityHashMap<>();
+    private int hardScore = 0;
+    private int softScore = 0;
+
+    @Override
+    public void resetWorkingSolution(DeviceRepresentation workingSolution) {
+        this.workingSolution = workingSolution;
+        userPosition = findUserPosition();
+        objectDistanceRankMap.clear();
+        userDistanceRankMap.clear();
+        componentScoreMap.clear();
+        hardScore = 0;
+        softScore = 0;
+        for(PhraseModalityComponent component: workingSolution.getPhraseModalityComponents()) {
+            insert(component);
+        }
+    }
+
+    @Override
+    public void beforeEntityAdded(Object entity) {
+        //nothing to do
+    }
+
+    @Override
+    public void afterEntityAdded(Object entity) {
+        insert((PhraseModalityComponent) entity);
+    }
+
+    @Override
+    public void beforeVariableChanged(Object entity, String variableName) {
+        retract((PhraseModalityComponent) entity);
+    }
+
+    @Override
+    public void afterVariableChanged(Object entity, String variableName) {
+        insert((PhraseModalityComponent) entity);
+    }
+
+    @Override
+    public void beforeEntityRemoved(Object entity) {
+        PhraseModalityComponent component = (PhraseModalityComponent) entity;
+        retract(component);
+        objectDistanceRankMap.remove(component);
+        userDistanceRankMap.remove(component);
+    }
+
+    @Override
+    public void afterEntityRemoved(Object entity) {
+        //nothing to do
+    }
+
+    private void insert(PhraseModalityComponent component) {
+        int componentHardScore = 0;
+        int componentSoftScore = 0;
+        Device device = component.getDevice();
+        //if devices are available -> using no device is wrong
+        if(device == null && !component.getPossibleDeviceList().isEmpty()) {
+            componentHardScore -= 1;
+        }
+        if(device != null && device.getDevicePosition() != null) {
+            //for some modalities and if the referred object is part of the world model -> use device which is close to the object
+            if(component.getArgumentObjectPosition() != null && !(component.getModality() instanceof SpeechModality)) {
+                Map<Device, Integer> distanceRanks = objectDistanceRankMap.get(component);
+                if(distanceRanks == null) {
+                    distanceRanks = calculateDistanceRanks(component.getPossibleDeviceList(), component.getArgumentObjectPosition());
+                    objectDistanceRankMap.put(component, distanceRanks);
+                }
+                componentSoftScore -= getDistanceRank(distanceRanks, device, component.getArgumentObjectPosition(), component.getPossibleDeviceList());
+            }
+            //for the choice of speech devices: use the one closest to the user
+            if(userPosition != null && component.getModality().getModalityType().equals(ModalityType.SPEECH)) {
+                Map<Device, Integer> distanceRanks = userDistanceRankMap.get(component);
+                if(distanceRanks == null) {
+                    distanceRanks = calculateDistanceRanks(component.getPossibleDeviceList(), userPosition);
+                    userDistanceRankMap.put(component, distanceRanks);
+                }
+                componentSoftScore -= getDistanceRank(distanceRanks, device, userPosition, component.getPossibleDeviceList());
+            }
+        }
+        componentScoreMap.put(component, new int[]{componentHardScore, componentSoftScore});
+        hardScore += componentHardScore;
+        softScore += componentSoftScore;
+    }
+
+    private void retract(PhraseModalityComponent component) {
+        int[] componentScore = componentScoreMap.remove(component);
+        if(componentScore != null) {
+            hardScore -= componentScore[0];
+            softScore -= componentScore[1];
+        }
+    }
+
+    /**
+     * only scenarios with one user are considered here (however can be adapted to several)
+     * @return position of the user the robot is talking to, null if there is no such user model
+     */
+    private Position findUserPosition() {
+        if(Controller.getTalkingToUserList() == null || Controller.getTalkingToUserList().isEmpty()) {
+            return null;
+        }
+        for(UserModel userModel: WorldModel.getUserModels()) {
+            if(userModel.getUserId().equals(Controller.getTalkingToUserList().get(0))) {
+                return userModel.getUserPosition();
+            }
+        }
+        return null;
+    }
+
+    /**
+     *
+     * @param possibleDevices
+     * @param position
+     * @return for each possible device (with a known position): number of possible devices which are closer to the position
+     */
+    private Map<Device, Integer> calculateDistanceRanks(List<Device> possibleDevices, Position position) {
+        double[] distances = new double[possibleDevices.size()];
+        int size = 0;
+        for(Device possibleDevice: possibleDevices) {
+            if(possibleDevice.getDevicePosition() != null) {
+                distances[size++] = possibleDevice.getDevicePosition().calculateDistance(position);
+            }
+        }
+        double[] sortedDistances = Arrays.copyOf(distances, size);
+        Arrays.sort(sortedDistances);
+        Map<Device, Integer> distanceRanks = new HashMap<>();
+        for(Device possibleDevice: possibleDevices) {
+            if(possibleDevice.getDevicePosition() != null) {
+                distanceRanks.put(possibleDevice, countCloser(sortedDistances, possibleDevice.getDevicePosition().calculateDistance(position)));
+            }
+        }
+        return distanceRanks;
+    }
+
+    private int getDistanceRank(Map<Device, Integer> distanceRanks, Device device, Position position, List<Device> possibleDevices) {
+        Integer distanceRank = distanceRanks.get(device);
+        if(distanceRank == null) {
+            //device is not part of the possible devices -> rank it against them
+            distanceRank = calculateDistanceRank(possibleDevices, device, position);
+        }
+        return distanceRank;
+    }
+
+    private int calculateDistanceRank(List<Device> possibleDevices, Device device, Position position) {
+        double usedDistance = device.getDevicePosition().calculateDistance(position);
+        int distanceRank = 0;
+        for(Device possibleDevice: possibleDevices) {
+            if(!possibleDevice.equals(device) && possibleDevice.getDevicePosition() != null
+                    && possibleDevice.getDevicePosition().calculateDistance(position) < usedDistance) {
+                distanceRank++;
+            }
+        }
+        return distanceRank;
+    }
+
+    /**
+     *
+     * @param sortedDistances
+     * @param distance
+     * @return number of distances which are strictly smaller than the given distance
+     */
+    private int countCloser(double[] sortedDistances, double distance) {
+        int low = 0;
+        int high = sortedDistances.length;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(sortedDistances[middle] < distance) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public HardSoftScore calculateScore() {
+        return HardSoftScore.valueOf(hardScore, softScore);
+    }
+}
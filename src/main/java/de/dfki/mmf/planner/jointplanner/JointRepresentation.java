@@ -0,0 +1,181 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.planner.jointplanner;
+
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+import de.dfki.mmf.devices.Device;
+import de.dfki.mmf.planner.deviceplanner.DeviceRepresentation;
+import de.dfki.mmf.planner.deviceplanner.PhraseModalityComponent;
+import de.dfki.mmf.planner.modalityplanner.ModalityRepresentation;
+import de.dfki.mmf.planner.modalityplanner.PhraseComponent;
+import de.dfki.mmf.planner.modalityplanner.PowerSetModality;
+import de.dfki.mmf.planner.modalityplanner.SpeechOutputType;
+import de.dfki.mmf.planner.modalityplanner.score.AbstractScorer;
+import org.optaplanner.core.api.domain.solution.PlanningEntityCollectionProperty;
+import org.optaplanner.core.api.domain.solution.PlanningSolution;
+import org.optaplanner.core.api.domain.solution.Solution;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@PlanningSolution
+@XStreamAlias("JointRepresentation")
+/**
+ * Solution class for planning devices and modalities in one solve: the phrase modality components of the device planning
+ * and the phrase components of the modality planning are planned together, so that the modality scorers
+ * (e.g. the TechnicalEfficiencyScorer) can influence the choice of the devices
+ */
+public class JointRepresentation implements Solution<HardSoftScore> {
+
+    //planning entities of the device planning
+    private List<PhraseModalityComponent> phraseModalityComponents = new ArrayList<>();
+    //planning entities of the modality planning
+    private List<PhraseComponent> phraseComponents = new ArrayList<>();
+    //problem facts of the device and the modality planning
+    private List<Device> devices = new ArrayList<>();
+    private List<PowerSetModality> powerSetModalityList = new ArrayList<>();
+    private List<SpeechOutputType> speechOutputTypeList = new ArrayList<>();
+    //list of used scorers
+    private List<AbstractScorer> scorer = new ArrayList<>();
+
+    private HardSoftScore score;
+
+    public JointRepresentation() {
+
+    }
+
+    /**
+     * combines the unsolved representations of the device and the modality planning
+     * @param deviceRepresentation
+     * @param modalityRepresentation
+     */
+    public JointRepresentation(DeviceRepresentation deviceRepresentation, ModalityRepresentation modalityRepresentation) {
+        this.phraseModalityComponents = deviceRepresentation.getPhraseModalityComponents();
+        this.devices = deviceRepresentation.getDevices();
+        this.phraseComponents = modalityRepresentation.getPhraseComponents();
+        this.powerSetModalityList = modalityRepresentation.getPowerSetModalityList();
+        this.speechOutputTypeList = modalityRepresentation.getSpeechOutputTypeList();
+        this.scorer = modalityRepresentation.getScorer();
+    }
+
+    @PlanningEntityCollectionProperty
+    public List<PhraseModalityComponent> getPhraseModalityComponents() {
+        return phraseModalityComponents;
+    }
+
+    public void setPhraseModalityComponents(List<PhraseModalityComponent> phraseModalityComponents) {
+        this.phraseModalityComponents = phraseModalityComponents;
+    }
+
+    @PlanningEntityCollectionProperty
+    public List<PhraseComponent> getPhraseComponents() {
+        return phraseComponents;
+    }
+
+    public void setPhraseComponents(List<PhraseComponent> phraseComponents) {
+        this.phraseComponents = phraseComponents;
+    }
+
+    public List<Device> getDevices() {
+        return devices;
+    }
+
+    public void setDevices(List<Device> devices) {
+        this.devices = devices;
+    }
+
+    public List<PowerSetModality> getPowerSetModalityList() {
+        return powerSetModalityList;
+    }
+
+    public void setPowerSetModalityList(List<PowerSetModality> powerSetModalityList) {
+        this.powerSetModalityList = powerSetModalityList;
+    }
+
+    public List<SpeechOutputType> getSpeechOutputTypeList() {
+        return speechOutputTypeList;
+    }
+
+    public void setSpeechOutputTypeList(List<SpeechOutputType> speechOutputTypeList) {
+        this.speechOutputTypeList = speechOutputTypeList;
+    }
+
+    public List<AbstractScorer> getScorer() {
+        return scorer;
+    }
+
+    public void setScorer(List<AbstractScorer> scorer) {
+        this.scorer = scorer;
+    }
+
+    public HardSoftScore getScore() {
+        return score;
+    }
+
+    public void setScore(HardSoftScore score) {
+        this.score = score;
+    }
+
+    /**
+     *
+     * @return DeviceRepresentation sharing the phrase modality components of this solution
+     */
+    public DeviceRepresentation createDeviceRepresentation() {
+        DeviceRepresentation deviceRepresentation = new DeviceRepresentation();
+        deviceRepresentation.setPhraseModalityComponents(phraseModalityComponents);
+        deviceRepresentation.setDevices(devices);
+        return deviceRepresentation;
+    }
+
+    /**
+     *
+     * @param deviceRepresentation device planning result the modality scorers should use
+     * @return ModalityRepresentation sharing the phrase components of this solution
+     */
+    public ModalityRepresentation createModalityRepresentation(DeviceRepresentation deviceRepresentation) {
+        ModalityRepresentation modalityRepresentation = new ModalityRepresentation();
+        modalityRepresentation.setPhraseComponents(phraseComponents);
+        modalityRepresentation.setPowerSetModalityList(new ArrayList<>(powerSetModalityList));
+        modalityRepresentation.setSpeechOutputTypeList(speechOutputTypeList);
+        modalityRepresentation.setScorer(scorer);
+        modalityRepresentation.setSolvedDeviceRepresentation(deviceRepresentation);
+        return modalityRepresentation;
+    }
+
+    // ************************************************************************
+    // Complex methods
+    // ************************************************************************
+
+    public Collection<? extends Object> getProblemFacts() {
+        List<Object> facts = new ArrayList<Object>();
+        facts.addAll(devices);
+        facts.addAll(powerSetModalityList);
+        facts.addAll(speechOutputTypeList);
+        // Do not add the planning entity's because that will be done automatically
+        return facts;
+    }
+}
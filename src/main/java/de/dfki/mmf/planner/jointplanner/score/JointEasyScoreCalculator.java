@@ -0,0 +1,50 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.planner.jointplanner.score;
+
+import de.dfki.mmf.planner.deviceplanner.DeviceRepresentation;
+import de.dfki.mmf.planner.deviceplanner.score.DeviceRepresentationEasyScoreCalculator;
+import de.dfki.mmf.planner.jointplanner.JointRepresentation;
+import de.dfki.mmf.planner.modalityplanner.score.FusionScorer;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.impl.score.director.easy.EasyScoreCalculator;
+
+/**
+ * Scorer for the joint planning: sum of the scores of the device planning (DeviceRepresentationEasyScoreCalculator)
+ * and of the modality planning (FusionScorer)
+ */
+public class JointEasyScoreCalculator implements EasyScoreCalculator<JointRepresentation> {
+
+    private final DeviceRepresentationEasyScoreCalculator deviceScoreCalculator = new DeviceRepresentationEasyScoreCalculator();
+    private final FusionScorer fusionScorer = new FusionScorer();
+
+    @Override
+    public HardSoftScore calculateScore(JointRepresentation jointRepresentation) {
+        DeviceRepresentation deviceRepresentation = jointRepresentation.createDeviceRepresentation();
+        HardSoftScore deviceScore = (HardSoftScore) deviceScoreCalculator.calculateScore(deviceRepresentation);
+        HardSoftScore modalityScore = (HardSoftScore) fusionScorer.calculateScore(jointRepresentation.createModalityRepresentation(deviceRepresentation));
+        return deviceScore.add(modalityScore);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.planner.jointplanner.score;
+
+import de.dfki.mmf.planner.deviceplanner.DeviceRepresentation;
+import de.dfki.mmf.planner.deviceplanner.PhraseModalityComponent;
+import de.dfki.mmf.planner.deviceplanner.score.DeviceRepresentationIncrementalScoreCalculator;
+import de.dfki.mmf.planner.jointplanner.JointRepresentation;
+import de.dfki.mmf.planner.modalityplanner.ModalityRepresentation;
+import de.dfki.mmf.planner.modalityplanner.PhraseComponent;
+import de.dfki.mmf.planner.modalityplanner.score.FusionIncrementalScoreCalculator;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.impl.score.director.incremental.IncrementalScoreCalculator;
+
+/**
+ * Incremental version of the JointEasyScoreCalculator: the events of the phrase modality components are passed to the
+ * DeviceRepresentationIncrementalScoreCalculator and the events of the phrase components to the FusionIncrementalScoreCalculator.
+ * A changed device also rescores the phrase components of the same predicate element since the modality scorers depend on the devices
+ */
+public class JointIncrementalScoreCalculator implements IncrementalScoreCalculator<JointRepresentation> {
+
+    private final DeviceRepresentationIncrementalScoreCalculator deviceScoreCalculator = new DeviceRepresentationIncrementalScoreCalculator();
+    private final FusionIncrementalScoreCalculator modalityScoreCalculator = new FusionIncrementalScoreCalculator();
+
+    //views on the working solution used by the two score calculators
+    private ModalityRepresentation modalityRepresentation;
+
+    @Override
+    public void resetWorkingSolution(JointRepresentation workingSolution) {
+        DeviceRepresentation deviceRepresentation = workingSolution.createDeviceRepresentation();
+        modalityRepresentation = workingSolution.createModalityRepresentation(deviceRepresentation);
+        deviceScoreCalculator.resetWorkingSolution(deviceRepresentation);
+        modalityScoreCalculator.resetWorkingSolution(modalityRepresentation);
+    }
+
+    @Override
+    public void beforeEntityAdded(Object entity) {
+        if(entity instanceof PhraseModalityComponent) {
+            deviceScoreCalculator.beforeEntityAdded(entity);
+        } else {
+            modalityScoreCalculator.beforeEntityAdded(entity);
+        }
+    }
+
+    @Override
+    public void afterEntityAdded(Object entity) {
+        if(entity instanceof PhraseModalityComponent) {
+            deviceScoreCalculator.afterEntityAdded(entity);
+            modalityScoreCalculator.resetWorkingSolution(modalityRepresentation);
+        } else {
+            modalityScoreCalculator.afterEntityAdded(entity);
+        }
+    }
+
+    @Override
+    public void beforeVariableChanged(Object entity, String variableName) {
+        if(entity instanceof PhraseModalityComponent) {
+            deviceScoreCalculator.beforeVariableChanged(entity, variableName);
+            //the phrase components of the same predicate element are rescored with the new device
+            String element = ((PhraseModalityComponent) entity).getPredicateElement().toString();
+            for(PhraseComponent argument: modalityRepresentation.getPhraseComponents()) {
+                if(argument.getPredicateElement().toString().equals(element)) {
+                    modalityScoreCalculator.beforeVariableChanged(argument, variableName);
+                }
+            }
+        } else {
+            modalityScoreCalculator.beforeVariableChanged(entity, variableName);
+        }
+    }
+
+    @Override
+    public void afterVariableChanged(Object entity, String variableName) {
+        if(entity instanceof PhraseModalityComponent) {
+            deviceScoreCalculator.afterVariableChanged(entity, variableName);
+        } else {
+            modalityScoreCalculator.afterVariableChanged(entity, variableName);
+        }
+    }
+
+    @Override
+    public void beforeEntityRemoved(Object entity) {
+        if(entity instanceof PhraseModalityComponent) {
+            deviceScoreCalculator.beforeEntityRemoved(entity);
+        } else {
+            modalityScoreCalculator.beforeEntityRemoved(entity);
+        }
+    }
+
+    @Override
+    public void afterEntityRemoved(Object entity) {
+        if(entity instanceof PhraseModalityComponent) {
+            deviceScoreCalculator.afterEntityRemoved(entity);
+            modalityScoreCalculator.resetWorkingSolution(modalityRepresentation);
+        } else {
+            modalityScoreCalculator.afterEntityRemoved(entity);
+        }
+    }
+
+    @Override
+    public HardSoftScore calculateScore() {
+        HardSoftScore deviceScore = deviceScoreCalculator.calculateScore();
+        HardSoftScore modalityScore = modalityScoreCalculator.calculateScore();
+        return deviceScore.add(modalityScore);
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.planner.modalityplanner;
+
+import de.dfki.mmf.planner.SolverRegistry;
+import de.dfki.mmf.planner.modalityplanner.score.AbstractComponentScorer;
+import de.dfki.mmf.planner.modalityplanner.score.AbstractScorer;
+import de.dfki.mmf.planner.modalityplanner.score.FusionIncrementalScoreCalculator;
+import de.dfki.mmf.planner.modalityplanner.score.FusionScorer;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.api.solver.Solver;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Exact modality planning for small predicates: all combinations of the value ranges of the phrase components are searched
+ * depth-first with branch and bound. The bound of a partial combination is the sum of the best hardScores of the phrase components
+ * and, if all scorers are AbstractComponentScorers, the softScore bound of each scorer for the best component scores of the
+ * unassigned phrase components. The softScore of each complete combination is calculated with the FusionIncrementalScoreCalculator
+ * so that only the changed phrase components are rescored. The result is the best ModalityRepresentation with respect to the FusionScorer,
+ * if there are several best ones the first in the order of the value ranges is chosen.
+ * Predicates with too many combinations are left to the solver.
+ * The engine keeps no state between calls, it can be used by several threads at once
+ */
+public class ExactModalityPlanningEngine implements ModalityPlanningEngine {
+
+    //default limit: even without softScore bound (about 6 microseconds per combination) the search is not slower than the construction heuristic of the solver
+    public static final long DEFAULT_MAX_COMBINATIONS = 10000;
+
+    private static final List<SpeechOutputType> NO_SPEECH_OUTPUT_TYPE = Collections.singletonList(null);
+
+    private final FusionScorer fusionScorer = new FusionScorer();
+    //maximal number of combinations which are searched, if there are more the solver is used
+    private volatile long maxCombinations = DEFAULT_MAX_COMBINATIONS;
+    //solve each predicate additionally with the solver and compare the scores
+    private volatile boolean verify = false;
+
+    public long getMaxCombinations() {
+        return maxCombinations;
+    }
+
+    public void setMaxCombinations(long maxCombinations) {
+        this.maxCombinations = maxCombinations;
+    }
+
+    public boolean isVerify() {
+        return verify;
+    }
+
+    public void setVerify(boolean verify) {
+        this.verify = verify;
+    }
+
+    @Override
+    public ModalityRepresentation solve(ModalityRepresentation modalityRepresentation) {
+        long combinations = countCombinations(modalityRepresentation.getPhraseComponents());
+        long maxCombinations = this.maxCombinations;
+        if(combinations == 0 || combinations > maxCombinations) {
+            System.out.println("Exact modality planning skipped: " + combinations + " combinations (limit " + maxCombinations + ").");
+            return null;
+        }
+        //solve with the solver first since it does not initialize phrase components which have already been initialized
+        ModalityRepresentation solverModalityRepresentation = null;
+        if(verify) {
+            Solver<ModalityRepresentation> modalitySolver = SolverRegistry.getInstance().buildSolver(SolverRegistry.MODALITY_SOLVER);
+            solverModalityRepresentation = modalitySolver.solve(modalityRepresentation);
+        }
+
+        long startTime = System.nanoTime();
+        Search search = new Search(modalityRepresentation);
+        search.search(0);
+        if(Thread.currentThread().isInterrupted()) {
+            //cancelled (e.g. at the deadline of the portfolio modality planning)
+            System.out.println("Exact modality planning interrupted after " + search.evaluatedCombinations + " of " + combinations + " combinations.");
+            return null;
+        }
+        search.applyBestCombination();
+        System.out.println("Exact modality planning: " + search.evaluatedCombinations + " of " + combinations + " combinations evaluated in "
+                + (System.nanoTime() - startTime)/1000 + " microseconds, best score (" + modalityRepresentation.getScore() + ").");
+        if(solverModalityRepresentation != null) {
+            compareWithSolver(modalityRepresentation, solverModalityRepresentation);
+        }
+        return modalityRepresentation;
+    }
+
+    /**
+     * state of the search for one ModalityRepresentation
+     */
+    private class Search {
+
+        private final ModalityRepresentation modalityRepresentation;
+        private final List<PhraseComponent> phraseComponents;
+        private final FusionIncrementalScoreCalculator scoreCalculator = new FusionIncrementalScoreCalculator();
+        private final List<AbstractScorer> scorers;
+        //component scorers of the scorers in the same order, null if the softScore cannot be bounded
+        private final AbstractComponentScorer[] componentScorers;
+        //for each phrase component and scorer: component score of each value and the best and worst component score
+        private int[][][] componentScores;
+        private int[][] maxComponentScores;
+        private int[][] minComponentScores;
+        //sums of the best hardScores and of the best and worst component scores of the phrase components from the given index on
+        private final int[] remainingMaxHardScores;
+        private int[][] remainingMaxComponentScores;
+        private int[][] remainingMinComponentScores;
+        //hardScore and component scores of the assigned phrase components
+        private final int[] partialHardScores;
+        private int[][] partialComponentScores;
+        private HardSoftScore bestScore;
+        private final PowerSetModality[] bestPowerSetModalities;
+        private final SpeechOutputType[] bestSpeechOutputTypes;
+        private long evaluatedCombinations = 0;
+
+        Search(ModalityRepresentation modalityRepresentation) {
+            this.modalityRepresentation = modalityRepresentation;
+            phraseComponents = modalityRepresentation.getPhraseComponents();
+            scorers = modalityRepresentation.getScorer();
+            int size = phraseComponents.size();
+            componentScorers = getComponentScorers(scorers);
+            remainingMaxHardScores = new int[size + 1];
+            partialHardScores = new int[size + 1];
+            bestPowerSetModalities = new PowerSetModality[size];
+            bestSpeechOutputTypes = new SpeechOutputType[size];
+            int[] maxHardScores = new int[size];
+            if(componentScorers != null) {
+                componentScores = new int[size][][];
+                maxComponentScores = new int[size][componentScorers.length];
+                minComponentScores = new int[size][componentScorers.length];
+                remainingMaxComponentScores = new int[size + 1][componentScorers.length];
+                remainingMinComponentScores = new int[size + 1][componentScorers.length];
+                partialComponentScores = new int[size + 1][componentScorers.length];
+            }
+            //rate each value of each phrase component on its own before the search
+            for(int i = 0; i < size; i++) {
+                PhraseComponent argument = phraseComponents.get(i);
+                List<SpeechOutputType> speechOutputTypes = getSpeechOutputTypes(argument);
+                int valueCount = argument.getPossiblePowerSetModalityList().size() * speechOutputTypes.size();
+                maxHardScores[i] = Integer.MIN_VALUE;
+                if(componentScorers != null) {
+                    componentScores[i] = new int[valueCount][];
+                }
+                int value = 0;
+                for(PowerSetModality powerSetModality: argument.getPossiblePowerSetModalityList()) {
+                    for(SpeechOutputType speechOutputType: speechOutputTypes) {
+                        argument.setPowerSetModality(powerSetModality);
+                        argument.setSpeechOutputType(speechOutputType);
+                        maxHardScores[i] = Math.max(maxHardScores[i], fusionScorer.getHardConstraint(argument));
+                        if(componentScorers != null) {
+                            int[] scores = new int[componentScorers.length];
+                            for(int j = 0; j < componentScorers.length; j++) {
+                                scores[j] = componentScorers[j].calculateComponentScore(argument, modalityRepresentation);
+                                maxComponentScores[i][j] = value == 0 ? scores[j] : Math.max(maxComponentScores[i][j], scores[j]);
+                                minComponentScores[i][j] = value == 0 ? scores[j] : Math.min(minComponentScores[i][j], scores[j]);
+                            }
+                            componentScores[i][value] = scores;
+                        }
+                        value++;
+                    }
+                }
+                argument.setPowerSetModality(null);
+                argument.setSpeechOutputType(null);
+            }
+            for(int i = size - 1; i >= 0; i--) {
+                remainingMaxHardScores[i] = remainingMaxHardScores[i + 1] + maxHardScores[i];
+                if(componentScorers != null) {
+                    for(int j = 0; j < componentScorers.length; j++) {
+                        remainingMaxComponentScores[i][j] = remainingMaxComponentScores[i + 1][j] + maxComponentScores[i][j];
+                        remainingMinComponentScores[i][j] = remainingMinComponentScores[i + 1][j] + minComponentScores[i][j];
+                    }
+                }
+            }
+            scoreCalculator.resetWorkingSolution(modalityRepresentation);
+        }
+
+        void search(int depth) {
+            if(Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            if(depth == phraseComponents.size()) {
+                evaluatedCombinations++;
+                HardSoftScore score = scoreCalculator.calculateScore();
+                if(bestScore == null || score.compareTo(bestScore) > 0) {
+                    bestScore = score;
+                    for(int i = 0; i < phraseComponents.size(); i++) {
+                        bestPowerSetModalities[i] = phraseComponents.get(i).getPowerSetModality();
+                        bestSpeechOutputTypes[i] = phraseComponents.get(i).getSpeechOutputType();
+                    }
+                }
+                return;
+            }
+            PhraseComponent argument = phraseComponents.get(depth);
+            int value = 0;
+            for(PowerSetModality powerSetModality: argument.getPossiblePowerSetModalityList()) {
+                for(SpeechOutputType speechOutputType: getSpeechOutputTypes(argument)) {
+                    setPlanningVariables(argument, powerSetModality, speechOutputType);
+                    partialHardScores[depth + 1] = partialHardScores[depth] + fusionScorer.getHardConstraint(argument);
+                    if(componentScorers != null) {
+                        for(int j = 0; j < componentScorers.length; j++) {
+                            partialComponentScores[depth + 1][j] = partialComponentScores[depth][j] + componentScores[depth][value][j];
+                        }
+                    }
+                    if(canImprove(depth + 1)) {
+                        search(depth + 1);
+                    }
+                    value++;
+                }
+            }
+        }
+
+        /**
+         *
+         * @param assignedCount number of assigned phrase components
+         * @return false if no combination of the unassigned phrase components can be better than the best combination found so far
+         */
+        private boolean canImprove(int assignedCount) {
+            if(bestScore == null) {
+                return true;
+            }
+            int hardScoreBound = partialHardScores[assignedCount] + remainingMaxHardScores[assignedCount];
+            if(hardScoreBound != bestScore.getHardScore()) {
+                return hardScoreBound > bestScore.getHardScore();
+            }
+            if(componentScorers == null) {
+                return true;
+            }
+            int[] softScoreBounds = new int[componentScorers.length];
+            for(int j = 0; j < componentScorers.length; j++) {
+                softScoreBounds[j] = componentScorers[j].getSoftScoreBound(
+                        partialComponentScores[assignedCount][j] + remainingMinComponentScores[assignedCount][j],
+                        partialComponentScores[assignedCount][j] + remainingMaxComponentScores[assignedCount][j],
+                        phraseComponents.size());
+            }
+            return FusionScorer.getWeightedSoftScore(scorers, softScoreBounds) > bestScore.getSoftScore();
+        }
+
+        private void applyBestCombination() {
+            for(int i = 0; i < phraseComponents.size(); i++) {
+                setPlanningVariables(phraseComponents.get(i), bestPowerSetModalities[i], bestSpeechOutputTypes[i]);
+            }
+            modalityRepresentation.setScore(scoreCalculator.calculateScore());
+        }
+
+        private void setPlanningVariables(PhraseComponent argument, PowerSetModality powerSetModality, SpeechOutputType speechOutputType) {
+            if(argument.getPowerSetModality() != powerSetModality) {
+                scoreCalculator.beforeVariableChanged(argument, "powerSetModality");
+                argument.setPowerSetModality(powerSetModality);
+                scoreCalculator.afterVariableChanged(argument, "powerSetModality");
+            }
+            if(argument.getSpeechOutputType() != speechOutputType) {
+                scoreCalculator.beforeVariableChanged(argument, "speechOutputType");
+                argument.setSpeechOutputType(speechOutputType);
+                scoreCalculator.afterVariableChanged(argument, "speechOutputType");
+            }
+        }
+    }
+
+    /**
+     *
+     * @param scorers
+     * @return the scorers as AbstractComponentScorers or null if one of them is none or has a negative weight
+     * (then the softScore of a partial combination cannot be bounded)
+     */
+    private static AbstractComponentScorer[] getComponentScorers(List<AbstractScorer> scorers) {
+        AbstractComponentScorer[] componentScorers = new AbstractComponentScorer[scorers.size()];
+        for(int i = 0; i < scorers.size(); i++) {
+            if(!(scorers.get(i) instanceof AbstractComponentScorer) || scorers.get(i).getWeight() < 0) {
+                return null;
+            }
+            componentScorers[i] = (AbstractComponentScorer) scorers.get(i);
+        }
+        return componentScorers;
+    }
+
+    /**
+     *
+     * @param argument
+     * @return the speech output types which are searched for the phrase component: null if it does not refer to a world object
+     * (null is never better for other phrase components since it breaks the hard constraint)
+     */
+    private static List<SpeechOutputType> getSpeechOutputTypes(PhraseComponent argument) {
+        List<SpeechOutputType> speechOutputTypes = argument.getPossibleSpeechOutputTypeList();
+        return speechOutputTypes.isEmpty() ? NO_SPEECH_OUTPUT_TYPE : speechOutputTypes;
+    }
+
+    /**
+     *
+     * @param phraseComponents
+     * @return number of combinations of the value ranges of the phrase components (Long.MAX_VALUE on overflow)
+     */
+    private long countCombinations(List<PhraseComponent> phraseComponents) {
+        long combinations = 1;
+        for(PhraseComponent argument: phraseComponents) {
+            long argumentCombinations = (long) argument.getPossiblePowerSetModalityList().size() * getSpeechOutputTypes(argument).size();
+            if(argumentCombinations == 0) {
+                return 0;
+            }
+            if(combinations > Long.MAX_VALUE / argumentCombinations) {
+                return Long.MAX_VALUE;
+            }
+            combinations *= argumentCombinations;
+        }
+        return combinations;
+    }
+
+    private void compareWithSolver(ModalityRepresentation exactModalityRepresentation, ModalityRepresentation solverModalityRepresentation) {
+        int comparison = exactModalityRepresentation.getScore().compareTo(solverModalityRepresentation.getScore());
+        if(comparison < 0) {
+            System.out.println("Warning: the solver found a better modality representation (" + solverModalityRepresentation.getScore()
+                    + ") than the exact modality planning (" + exactModalityRepresentation.getScore() + ").");
+        } else {
+            System.out.println("Exact modality planning verified: solver score (" + solverModalityRepresentation.getScore()
+                    + "), exact score (" + exactModalityRepresentation.getScore() + ")" + (comparison > 0 ? ", the solver result is not optimal." : "."));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.planner.modalityplanner;
+
+/**
+ * Planning engine which can be used by the controller instead of the OptaPlanner solver to plan the modalities
+ */
+public interface ModalityPlanningEngine {
+
+    /**
+     *
+     * @param modalityRepresentation unsolved modality representation (phrase components, value ranges and scorers are set)
+     * @return the solved ModalityRepresentation or null if the engine cannot solve the problem (the controller uses the solver instead)
+     */
+    ModalityRepresentation solve(ModalityRepresentation modalityRepresentation);
+
+    /**
+     * solve within the given latency budget, by default the budget is ignored
+     * @param modalityRepresentation unsolved modality representation (phrase components, value ranges and scorers are set)
+     * @param latencyBudgetMillis time in milliseconds the planning may take
+     * @return the solved ModalityRepresentation or null if the engine cannot solve the problem (the controller uses the solver instead)
+     */
+    default ModalityRepresentation solve(ModalityRepresentation modalityRepresentation, long latencyBudgetMillis) {
+        return solve(modalityRepresentation);
+    }
+}
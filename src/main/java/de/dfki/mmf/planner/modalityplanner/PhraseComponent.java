@@ -29,15 +29,19 @@ import de.dfki.mmf.attributeselection.AttributiveObjectIdentifier;
 import de.dfki.mmf.input.predicates.PredicateElement;
 import de.dfki.mmf.modalities.ModalityType;
 import org.optaplanner.core.api.domain.entity.PlanningEntity;
+import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
 import org.optaplanner.core.api.domain.variable.PlanningVariable;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Created by Magdalena Kaiser on 01.08.2016.
  */
-@PlanningEntity
+@PlanningEntity(difficultyComparatorClass = PhraseComponentDifficultyComparator.class)
 @XStreamAlias("PhraseComponent")
 /**
  * Planning entity containing the predicate element for which a suitable set of modalities should be chosen
@@ -52,8 +56,12 @@ public class PhraseComponent {
     private Map<ModalityType, Double> modalityRepresentationMap = new EnumMap<ModalityType, Double>(ModalityType.class);
     //attributive identifier for elements referring to world objects otherwise null
     private AttributiveObjectIdentifier attributiveObjectIdentifier;
-    //possible speech output type for elements referring to world objects
+    //possible speech output type for elements referring to world objects, null for all other elements
     private SpeechOutputType speechOutputType;
+    //speech output types which can be chosen if the element refers to a world object
+    private List<SpeechOutputType> possibleSpeechOutputTypeList = new ArrayList<>();
+    //PowersetModalities which only contain modalities able to represent the predicate element
+    private List<PowerSetModality> possiblePowerSetModalityList = new ArrayList<>();
 
     public PhraseComponent() {
 
@@ -67,11 +75,15 @@ public class PhraseComponent {
         return this.predicateElement;
     }
 
+    public void setPredicateElement(PredicateElement predicateElement) {
+        this.predicateElement = predicateElement;
+    }
+
     public String toString() {
         return this.predicateElement.toString();
     }
 
-    @PlanningVariable(valueRangeProviderRefs = {"modalityRange"})
+    @PlanningVariable(valueRangeProviderRefs = {"possibleModalityRange"})
     public PowerSetModality getPowerSetModality() {
         return powerSetModality;
     }
@@ -81,7 +93,8 @@ public class PhraseComponent {
     }
 
 
-    @PlanningVariable(valueRangeProviderRefs = {"speechOutputRange"})
+    //nullable: elements without attributive identifier keep null since their speech output type range is empty
+    @PlanningVariable(valueRangeProviderRefs = {"possibleSpeechOutputRange"}, nullable = true)
     public  SpeechOutputType getSpeechOutputType() {
         return speechOutputType;
     }
@@ -91,6 +104,68 @@ public class PhraseComponent {
     }
 
 
+    @ValueRangeProvider(id = "possibleModalityRange")
+    public List<PowerSetModality> getPossiblePowerSetModalityList() {
+        return possiblePowerSetModalityList;
+    }
+
+    public void setPossiblePowerSetModalityList(List<PowerSetModality> possiblePowerSetModalityList) {
+        this.possiblePowerSetModalityList = possiblePowerSetModalityList;
+    }
+
+    /**
+     * restricts the value range of this phrase component to the PowersetModalities which do not break the hard constraint
+     * of the FusionScorer, requires the modalityRepresentationMap to be set
+     * @param powerSetModalities all PowersetModalities of the modality representation
+     */
+    public void filterPossiblePowerSetModalities(List<PowerSetModality> powerSetModalities) {
+        possiblePowerSetModalityList = new ArrayList<>();
+        for(PowerSetModality powerSetModality: powerSetModalities) {
+            if(canRepresent(powerSetModality)) {
+                possiblePowerSetModalityList.add(powerSetModality);
+            }
+        }
+    }
+
+    /**
+     *
+     * @param powerSetModality
+     * @return false if one of its modalities has a presentation value below 0.5,
+     * for the empty set false if a modality has a presentation value above 0.5
+     */
+    public boolean canRepresent(PowerSetModality powerSetModality) {
+        if(powerSetModality.getModalitySet().isEmpty()) {
+            for(Double presentationValue: modalityRepresentationMap.values()) {
+                if(presentationValue > 0.5) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for(ModalityType modalityType: powerSetModality.getModalitySet()) {
+            if(modalityRepresentationMap.containsKey(modalityType) && modalityRepresentationMap.get(modalityType) < 0.5) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @return the possible speech output types if the element refers to a world object, otherwise an empty list
+     */
+    @ValueRangeProvider(id = "possibleSpeechOutputRange")
+    public List<SpeechOutputType> getPossibleSpeechOutputTypeList() {
+        if(attributiveObjectIdentifier == null) {
+            return Collections.emptyList();
+        }
+        return possibleSpeechOutputTypeList;
+    }
+
+    public void setPossibleSpeechOutputTypeList(List<SpeechOutputType> possibleSpeechOutputTypeList) {
+        this.possibleSpeechOutputTypeList = possibleSpeechOutputTypeList;
+    }
+
     public Map<ModalityType, Double> getModalityRepresentationMap() {
         return modalityRepresentationMap;
     }
@@ -0,0 +1,45 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.planner.modalityplanner;
+
+import java.util.Comparator;
+
+/**
+ * Difficulty of a phrase component for the FIRST_FIT_DECREASING construction heuristic:
+ * phrase components referring to world objects (which also plan the speech output type) are more difficult,
+ * otherwise phrase components with fewer possible PowerSetModalities are more difficult
+ */
+public class PhraseComponentDifficultyComparator implements Comparator<PhraseComponent> {
+
+    @Override
+    public int compare(PhraseComponent a, PhraseComponent b) {
+        boolean aRefersToObject = a.getAttributiveObjectIdentifier() != null;
+        boolean bRefersToObject = b.getAttributiveObjectIdentifier() != null;
+        if(aRefersToObject != bRefersToObject) {
+            return aRefersToObject ? 1 : -1;
+        }
+        return Integer.compare(b.getPossiblePowerSetModalityList().size(), a.getPossiblePowerSetModalityList().size());
+    }
+}
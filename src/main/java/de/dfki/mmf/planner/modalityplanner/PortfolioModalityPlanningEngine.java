@@ -0,0 +1,264 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.planner.modalityplanner;
+
+import de.dfki.mmf.planner.SolverRegistry;
+import de.dfki.mmf.planner.modalityplanner.score.AbstractScorer;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Portfolio modality planning: differently configured modality solvers (and optionally the exact modality planning)
+ * solve the same predicate in parallel, each on its own clone of the ModalityRepresentation and with its own copies of the scorers.
+ * The local search of the solvers is limited by the time limit, the planning stops earlier if the exact modality planning
+ * has found the optimal solution and stops at the latency budget. The best solution is returned, if several are equally good the one of the solver added first
+ */
+public class PortfolioModalityPlanningEngine implements ModalityPlanningEngine {
+
+    //solvers of the portfolio
+    private final List<PortfolioSolver> portfolioSolvers = new ArrayList<>();
+    //time in milliseconds the local search of each solver may take
+    private long timeLimitMillis = 200;
+    //time in milliseconds the planning may take if the caller does not give a latency budget
+    private long latencyBudgetMillis = 1000;
+    //additionally run the exact modality planning, its result is optimal
+    private boolean exactPlanning = true;
+    private long maxExactCombinations = ExactModalityPlanningEngine.DEFAULT_MAX_COMBINATIONS;
+    private final ExecutorService executorService = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "portfolioModalityPlanning");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * default portfolio: first fit decreasing with tabu search, first fit with late acceptance and the first fit construction
+     * heuristic of the standard modality solver as greedy baseline
+     */
+    public PortfolioModalityPlanningEngine() {
+        addSolver(SolverRegistry.MODALITY_TABU_SOLVER, true);
+        addSolver(SolverRegistry.MODALITY_LATE_ACCEPTANCE_SOLVER, true);
+        addSolver(SolverRegistry.MODALITY_SOLVER, false);
+    }
+
+    /**
+     *
+     * @param solverKey key of the solver in the SolverRegistry
+     * @param timeLimited true if the local search of the solver should be limited by the time limit of the portfolio
+     * (a local search phase is added if the configuration has none), false to use the solver configuration unchanged
+     */
+    public void addSolver(String solverKey, boolean timeLimited) {
+        portfolioSolvers.add(new PortfolioSolver(solverKey, timeLimited));
+    }
+
+    public void clearSolvers() {
+        portfolioSolvers.clear();
+    }
+
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    public void setTimeLimitMillis(long timeLimitMillis) {
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    public long getLatencyBudgetMillis() {
+        return latencyBudgetMillis;
+    }
+
+    public void setLatencyBudgetMillis(long latencyBudgetMillis) {
+        this.latencyBudgetMillis = latencyBudgetMillis;
+    }
+
+    public boolean isExactPlanning() {
+        return exactPlanning;
+    }
+
+    public void setExactPlanning(boolean exactPlanning) {
+        this.exactPlanning = exactPlanning;
+    }
+
+    public long getMaxExactCombinations() {
+        return maxExactCombinations;
+    }
+
+    public void setMaxExactCombinations(long maxExactCombinations) {
+        this.maxExactCombinations = maxExactCombinations;
+    }
+
+    @Override
+    public ModalityRepresentation solve(ModalityRepresentation modalityRepresentation) {
+        return solve(modalityRepresentation, latencyBudgetMillis);
+    }
+
+    /**
+     *
+     * @param modalityRepresentation
+     * @param latencyBudgetMillis time in milliseconds the planning may take, the local search of the solvers takes at most the time limit.
+     * At the deadline the running solvers are terminated and the exact modality planning is cancelled
+     * @return the best solution of the portfolio received before the deadline
+     */
+    @Override
+    public ModalityRepresentation solve(ModalityRepresentation modalityRepresentation, long latencyBudgetMillis) {
+        long startTime = System.nanoTime();
+        long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(latencyBudgetMillis);
+        long localSearchMillis = Math.max(1L, Math.min(timeLimitMillis, latencyBudgetMillis));
+        CompletionService<ModalityRepresentation> completionService = new ExecutorCompletionService<>(executorService);
+        List<Future<ModalityRepresentation>> futures = new ArrayList<>();
+        List<Solver<ModalityRepresentation>> solvers = new ArrayList<>();
+        Future<ModalityRepresentation> exactFuture = null;
+
+        //the solvers change the solution they are solving, therefore each of them gets its own clone
+        InnerScoreDirector cloningScoreDirector = (InnerScoreDirector) SolverRegistry.getInstance()
+                .<ModalityRepresentation>buildSolver(SolverRegistry.MODALITY_SOLVER).getScoreDirectorFactory().buildScoreDirector();
+        try {
+            for(PortfolioSolver portfolioSolver: portfolioSolvers) {
+                Solver<ModalityRepresentation> solver = portfolioSolver.timeLimited
+                        ? SolverRegistry.getInstance().<ModalityRepresentation>buildSolver(portfolioSolver.solverKey, localSearchMillis)
+                        : SolverRegistry.getInstance().<ModalityRepresentation>buildSolver(portfolioSolver.solverKey);
+                ModalityRepresentation problem = cloneModalityRepresentation(cloningScoreDirector, modalityRepresentation);
+                solvers.add(solver);
+                futures.add(completionService.submit(() -> solver.solve(problem)));
+            }
+            if(exactPlanning) {
+                ExactModalityPlanningEngine exactEngine = new ExactModalityPlanningEngine();
+                exactEngine.setMaxCombinations(maxExactCombinations);
+                ModalityRepresentation problem = cloneModalityRepresentation(cloningScoreDirector, modalityRepresentation);
+                exactFuture = completionService.submit(() -> exactEngine.solve(problem));
+            }
+        } finally {
+            cloningScoreDirector.dispose();
+        }
+
+        int pending = futures.size() + (exactFuture == null ? 0 : 1);
+        try {
+            while(pending > 0) {
+                long remainingNanos = deadline - System.nanoTime();
+                Future<ModalityRepresentation> future = remainingNanos > 0 ? completionService.poll(remainingNanos, TimeUnit.NANOSECONDS) : null;
+                if(future == null) {
+                    System.out.println("Warning: portfolio modality planning stopped at the latency budget of " + latencyBudgetMillis + " ms.");
+                    break;
+                }
+                pending--;
+                if(future == exactFuture && getResult(future) != null) {
+                    //the exact result is optimal, the solvers cannot find anything better
+                    System.out.println("Portfolio modality planning: optimal solution found by the exact modality planning after "
+                            + (System.nanoTime() - startTime)/1000000.0 + " ms.");
+                    return getResult(future);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            //stop everything which is still running (terminating a finished solver has no effect)
+            for(Solver<ModalityRepresentation> solver: solvers) {
+                solver.terminateEarly();
+            }
+            if(exactFuture != null) {
+                exactFuture.cancel(true);
+            }
+        }
+
+        //choose the best initialized solution
+        ModalityRepresentation bestModalityRepresentation = null;
+        String bestSolverKey = null;
+        for(int i = 0; i < futures.size(); i++) {
+            //only the results received so far, solvers terminated at the deadline are not waited for
+            if(!futures.get(i).isDone()) {
+                continue;
+            }
+            ModalityRepresentation solvedModalityRepresentation = getResult(futures.get(i));
+            if(solvedModalityRepresentation != null && isInitialized(solvedModalityRepresentation)
+                    && (bestModalityRepresentation == null || solvedModalityRepresentation.getScore().compareTo(bestModalityRepresentation.getScore()) > 0)) {
+                bestModalityRepresentation = solvedModalityRepresentation;
+                bestSolverKey = portfolioSolvers.get(i).solverKey;
+            }
+        }
+        if(bestModalityRepresentation != null) {
+            System.out.println("Portfolio modality planning: best score (" + bestModalityRepresentation.getScore() + ") found by "
+                    + bestSolverKey + " in " + (System.nanoTime() - startTime)/1000000.0 + " ms.");
+        }
+        return bestModalityRepresentation;
+    }
+
+    /**
+     * stop the threads of the portfolio, call this if the engine is not needed anymore
+     */
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     *
+     * @param cloningScoreDirector
+     * @param modalityRepresentation
+     * @return planning clone of the modality representation with copies of its scorers
+     */
+    private ModalityRepresentation cloneModalityRepresentation(InnerScoreDirector cloningScoreDirector, ModalityRepresentation modalityRepresentation) {
+        ModalityRepresentation clonedModalityRepresentation = (ModalityRepresentation) cloningScoreDirector.cloneSolution(modalityRepresentation);
+        List<AbstractScorer> scorerCopies = new ArrayList<>();
+        for(AbstractScorer scorer: modalityRepresentation.getScorer()) {
+            scorerCopies.add(scorer.copy());
+        }
+        clonedModalityRepresentation.setScorer(scorerCopies);
+        return clonedModalityRepresentation;
+    }
+
+    private ModalityRepresentation getResult(Future<ModalityRepresentation> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        } catch (CancellationException e) {
+            //the exact modality planning has been cancelled at the deadline
+        }
+        return null;
+    }
+
+    private boolean isInitialized(ModalityRepresentation modalityRepresentation) {
+        for(PhraseComponent argument: modalityRepresentation.getPhraseComponents()) {
+            if(argument.getPowerSetModality() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class PortfolioSolver {
+        private final String solverKey;
+        private final boolean timeLimited;
+
+        PortfolioSolver(String solverKey, boolean timeLimited) {
+            this.solverKey = solverKey;
+            this.timeLimited = timeLimited;
+        }
+    }
+}
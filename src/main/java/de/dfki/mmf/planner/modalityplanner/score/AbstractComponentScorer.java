@@ -0,0 +1,61 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package de.dfki.mmf.planner.modalityplanner.score;
+
+import de.dfki.mmf.planner.modalityplanner.ModalityRepresentation;
+import de.dfki.mmf.planner.modalityplanner.PhraseComponent;
+
+/**
+ * An AbstractScorer whose softScore is calculated from the softScores of the single phrase components,
+ * the FusionIncrementalScoreCalculator therefore only rescores the changed phrase components
+ */
+public abstract class AbstractComponentScorer extends AbstractScorer {
+
+    @Override
+    public IncrementalScore createIncrementalScore() {
+        return new ComponentIncrementalScore(this);
+    }
+
+    /**
+     * softScore of a single phrase component, depends only on the planning variables of this phrase component
+     * @param argument
+     * @param modalityRepresentation
+     * @return softScore of the phrase component
+     */
+    public abstract int calculateComponentScore(PhraseComponent argument, ModalityRepresentation modalityRepresentation);
+
+    /**
+     * upper bound of the softScore of this scorer if the sum of the component scores lies between the given bounds,
+     * used by the exact modality planning to prune partial combinations
+     * @param minComponentScoreSum lower bound of the sum of the component scores
+     * @param maxComponentScoreSum upper bound of the sum of the component scores
+     * @param componentCount number of phrase components
+     * @return maxComponentScoreSum since by default the softScore is the sum of the component scores
+     */
+    public int getSoftScoreBound(int minComponentScoreSum, int maxComponentScoreSum, int componentCount) {
+        return maxComponentScoreSum;
+    }
+}
@@ -35,7 +35,7 @@ import org.optaplanner.core.impl.score.director.easy.EasyScoreCalculator;
  * An abstract EasyScoreCalculator containing  a weight describing the importance of this scorer
  *  and a score containing the maximal value the score can be reduced
  */
-public abstract class AbstractScorer implements EasyScoreCalculator<ModalityRepresentation> {
+public abstract class AbstractScorer implements EasyScoreCalculator<ModalityRepresentation>, Cloneable {
 
     //weight states the influence of the scorer in the final score calculation (default: 1.0)
     private double weight = 1.0;
@@ -60,5 +60,26 @@ public abstract class AbstractScorer implements EasyScoreCalculator<ModalityRepr
         this.maximalReducedScore = maximalReducedScore;
     }
 
+    /**
+     * creates the state used by the FusionIncrementalScoreCalculator to calculate the softScore of this scorer incrementally,
+     * by default the whole softScore is recalculated after a phrase component has been changed
+     * @return incremental score of this scorer
+     */
+    public IncrementalScore createIncrementalScore() {
+        return new IncrementalScore(this);
+    }
+
+    /**
+     * scorers keep intermediate results of their score calculation, solvers running in parallel therefore need their own copies
+     * @return copy of this scorer with the same weight and settings
+     */
+    public AbstractScorer copy() {
+        try {
+            return (AbstractScorer) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("The scorer " + getClass().getSimpleName() + " cannot be copied.", e);
+        }
+    }
+
 
 }
@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.planner.modalityplanner.score;
+
+import de.dfki.mmf.planner.modalityplanner.ModalityRepresentation;
+import de.dfki.mmf.planner.modalityplanner.PhraseComponent;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Incremental score for scorers whose softScore is the sum of the softScores of the single phrase components:
+ * only the changed phrase component is rescored
+ */
+public class ComponentIncrementalScore extends IncrementalScore {
+
+    //softScore of each inserted phrase component
+    private final Map<PhraseComponent, Integer> componentScoreMap = new IdentityHashMap<>();
+    private int componentScoreSum = 0;
+
+    private final AbstractComponentScorer componentScorer;
+
+    public ComponentIncrementalScore(AbstractComponentScorer scorer) {
+        super(scorer);
+        this.componentScorer = scorer;
+    }
+
+    @Override
+    public void resetWorkingSolution(ModalityRepresentation workingSolution) {
+        super.resetWorkingSolution(workingSolution);
+        componentScoreMap.clear();
+        componentScoreSum = 0;
+        for(PhraseComponent argument: workingSolution.getPhraseComponents()) {
+            insertComponent(argument);
+        }
+    }
+
+    @Override
+    public void insertComponent(PhraseComponent argument) {
+        int componentScore = componentScorer.calculateComponentScore(argument, workingSolution);
+        Integer oldComponentScore = componentScoreMap.put(argument, componentScore);
+        if(oldComponentScore != null) {
+            componentScoreSum -= oldComponentScore;
+        }
+        componentScoreSum += componentScore;
+    }
+
+    @Override
+    public void retractComponent(PhraseComponent argument) {
+        Integer componentScore = componentScoreMap.remove(argument);
+        if(componentScore != null) {
+            componentScoreSum -= componentScore;
+        }
+    }
+
+    /**
+     *
+     * @return sum of the softScores of all inserted phrase components
+     */
+    protected int getComponentScoreSum() {
+        return componentScoreSum;
+    }
+
+    @Override
+    public int getSoftScore() {
+        return componentScoreSum;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.planner.modalityplanner.score;
+
+import de.dfki.mmf.planner.modalityplanner.ModalityRepresentation;
+import de.dfki.mmf.planner.modalityplanner.PhraseComponent;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.impl.score.director.incremental.IncrementalScoreCalculator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incremental version of the FusionScorer: if a planning variable of a phrase component changes,
+ * only this phrase component is rescored by the hard constraint and by the individual scorers (see IncrementalScore).
+ * The resulting score is the same as the one calculated by the FusionScorer
+ */
+public class FusionIncrementalScoreCalculator implements IncrementalScoreCalculator<ModalityRepresentation> {
+
+    private final FusionScorer fusionScorer = new FusionScorer();
+
+    private ModalityRepresentation workingSolution;
+    //scorers of the working solution and their incremental scores (same order)
+    private List<AbstractScorer> scorer;
+    private List<IncrementalScore> incrementalScores = new ArrayList<>();
+    //hardScore of each phrase component
+    private final Map<PhraseComponent, Integer> componentHardScoreMap = new IdentityHashMap<>();
+    private int hardScore = 0;
+    //phrase components which have been retracted because of a variable change and are not inserted again yet
+    private final Set<PhraseComponent> changedComponents = Collections.newSetFromMap(new IdentityHashMap<PhraseComponent, Boolean>());
+
+    @Override
+    public void resetWorkingSolution(ModalityRepresentation workingSolution) {
+        this.workingSolution = workingSolution;
+        scorer = workingSolution.getScorer();
+        incrementalScores = new ArrayList<>();
+        for(AbstractScorer scoreCalculator: scorer) {
+            IncrementalScore incrementalScore = scoreCalculator.createIncrementalScore();
+            incrementalScore.resetWorkingSolution(workingSolution);
+            incrementalScores.add(incrementalScore);
+        }
+        componentHardScoreMap.clear();
+        hardScore = 0;
+        changedComponents.clear();
+        for(PhraseComponent argument: workingSolution.getPhraseComponents()) {
+            insertHardScore(argument);
+        }
+    }
+
+    @Override
+    public void beforeEntityAdded(Object entity) {
+        //nothing to do
+    }
+
+    @Override
+    public void afterEntityAdded(Object entity) {
+        //the positions of the phrase components might have changed (relevant e.g. for pointing in a row) -> reset
+        resetWorkingSolution(workingSolution);
+    }
+
+    @Override
+    public void beforeVariableChanged(Object entity, String variableName) {
+        PhraseComponent argument = (PhraseComponent) entity;
+        //retract the phrase component unless it has already been retracted for another variable of the same move
+        if(changedComponents.add(argument)) {
+            retractHardScore(argument);
+            for(IncrementalScore incrementalScore: incrementalScores) {
+                incrementalScore.retractComponent(argument);
+            }
+        }
+    }
+
+    @Override
+    public void afterVariableChanged(Object entity, String variableName) {
+        //the changed phrase component is inserted again when the score is calculated,
+        //since a move can change several variables the phrase component might not be complete yet
+    }
+
+    @Override
+    public void beforeEntityRemoved(Object entity) {
+        //nothing to do
+    }
+
+    @Override
+    public void afterEntityRemoved(Object entity) {
+        resetWorkingSolution(workingSolution);
+    }
+
+    private void insertHardScore(PhraseComponent argument) {
+        int componentHardScore = fusionScorer.getHardConstraint(argument);
+        componentHardScoreMap.put(argument, componentHardScore);
+        hardScore += componentHardScore;
+    }
+
+    private void retractHardScore(PhraseComponent argument) {
+        Integer componentHardScore = componentHardScoreMap.remove(argument);
+        if(componentHardScore != null) {
+            hardScore -= componentHardScore;
+        }
+    }
+
+    @Override
+    public HardSoftScore calculateScore() {
+        //the scorers might have been replaced by a problem fact change
+        if(workingSolution.getScorer() != scorer) {
+            resetWorkingSolution(workingSolution);
+        }
+        for(PhraseComponent argument: changedComponents) {
+            insertHardScore(argument);
+            for(IncrementalScore incrementalScore: incrementalScores) {
+                incrementalScore.insertComponent(argument);
+            }
+        }
+        changedComponents.clear();
+        int softScores[] = new int[incrementalScores.size()];
+        for(int i = 0; i < incrementalScores.size(); i++) {
+            softScores[i] = incrementalScores.get(i).getSoftScore();
+        }
+        return HardSoftScore.valueOf(hardScore, FusionScorer.getWeightedSoftScore(scorer, softScores));
+    }
+}
@@ -32,6 +32,8 @@ import org.optaplanner.core.api.score.Score;
 import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 import org.optaplanner.core.impl.score.director.easy.EasyScoreCalculator;
 
+import java.util.List;
+
 /**
  * Created by Magdalena Kaiser on 09.11.2016.
  */
@@ -46,21 +48,36 @@ public class FusionScorer implements EasyScoreCalculator<ModalityRepresentation>
     public Score calculateScore(ModalityRepresentation modalityRepresentation) {
         //get the hardscore -> how many impossible argument - modality combinations exist
         int hardScore = getHardConstraint(modalityRepresentation);
-        int softScore = 0;
-        double weights[] = new double[modalityRepresentation.getScorer().size()];
         int softScores[] = new int[modalityRepresentation.getScorer().size()];
         //calculate softscore of each of the individual scorers and then use the weighted sum for the final softscore
        for(int i = 0; i < modalityRepresentation.getScorer().size(); i++) {
            AbstractScorer scoreCalculator = modalityRepresentation.getScorer().get(i);
            Score newScore = scoreCalculator.calculateScore(modalityRepresentation);
-           weights[i] = scoreCalculator.getWeight();
            softScores[i] = ((HardSoftScore) newScore).getSoftScore();
-           softScore += weights[i] * softScores[i];
        }
+        int softScore = getWeightedSoftScore(modalityRepresentation.getScorer(), softScores);
 
         return HardSoftScore.valueOf(hardScore, softScore);
     }
 
+    /**
+     * weighted sum of the softScores of the individual scorers: the weighted summands are added one after the other
+     * and the running sum is truncated to an int (towards zero) after each addition, as the FusionScorer has always done,
+     * so that the incremental calculators produce the same scores
+     * @param scorer
+     * @param softScores softScores of the scorers in the same order
+     * @return final softScore
+     */
+    public static int getWeightedSoftScore(List<AbstractScorer> scorer, int[] softScores) {
+        int softScore = 0;
+        double weights[] = new double[scorer.size()];
+        for(int i = 0; i < scorer.size(); i++) {
+            weights[i] = scorer.get(i).getWeight();
+            softScore += weights[i] * softScores[i];
+        }
+        return softScore;
+    }
+
     /**
      * rates impossible argument - modality combinations
      * @param modalityRepresentation
@@ -68,39 +85,54 @@ public class FusionScorer implements EasyScoreCalculator<ModalityRepresentation>
      */
     public int getHardConstraint(ModalityRepresentation modalityRepresentation) {
         int hardScore = 0;
-        //hard constraint which checks how well modality is suitable for predicate argument
         for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
-            if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
-                for (ModalityType modalityType : argument.getPowerSetModality().getModalitySet()) {
-                    if (argument.getModalityRepresentationMap().containsKey(modalityType)) {
-                        if (argument.getModalityRepresentationMap().get(modalityType) < 0.5) {
-                            hardScore -= 1;
-                        }
+            hardScore += getHardConstraint(argument);
+        }
+        return hardScore;
+    }
+
+    /**
+     * rates impossible argument - modality combinations for a single phrase component
+     * @param argument
+     * @return resulting hardScore of the phrase component
+     */
+    public int getHardConstraint(PhraseComponent argument) {
+        int hardScore = 0;
+        //elements referring to world objects need a speech output type (it is not planned for other elements)
+        if (argument.getAttributiveObjectIdentifier() != null && argument.getSpeechOutputType() == null) {
+            hardScore -= 1;
+        }
+        //hard constraint which checks how well modality is suitable for predicate argument
+        if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
+            for (ModalityType modalityType : argument.getPowerSetModality().getModalitySet()) {
+                if (argument.getModalityRepresentationMap().containsKey(modalityType)) {
+                    if (argument.getModalityRepresentationMap().get(modalityType) < 0.5) {
+                        hardScore -= 1;
                     }
                 }
-                //pointing is required if in the speech output deictic references with "this" are used
-                if(argument.getAttributiveObjectIdentifier() != null) {
-                    if (argument.getSpeechOutputType().equals(SpeechOutputType.THIS_TYPE) || argument.getSpeechOutputType().equals(SpeechOutputType.THIS)) {
-                        if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.POINTING)) {
-                            hardScore -= 1;
-                        }
+            }
+            //pointing is required if in the speech output deictic references with "this" are used
+            if(argument.getAttributiveObjectIdentifier() != null) {
+                if (SpeechOutputType.THIS_TYPE.equals(argument.getSpeechOutputType()) || SpeechOutputType.THIS.equals(argument.getSpeechOutputType())) {
+                    if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.POINTING)) {
+                        hardScore -= 1;
                     }
                 }
-            } else {
-                //test if there is a modality which can represent the argument, if so modalityset of argument should not be empty
-                if (argument.getPowerSetModality() != null && argument.getPowerSetModality().getModalitySet().isEmpty()) {
-                    for (ModalityType modalityType : argument.getModalityRepresentationMap().keySet()) {
-                        if (argument.getModalityRepresentationMap().get(modalityType) > 0.5) {
-                            hardScore -= 1;
-                        }
+            }
+        } else {
+            //test if there is a modality which can represent the argument, if so modalityset of argument should not be empty
+            if (argument.getPowerSetModality() != null && argument.getPowerSetModality().getModalitySet().isEmpty()) {
+                for (ModalityType modalityType : argument.getModalityRepresentationMap().keySet()) {
+                    if (argument.getModalityRepresentationMap().get(modalityType) > 0.5) {
+                        hardScore -= 1;
                     }
                 }
-                //null is always wrong, check how many possible modalities exist
-                else if(argument.getPowerSetModality() == null) {
-                    for (ModalityType modalityType : argument.getModalityRepresentationMap().keySet()) {
-                        if (argument.getModalityRepresentationMap().get(modalityType) > 0.5) {
-                            hardScore -= 1;
-                        }
+            }
+            //null is always wrong, check how many possible modalities exist
+            else if(argument.getPowerSetModality() == null) {
+                for (ModalityType modalityType : argument.getModalityRepresentationMap().keySet()) {
+                    if (argument.getModalityRepresentationMap().get(modalityType) > 0.5) {
+                        hardScore -= 1;
                     }
                 }
             }
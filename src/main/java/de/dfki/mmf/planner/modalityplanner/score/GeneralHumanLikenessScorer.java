@@ -37,7 +37,7 @@ import java.util.Objects;
 /**
  *  Scorers implementing some basic rules with the aim of appearing more human-like
  */
-public class GeneralHumanLikenessScorer extends AbstractScorer {
+public class GeneralHumanLikenessScorer extends AbstractComponentScorer {
 
     private int maxReducedScore = 0;
     private int speechScore = 0;
@@ -65,12 +65,7 @@ public class GeneralHumanLikenessScorer extends AbstractScorer {
         calculateImageScore(modalityRepresentation);
 
         //sum up single scores to receive overall human-likeness softScore
-        softScore += speechScore;
-        softScore += predRefScore;
-        softScore += gazeScore;
-        //pointing is considered very important for identifying objects -> therefore receives double weight
-        softScore += pointingScore * 2;
-        softScore += imageScore;
+        softScore += sumScores();
         //since we used two times the pointingScore we need to add it to the maxReducedScore a second time as well
         maxReducedScore += pointingScore;
 
@@ -81,19 +76,49 @@ public class GeneralHumanLikenessScorer extends AbstractScorer {
         return HardSoftScore.valueOf(0, softScore);
     }
 
+    @Override
+    public int calculateComponentScore(PhraseComponent argument, ModalityRepresentation modalityRepresentation) {
+        calculateSpeechScore(argument);
+        calculatePredicateRefModalityScore(argument);
+        calculatePointingGazeScore(argument);
+        calculateImageScore(argument);
+        int softScore = sumScores();
+        clearScores();
+        return softScore;
+    }
+
+    private int sumScores() {
+        int softScore = 0;
+        softScore += speechScore;
+        softScore += predRefScore;
+        softScore += gazeScore;
+        //pointing is considered very important for identifying objects -> therefore receives double weight
+        softScore += pointingScore * 2;
+        softScore += imageScore;
+        return softScore;
+    }
+
     /**
      * Calculate human-likeness softScore considering the speech modality
      * @param modalityRepresentation
      */
     public void calculateSpeechScore(ModalityRepresentation modalityRepresentation) {
-        //use always speech (other modalities as addition, language as main information transfer medium)
         for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
-            if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
-                if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.SPEECH)) {
-                    speechScore -= 1;
-                }
-                maxReducedScore -= 1;
+            calculateSpeechScore(argument);
+        }
+    }
+
+    /**
+     * Calculate human-likeness softScore considering the speech modality for a single phrase component
+     * @param argument
+     */
+    private void calculateSpeechScore(PhraseComponent argument) {
+        //use always speech (other modalities as addition, language as main information transfer medium)
+        if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
+            if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.SPEECH)) {
+                speechScore -= 1;
             }
+            maxReducedScore -= 1;
         }
     }
 
@@ -102,23 +127,31 @@ public class GeneralHumanLikenessScorer extends AbstractScorer {
      * @param modalityRepresentation
      */
     public void calculatePredicateRefModalityScore(ModalityRepresentation modalityRepresentation) {
-        //use waving, nodding and head shaking to enable more human-like behavior
         for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
-            if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
-                //check if nodding/head-shaking is available
-                if (argument.getModalityRepresentationMap().containsKey(ModalityType.NODDING_HEADSHAKING) && argument.getModalityRepresentationMap().get(ModalityType.NODDING_HEADSHAKING) > 0.5) {
-                    if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.NODDING_HEADSHAKING)) {
-                        predRefScore -= 1;
-                    }
-                    maxReducedScore -= 1;
+            calculatePredicateRefModalityScore(argument);
+        }
+    }
+
+    /**
+     * Calculate human-likeness softScore for predicate referencing modalities (nodding, head shaking, waving) for a single phrase component
+     * @param argument
+     */
+    private void calculatePredicateRefModalityScore(PhraseComponent argument) {
+        //use waving, nodding and head shaking to enable more human-like behavior
+        if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
+            //check if nodding/head-shaking is available
+            if (argument.getModalityRepresentationMap().containsKey(ModalityType.NODDING_HEADSHAKING) && argument.getModalityRepresentationMap().get(ModalityType.NODDING_HEADSHAKING) > 0.5) {
+                if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.NODDING_HEADSHAKING)) {
+                    predRefScore -= 1;
                 }
-                //check if waving is available
-                if(argument.getModalityRepresentationMap().containsKey(ModalityType.WAVING) && argument.getModalityRepresentationMap().get(ModalityType.WAVING) > 0.5) {
-                    if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.WAVING)) {
-                        predRefScore -= 1;
-                    }
-                    maxReducedScore -= 1;
+                maxReducedScore -= 1;
+            }
+            //check if waving is available
+            if(argument.getModalityRepresentationMap().containsKey(ModalityType.WAVING) && argument.getModalityRepresentationMap().get(ModalityType.WAVING) > 0.5) {
+                if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.WAVING)) {
+                    predRefScore -= 1;
                 }
+                maxReducedScore -= 1;
             }
         }
     }
@@ -128,36 +161,44 @@ public class GeneralHumanLikenessScorer extends AbstractScorer {
      * @param modalityRepresentation
      */
     public void calculatePointingGazeScore(ModalityRepresentation modalityRepresentation) {
+        for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
+            calculatePointingGazeScore(argument);
+        }
+    }
+
+    /**
+     * Calculate human-likeness softScore considering the pointing and gaze modality for a single phrase component
+     * @param argument
+     */
+    private void calculatePointingGazeScore(PhraseComponent argument) {
         //prefer looking at certain user when referring to him/her instead of pointing
         //prefer pointing at things rather than just looking at them (more clear)
-        for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
-            if (argument.getPredicateElement().getWorldObjectType() != null) {
-                if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
-                    //looking at objects and persons while talking about them is human-like
-                    if (argument.getModalityRepresentationMap().containsKey(ModalityType.GAZE) && argument.getModalityRepresentationMap().get(ModalityType.GAZE) > 0.5) {
-                        if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.GAZE)) {
-                            gazeScore -= 1;
+        if (argument.getPredicateElement().getWorldObjectType() != null) {
+            if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
+                //looking at objects and persons while talking about them is human-like
+                if (argument.getModalityRepresentationMap().containsKey(ModalityType.GAZE) && argument.getModalityRepresentationMap().get(ModalityType.GAZE) > 0.5) {
+                    if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.GAZE)) {
+                        gazeScore -= 1;
+                    }
+                    maxReducedScore -= 1;
+                }
+                //do not point at humans
+                if (Objects.equals(argument.getPredicateElement().getWorldObjectType(), "user")) {
+                    if (argument.getModalityRepresentationMap().containsKey(ModalityType.POINTING) && argument.getModalityRepresentationMap().get(ModalityType.POINTING) > 0.5) {
+                        if (argument.getPowerSetModality().getModalitySet().contains(ModalityType.POINTING)) {
+                            pointingScore -= 1;
                         }
                         maxReducedScore -= 1;
                     }
-                    //do not point at humans
-                    if (Objects.equals(argument.getPredicateElement().getWorldObjectType(), "user")) {
+                    //pointing at objects is very helpful to identify the object
+                } else if (!(Objects.equals(argument.getPredicateElement().getWorldObjectType(), "user")) && !(Objects.equals(argument.getPredicateElement().getWorldObjectType(), "robot"))) {
+                    if (argument.getModalityRepresentationMap().containsKey(ModalityType.GAZE) && argument.getModalityRepresentationMap().containsKey(ModalityType.POINTING)) {
                         if (argument.getModalityRepresentationMap().containsKey(ModalityType.POINTING) && argument.getModalityRepresentationMap().get(ModalityType.POINTING) > 0.5) {
-                            if (argument.getPowerSetModality().getModalitySet().contains(ModalityType.POINTING)) {
+                            if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.POINTING)) {
                                 pointingScore -= 1;
                             }
                             maxReducedScore -= 1;
                         }
-                        //pointing at objects is very helpful to identify the object
-                    } else if (!(Objects.equals(argument.getPredicateElement().getWorldObjectType(), "user")) && !(Objects.equals(argument.getPredicateElement().getWorldObjectType(), "robot"))) {
-                        if (argument.getModalityRepresentationMap().containsKey(ModalityType.GAZE) && argument.getModalityRepresentationMap().containsKey(ModalityType.POINTING)) {
-                            if (argument.getModalityRepresentationMap().containsKey(ModalityType.POINTING) && argument.getModalityRepresentationMap().get(ModalityType.POINTING) > 0.5) {
-                                if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.POINTING)) {
-                                    pointingScore -= 1;
-                                }
-                                maxReducedScore -= 1;
-                            }
-                        }
                     }
                 }
             }
@@ -169,15 +210,23 @@ public class GeneralHumanLikenessScorer extends AbstractScorer {
      * @param modalityRepresentation
      */
     public void calculateImageScore(ModalityRepresentation modalityRepresentation) {
-        //display image robot is talking about
         for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
-            if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
-                if (argument.getModalityRepresentationMap().containsKey(ModalityType.IMAGE) && argument.getModalityRepresentationMap().get(ModalityType.IMAGE) > 0.5) {
-                    if (!(argument.getPowerSetModality().getModalitySet().contains(ModalityType.IMAGE))) {
-                        imageScore -= 1;
-                    }
-                    maxReducedScore -= 1;
+            calculateImageScore(argument);
+        }
+    }
+
+    /**
+     * Calculate human-likeness softScore considering the image modality for a single phrase component
+     * @param argument
+     */
+    private void calculateImageScore(PhraseComponent argument) {
+        //display image robot is talking about
+        if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
+            if (argument.getModalityRepresentationMap().containsKey(ModalityType.IMAGE) && argument.getModalityRepresentationMap().get(ModalityType.IMAGE) > 0.5) {
+                if (!(argument.getPowerSetModality().getModalitySet().contains(ModalityType.IMAGE))) {
+                    imageScore -= 1;
                 }
+                maxReducedScore -= 1;
             }
         }
     }
@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.planner.modalityplanner.score;
+
+import de.dfki.mmf.planner.modalityplanner.ModalityRepresentation;
+import de.dfki.mmf.planner.modalityplanner.PhraseComponent;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+/**
+ * State of a scorer in the incremental score calculation: the FusionIncrementalScoreCalculator retracts a phrase component
+ * before one of its planning variables changes and inserts it again afterwards.
+ * This default implementation recalculates the whole softScore of the scorer if any phrase component has been changed
+ */
+public class IncrementalScore {
+
+    protected final AbstractScorer scorer;
+    protected ModalityRepresentation workingSolution;
+    //softScore of the scorer, only valid if no phrase component has been changed since it has been calculated
+    private int softScore = 0;
+    private boolean changed = true;
+
+    public IncrementalScore(AbstractScorer scorer) {
+        this.scorer = scorer;
+    }
+
+    public void resetWorkingSolution(ModalityRepresentation workingSolution) {
+        this.workingSolution = workingSolution;
+        changed = true;
+    }
+
+    public void insertComponent(PhraseComponent argument) {
+        changed = true;
+    }
+
+    public void retractComponent(PhraseComponent argument) {
+        changed = true;
+    }
+
+    public int getSoftScore() {
+        if(changed) {
+            softScore = ((HardSoftScore) scorer.calculateScore(workingSolution)).getSoftScore();
+            changed = false;
+        }
+        return softScore;
+    }
+}
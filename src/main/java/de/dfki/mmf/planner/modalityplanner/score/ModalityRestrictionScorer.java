@@ -29,6 +29,9 @@ import de.dfki.mmf.planner.modalityplanner.ModalityRepresentation;
 import de.dfki.mmf.planner.modalityplanner.PhraseComponent;
 import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 /**
  * Created by Magdalena Kaiser on 12.08.2016.
  */
@@ -36,7 +39,7 @@ import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 /**
  * Scorer containing some examples to restrict certain modality usage
  */
-public class ModalityRestrictionScorer extends AbstractScorer {
+public class ModalityRestrictionScorer extends AbstractComponentScorer {
 
     private int maxModalityScore = 0;
     private int specificModalityScore = 0;
@@ -144,19 +147,51 @@ public class ModalityRestrictionScorer extends AbstractScorer {
         return HardSoftScore.valueOf(hardScore, softScore);
     }
 
+    @Override
+    public IncrementalScore createIncrementalScore() {
+        return new RestrictionIncrementalScore(this);
+    }
+
+    /**
+     * softScore of the restrictions which only depend on a single phrase component (maximal and specific modality usage)
+     * @param argument
+     * @param modalityRepresentation
+     * @return softScore of the phrase component
+     */
+    @Override
+    public int calculateComponentScore(PhraseComponent argument, ModalityRepresentation modalityRepresentation) {
+        if(useMaxMod) {
+            useMaxModality(argument);
+        }
+        if(useSpecificMod && specificUsageModalityType != null) {
+            useSpecificModality(specificUsageModalityType, argument);
+        }
+        int softScore = maxModalityScore + specificModalityScore;
+        clearScores();
+        return softScore;
+    }
+
     /**
      * use all modalities which are possible to receive a maximal multimodal output
      * @param modalityRepresentation
      */
     public void useMaxModality(ModalityRepresentation modalityRepresentation) {
+        for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
+            useMaxModality(argument);
+        }
+    }
+
+    /**
+     * use all modalities which are possible for a single phrase component
+     * @param argument
+     */
+    private void useMaxModality(PhraseComponent argument) {
         //get maximal possible multimodal output
-        for(PhraseComponent argument: modalityRepresentation.getPhraseComponents()) {
-            for(ModalityType possibleModalityType: argument.getModalityRepresentationMap().keySet()) {
-                if(argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
-                    if (argument.getModalityRepresentationMap().get(possibleModalityType) > 0.5) {
-                        if(!argument.getPowerSetModality().getModalitySet().contains(possibleModalityType)) {
-                            maxModalityScore -= 1;
-                        }
+        for(ModalityType possibleModalityType: argument.getModalityRepresentationMap().keySet()) {
+            if(argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
+                if (argument.getModalityRepresentationMap().get(possibleModalityType) > 0.5) {
+                    if(!argument.getPowerSetModality().getModalitySet().contains(possibleModalityType)) {
+                        maxModalityScore -= 1;
                     }
                 }
             }
@@ -169,12 +204,21 @@ public class ModalityRestrictionScorer extends AbstractScorer {
      * @param modalityRepresentation
      */
     public void useSpecificModality(ModalityType modalityType, ModalityRepresentation modalityRepresentation) {
-        for(PhraseComponent argument: modalityRepresentation.getPhraseComponents()) {
-            if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
-                if(argument.getModalityRepresentationMap().containsKey(modalityType) && argument.getModalityRepresentationMap().get(modalityType) > 0.5) {
-                    if(!argument.getPowerSetModality().getModalitySet().contains(modalityType)) {
-                        specificModalityScore -= 1;
-                    }
+        for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
+            useSpecificModality(modalityType, argument);
+        }
+    }
+
+    /**
+     * use specific modality whenever possible for a single phrase component
+     * @param modalityType
+     * @param argument
+     */
+    private void useSpecificModality(ModalityType modalityType, PhraseComponent argument) {
+        if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
+            if(argument.getModalityRepresentationMap().containsKey(modalityType) && argument.getModalityRepresentationMap().get(modalityType) > 0.5) {
+                if(!argument.getPowerSetModality().getModalitySet().contains(modalityType)) {
+                    specificModalityScore -= 1;
                 }
             }
         }
@@ -228,4 +272,98 @@ public class ModalityRestrictionScorer extends AbstractScorer {
             counter++;
         }
     }
+
+    /**
+     *
+     * @param argument
+     * @param modalityType
+     * @return true if the modality is part of the modalities currently assigned to the phrase component
+     */
+    private static boolean usesModality(PhraseComponent argument, ModalityType modalityType) {
+        return argument.getPowerSetModality() != null && argument.getPowerSetModality().getModalitySet().contains(modalityType);
+    }
+
+    /**
+     * Incremental score of the modality restrictions: besides the component scores the pointing gestures in a row
+     * and the usage count of the limited modality are updated for each changed phrase component
+     */
+    private class RestrictionIncrementalScore extends ComponentIncrementalScore {
+
+        //position of each phrase component in the sentence
+        private final Map<PhraseComponent, Integer> componentIndexMap = new IdentityHashMap<>();
+        private boolean[] pointingComponents = new boolean[0];
+        private boolean[] limitedModalityComponents = new boolean[0];
+        //number of neighbouring phrase components which both use pointing
+        private int pointingInRowCount = 0;
+        private int limitedModalityUsageCount = 0;
+
+        RestrictionIncrementalScore(AbstractComponentScorer scorer) {
+            super(scorer);
+        }
+
+        @Override
+        public void resetWorkingSolution(ModalityRepresentation workingSolution) {
+            componentIndexMap.clear();
+            for(int i = 0; i < workingSolution.getPhraseComponents().size(); i++) {
+                componentIndexMap.put(workingSolution.getPhraseComponents().get(i), i);
+            }
+            pointingComponents = new boolean[workingSolution.getPhraseComponents().size()];
+            limitedModalityComponents = new boolean[workingSolution.getPhraseComponents().size()];
+            pointingInRowCount = 0;
+            limitedModalityUsageCount = 0;
+            super.resetWorkingSolution(workingSolution);
+        }
+
+        @Override
+        public void insertComponent(PhraseComponent argument) {
+            super.insertComponent(argument);
+            int index = componentIndexMap.get(argument);
+            if(noPointingInRow && usesModality(argument, ModalityType.POINTING)) {
+                pointingInRowCount += countPointingNeighbours(index);
+                pointingComponents[index] = true;
+            }
+            if(limitUsage && limitUsageModalityType != null && usesModality(argument, limitUsageModalityType)) {
+                limitedModalityUsageCount++;
+                limitedModalityComponents[index] = true;
+            }
+        }
+
+        @Override
+        public void retractComponent(PhraseComponent argument) {
+            super.retractComponent(argument);
+            int index = componentIndexMap.get(argument);
+            if(pointingComponents[index]) {
+                pointingInRowCount -= countPointingNeighbours(index);
+                pointingComponents[index] = false;
+            }
+            if(limitedModalityComponents[index]) {
+                limitedModalityUsageCount--;
+                limitedModalityComponents[index] = false;
+            }
+        }
+
+        private int countPointingNeighbours(int index) {
+            int neighbours = 0;
+            if(index > 0 && pointingComponents[index-1]) {
+                neighbours++;
+            }
+            if(index < pointingComponents.length-1 && pointingComponents[index+1]) {
+                neighbours++;
+            }
+            return neighbours;
+        }
+
+        @Override
+        public int getSoftScore() {
+            //the restrictions only decrease the sum of the component scores (the softScore bound relies on this)
+            int softScore = getComponentScoreSum();
+            softScore -= pointingInRowCount;
+            //same limit as in limitUsageOfSpecificModality
+            int allowedUsageNbr = (int) Math.ceil(pointingComponents.length/3.0);
+            if(limitedModalityUsageCount > allowedUsageNbr) {
+                softScore -= limitedModalityUsageCount-allowedUsageNbr;
+            }
+            return softScore;
+        }
+    }
 }
@@ -32,8 +32,6 @@ import de.dfki.mmf.planner.modalityplanner.PhraseComponent;
 import de.dfki.mmf.planner.modalityplanner.SpeechOutputType;
 import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 
-import java.util.List;
-
 /**
  * Created by Magdalena Kaiser on 27.11.2016.
  */
@@ -41,7 +39,7 @@ import java.util.List;
 /**
  * Scorer that chooses appropriate speech output and fitting pointing action for identifying world objects
  */
-public class ObjectIdentificationScorer extends AbstractScorer {
+public class ObjectIdentificationScorer extends AbstractComponentScorer {
 
     private int maxReducedScore = 0;
     private int pointingObjectDescriptionScore = 0;
@@ -66,11 +64,7 @@ public class ObjectIdentificationScorer extends AbstractScorer {
         calculateScoreObjectProximity(modalityRepresentation);
 
         //sum up single scores to receive overall softScore for a good object identification
-        softScore += pointingObjectDescriptionScore;
-        softScore += speechTypeObjectDescriptionScore;
-        //special case: multiply pointingObjectProximityScore with 3 to overwrite general case were pointing is seen as very useful
-        softScore += pointingObjectProximityScore*3;
-        softScore += speechTypeObjectProximityScore;
+        softScore += sumScores();
 
         maxReducedScore += pointingObjectProximityScore*2;
         setMaximalReducedScore(maxReducedScore);
@@ -80,44 +74,71 @@ public class ObjectIdentificationScorer extends AbstractScorer {
         return HardSoftScore.valueOf(0, softScore);
     }
 
+    @Override
+    public int calculateComponentScore(PhraseComponent argument, ModalityRepresentation modalityRepresentation) {
+        calculateScoreObjectDescription(argument);
+        calculateScoreObjectProximity(argument);
+        int softScore = sumScores();
+        clearScores();
+        return softScore;
+    }
+
+    private int sumScores() {
+        int softScore = 0;
+        softScore += pointingObjectDescriptionScore;
+        softScore += speechTypeObjectDescriptionScore;
+        //special case: multiply pointingObjectProximityScore with 3 to overwrite general case were pointing is seen as very useful
+        softScore += pointingObjectProximityScore*3;
+        softScore += speechTypeObjectProximityScore;
+        return softScore;
+    }
+
     /**
      * Calculate softScore considering whether an attributive object identifier is available or not
      * @param modalityRepresentation
      */
     public void calculateScoreObjectDescription(ModalityRepresentation modalityRepresentation) {
         for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
-            if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
-                if (argument.getAttributiveObjectIdentifier() != null) {
-                    //a unique attributive identifier has not been found or only a partial one has been found -> use pointing for clarification
-                    if (!argument.getAttributiveObjectIdentifier().hasSuccess()) {
-                        if (argument.getModalityRepresentationMap().containsKey(ModalityType.POINTING) && argument.getModalityRepresentationMap().get(ModalityType.POINTING) > 0.5) {
-                            if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.POINTING)) {
-                                pointingObjectDescriptionScore -= 1;
-                            }
-                            maxReducedScore -= 1;
-                        }
-                        if (!argument.getSpeechOutputType().equals(SpeechOutputType.THE_TYPE)) {
-                            speechTypeObjectDescriptionScore -= 1;
-                        }
-                        maxReducedScore -= 1;
-                    } else if (argument.getAttributiveObjectIdentifier().isPartialIdentifiable()) {
-                        if (argument.getModalityRepresentationMap().containsKey(ModalityType.POINTING) && argument.getModalityRepresentationMap().get(ModalityType.POINTING) > 0.5) {
-                            if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.POINTING)) {
-                                pointingObjectDescriptionScore -= 1;
-                            }
-                            maxReducedScore -= 1;
-                        }
-                        if (!(argument.getSpeechOutputType().equals(SpeechOutputType.ATTRIBUTIVE_IDENTIFIER) || argument.getSpeechOutputType().equals(SpeechOutputType.THIS_TYPE))) {
-                            speechTypeObjectDescriptionScore -= 1;
+            calculateScoreObjectDescription(argument);
+        }
+    }
+
+    /**
+     * Calculate softScore considering whether an attributive object identifier is available or not for a single phrase component
+     * @param argument
+     */
+    private void calculateScoreObjectDescription(PhraseComponent argument) {
+        if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
+            if (argument.getAttributiveObjectIdentifier() != null) {
+                //a unique attributive identifier has not been found or only a partial one has been found -> use pointing for clarification
+                if (!argument.getAttributiveObjectIdentifier().hasSuccess()) {
+                    if (argument.getModalityRepresentationMap().containsKey(ModalityType.POINTING) && argument.getModalityRepresentationMap().get(ModalityType.POINTING) > 0.5) {
+                        if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.POINTING)) {
+                            pointingObjectDescriptionScore -= 1;
                         }
                         maxReducedScore -= 1;
-                    //use attributive identifier for object referencing as default
-                    } else {
-                        if (!argument.getSpeechOutputType().equals(SpeechOutputType.ATTRIBUTIVE_IDENTIFIER)) {
-                            speechTypeObjectDescriptionScore -= 1;
+                    }
+                    if (!SpeechOutputType.THE_TYPE.equals(argument.getSpeechOutputType())) {
+                        speechTypeObjectDescriptionScore -= 1;
+                    }
+                    maxReducedScore -= 1;
+                } else if (argument.getAttributiveObjectIdentifier().isPartialIdentifiable()) {
+                    if (argument.getModalityRepresentationMap().containsKey(ModalityType.POINTING) && argument.getModalityRepresentationMap().get(ModalityType.POINTING) > 0.5) {
+                        if (!argument.getPowerSetModality().getModalitySet().contains(ModalityType.POINTING)) {
+                            pointingObjectDescriptionScore -= 1;
                         }
                         maxReducedScore -= 1;
                     }
+                    if (!(SpeechOutputType.ATTRIBUTIVE_IDENTIFIER.equals(argument.getSpeechOutputType()) || SpeechOutputType.THIS_TYPE.equals(argument.getSpeechOutputType()))) {
+                        speechTypeObjectDescriptionScore -= 1;
+                    }
+                    maxReducedScore -= 1;
+                //use attributive identifier for object referencing as default
+                } else {
+                    if (!SpeechOutputType.ATTRIBUTIVE_IDENTIFIER.equals(argument.getSpeechOutputType())) {
+                        speechTypeObjectDescriptionScore -= 1;
+                    }
+                    maxReducedScore -= 1;
                 }
             }
         }
@@ -128,37 +149,40 @@ public class ObjectIdentificationScorer extends AbstractScorer {
      * @param modalityRepresentation
      */
     public void calculateScoreObjectProximity(ModalityRepresentation modalityRepresentation) {
-        //check if pointing is problematic since there are other objects of same type in its near neighborhood
         for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
-            if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
-                //only needed if pointing is possible
-                if (argument.getModalityRepresentationMap().containsKey(ModalityType.POINTING) && argument.getModalityRepresentationMap().get(ModalityType.POINTING) > 0.5) {
-                    if (argument.getAttributiveObjectIdentifier() != null && argument.getAttributiveObjectIdentifier().hasSuccess() && !argument.getAttributiveObjectIdentifier().isPartialIdentifiable()) {
-                        for (JsonObject keyObject : WorldModel.getConeIntersectionMap().keySet()) {
-                            if (argument.toString().contains(keyObject.get("worldobjectid").getAsString())) {
-                                List<JsonObject> proximityList = WorldModel.getConeIntersectionMap().get(keyObject);
-                                for (JsonObject closeObject : proximityList) {
-                                    //using "this" or only "this" + type is not good if there are several objects of same type in environment
-                                    if (closeObject.get("worldobjecttype").getAsString().equals(argument.getAttributiveObjectIdentifier().getType())) {
-                                        if (argument.getSpeechOutputType().equals(SpeechOutputType.THIS)) {
-                                            speechTypeObjectProximityScore -= 2;
-                                        } else if (argument.getSpeechOutputType().equals(SpeechOutputType.THIS_TYPE) || argument.getSpeechOutputType().equals(SpeechOutputType.THE_TYPE)) {
-                                            speechTypeObjectProximityScore -= 1;
-                                        } else if (!argument.getSpeechOutputType().equals(SpeechOutputType.ATTRIBUTIVE_IDENTIFIER)) {
-                                            speechTypeObjectProximityScore -= 1;
-                                        }
-                                        //using pointing is not a good idea if there are objects of same type close
-                                        if (argument.getPowerSetModality().getModalitySet().contains(ModalityType.POINTING)) {
-                                            pointingObjectProximityScore -= 1;
-                                        }
-                                        //maximal 2 for speech type and 1 for pointing can be reduced
-                                        maxReducedScore -= 3;
-                                        //not much difference if there are two objects of the same type or more -> break
-                                        break;
-                                    }
-                                }
-                                break;
+            calculateScoreObjectProximity(argument);
+        }
+    }
+
+    /**
+     * Calculate softScore considering the object's proximity to other objects of the same type for a single phrase component
+     * @param argument
+     */
+    private void calculateScoreObjectProximity(PhraseComponent argument) {
+        //check if pointing is problematic since there are other objects of same type in its near neighborhood
+        if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
+            //only needed if pointing is possible
+            if (argument.getModalityRepresentationMap().containsKey(ModalityType.POINTING) && argument.getModalityRepresentationMap().get(ModalityType.POINTING) > 0.5) {
+                if (argument.getAttributiveObjectIdentifier() != null && argument.getAttributiveObjectIdentifier().hasSuccess() && !argument.getAttributiveObjectIdentifier().isPartialIdentifiable()) {
+                    int typeCode = argument.getAttributiveObjectIdentifier().getTypeCode();
+                    for (JsonObject closeObject : WorldModel.getConeNeighbours(argument.getAttributiveObjectIdentifier().getWorldId())) {
+                        //using "this" or only "this" + type is not good if there are several objects of same type in environment
+                        if (WorldModel.getEncodedWorldObject(closeObject).getTypeCode() == typeCode) {
+                            if (SpeechOutputType.THIS.equals(argument.getSpeechOutputType())) {
+                                speechTypeObjectProximityScore -= 2;
+                            } else if (SpeechOutputType.THIS_TYPE.equals(argument.getSpeechOutputType()) || SpeechOutputType.THE_TYPE.equals(argument.getSpeechOutputType())) {
+                                speechTypeObjectProximityScore -= 1;
+                            } else if (!SpeechOutputType.ATTRIBUTIVE_IDENTIFIER.equals(argument.getSpeechOutputType())) {
+                                speechTypeObjectProximityScore -= 1;
+                            }
+                            //using pointing is not a good idea if there are objects of same type close
+                            if (argument.getPowerSetModality().getModalitySet().contains(ModalityType.POINTING)) {
+                                pointingObjectProximityScore -= 1;
                             }
+                            //maximal 2 for speech type and 1 for pointing can be reduced
+                            maxReducedScore -= 3;
+                            //not much difference if there are two objects of the same type or more -> break
+                            break;
                         }
                     }
                 }
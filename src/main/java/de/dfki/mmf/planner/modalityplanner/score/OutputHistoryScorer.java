@@ -44,7 +44,7 @@ import java.util.Map;
 /**
  * Scorer which takes previous output into account
  */
-public class OutputHistoryScorer extends AbstractScorer {
+public class OutputHistoryScorer extends AbstractComponentScorer {
 
     private int maxReducedScore = 0;
     private int speechOutputTypeScore = 0;
@@ -66,15 +66,7 @@ public class OutputHistoryScorer extends AbstractScorer {
         calculateImageScore(modalityRepresentation);
 
         //sum up single scores to receive overall output history softScore
-        //used form of speech output is a special case
-        // -> overwrite general case in ObjectIdentification scorer with multiplying with weight 3
-        softScore += speechOutputTypeScore*3;
-        //not using pointing is a special case
-        // -> use bigger weight than the one used in the GeneralHumanLikeness scorer to overwrite default usage
-        softScore += pointingScore*3;
-        //not using image displaying (because image is already displayed) is a special case
-        // -> use bigger weight than the one used in the GeneralHumanLikeness scorer to overwrite default usage
-        softScore += imageScore*3;
+        softScore += sumScores();
 
         //increase the maxReducedScore by the new weights
         maxReducedScore += speechOutputTypeScore*2;
@@ -88,77 +80,110 @@ public class OutputHistoryScorer extends AbstractScorer {
         return HardSoftScore.valueOf(0, softScore);
     }
 
+    @Override
+    public int calculateComponentScore(PhraseComponent argument, ModalityRepresentation modalityRepresentation) {
+        calculateSpeechOutputTypePointingScore(argument, modalityRepresentation);
+        calculateImageScore(argument);
+        int softScore = sumScores();
+        clearScores();
+        return softScore;
+    }
+
+    private int sumScores() {
+        int softScore = 0;
+        //used form of speech output is a special case
+        // -> overwrite general case in ObjectIdentification scorer with multiplying with weight 3
+        softScore += speechOutputTypeScore*3;
+        //not using pointing is a special case
+        // -> use bigger weight than the one used in the GeneralHumanLikeness scorer to overwrite default usage
+        softScore += pointingScore*3;
+        //not using image displaying (because image is already displayed) is a special case
+        // -> use bigger weight than the one used in the GeneralHumanLikeness scorer to overwrite default usage
+        softScore += imageScore*3;
+        return softScore;
+    }
+
     /**
      * Calculate the output history softScore considering the pointing modality and the used speech output type
      * @param modalityRepresentation
      */
     public void calculateSpeechOutputTypePointingScore(ModalityRepresentation modalityRepresentation) {
+        for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
+            calculateSpeechOutputTypePointingScore(argument, modalityRepresentation);
+        }
+    }
+
+    /**
+     * Calculate the output history softScore considering the pointing modality and the used speech output type for a single phrase component
+     * @param argument
+     * @param modalityRepresentation
+     */
+    private void calculateSpeechOutputTypePointingScore(PhraseComponent argument, ModalityRepresentation modalityRepresentation) {
         //get the idTypeHistoryMap to know which id belongs to which type
         Map<String, String> idTypeHistoryMap = OutputHistory.getIdTypeHistoryMap();
         //check if in latest output history current argument appear -> if so it is not necessary to use pointing, because focus is already on the object
-        for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
-            if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
-                if (argument.getPredicateElement().getWorldObjectId() != null && argument.getPredicateElement().getWorldObjectType() != null) {
-                    //used to check if worldobjectid of current argument has been used in previous predicate
-                    boolean containedArg = false;
-                    //count how many objects with the same worldobjecttype have been referenced in the previous predicate
-                    int typeCounter = 0;
-                    //count how many objects have been referenced in the previous predicate
-                    int allObjCounter = 0;
-                    //get worldobjecttype of current argument
-                    String worldObjectType = argument.getPredicateElement().getWorldObjectType();
-                    //go through latest history
-                    for (String historyString : OutputHistory.getLastOutputHistory().keySet()) {
-                        //check if in latest history objects of type equal to type of current argument appeared
-                        if (idTypeHistoryMap.containsKey(historyString) && idTypeHistoryMap.get(historyString).equals(worldObjectType)) {
-                            typeCounter++;
-                        }
-                        if (idTypeHistoryMap.containsKey(historyString)) {
-                            allObjCounter++;
-                        }
-                        //check if worldobjectid of current argument appeared
-                        if (historyString.equals(argument.getPredicateElement().getWorldObjectId())) {
-                            containedArg = true;
-                        }
+        if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
+            if (argument.getPredicateElement().getWorldObjectId() != null && argument.getPredicateElement().getWorldObjectType() != null) {
+                //used to check if worldobjectid of current argument has been used in previous predicate
+                boolean containedArg = false;
+                //count how many objects with the same worldobjecttype have been referenced in the previous predicate
+                int typeCounter = 0;
+                //count how many objects have been referenced in the previous predicate
+                int allObjCounter = 0;
+                //get worldobjecttype of current argument
+                String worldObjectType = argument.getPredicateElement().getWorldObjectType();
+                //go through latest history
+                for (String historyString : OutputHistory.getLastOutputHistory().keySet()) {
+                    //check if in latest history objects of type equal to type of current argument appeared
+                    if (idTypeHistoryMap.containsKey(historyString) && idTypeHistoryMap.get(historyString).equals(worldObjectType)) {
+                        typeCounter++;
                     }
-                    //only if worldobjectid appeared in previous output
-                    if (containedArg) {
-                        //if there haven't been several object of the same type as the argument
-                        if (typeCounter < 2) {
-                            //if only one object have been referenced in the previous output ("it" can be used to reference same one again)
-                            if (allObjCounter < 2) {
-                                if (!argument.getSpeechOutputType().equals(SpeechOutputType.IT)) {
-                                    speechOutputTypeScore -= 1;
-                                }
-                            } else {
-                                boolean singleType = true;
-                                //check if there is an object with the same type in current component  -> then the type cannot be used
-                                for(PhraseComponent otherArgument: modalityRepresentation.getPhraseComponents()) {
-                                    if (otherArgument.getPredicateElement().getWorldObjectId() != null && otherArgument.getPredicateElement().getWorldObjectType() != null) {
-                                        if(otherArgument.getPredicateElement().getWorldObjectType().equals(argument.getPredicateElement().getWorldObjectType())
-                                            && !otherArgument.getPredicateElement().getWorldObjectId().equals(argument.getPredicateElement().getWorldObjectId())) {
-                                            singleType = false;
-                                        }
+                    if (idTypeHistoryMap.containsKey(historyString)) {
+                        allObjCounter++;
+                    }
+                    //check if worldobjectid of current argument appeared
+                    if (historyString.equals(argument.getPredicateElement().getWorldObjectId())) {
+                        containedArg = true;
+                    }
+                }
+                //only if worldobjectid appeared in previous output
+                if (containedArg) {
+                    //if there haven't been several object of the same type as the argument
+                    if (typeCounter < 2) {
+                        //if only one object have been referenced in the previous output ("it" can be used to reference same one again)
+                        if (allObjCounter < 2) {
+                            //no speech output type is planned for elements without attributive identifier (e.g. the robot itself)
+                            if (argument.getSpeechOutputType() != null && !SpeechOutputType.IT.equals(argument.getSpeechOutputType())) {
+                                speechOutputTypeScore -= 1;
+                            }
+                        } else {
+                            boolean singleType = true;
+                            //check if there is an object with the same type in current component  -> then the type cannot be used
+                            for(PhraseComponent otherArgument: modalityRepresentation.getPhraseComponents()) {
+                                if (otherArgument.getPredicateElement().getWorldObjectId() != null && otherArgument.getPredicateElement().getWorldObjectType() != null) {
+                                    if(otherArgument.getPredicateElement().getWorldObjectType().equals(argument.getPredicateElement().getWorldObjectType())
+                                        && !otherArgument.getPredicateElement().getWorldObjectId().equals(argument.getPredicateElement().getWorldObjectId())) {
+                                        singleType = false;
                                     }
                                 }
-                                //object was mentioned before and no other object of the same type in current sentence -> not necessary to use an attributive identifier (again)
-                                if(singleType) {
-                                    if (!(argument.getSpeechOutputType().equals(SpeechOutputType.THE_TYPE))) {
-                                        speechOutputTypeScore -= 1;
-                                    }
+                            }
+                            //object was mentioned before and no other object of the same type in current sentence -> not necessary to use an attributive identifier (again)
+                            if(singleType) {
+                                if (argument.getSpeechOutputType() != null && !(SpeechOutputType.THE_TYPE.equals(argument.getSpeechOutputType()))) {
+                                    speechOutputTypeScore -= 1;
                                 }
                             }
-                            //if wrong speech type is used
-                            maxReducedScore -= 1;
                         }
-                        if (argument.getModalityRepresentationMap().containsKey(ModalityType.POINTING) && argument.getModalityRepresentationMap().get(ModalityType.POINTING) > 0.5) {
-                            //pointing is not needed since the focus is already on the object
-                            if (argument.getPowerSetModality().getModalitySet().contains(ModalityType.POINTING)) {
-                                pointingScore -= 1;
-                            }
-                            //if pointing is used
-                            maxReducedScore -= 1;
+                        //if wrong speech type is used
+                        maxReducedScore -= 1;
+                    }
+                    if (argument.getModalityRepresentationMap().containsKey(ModalityType.POINTING) && argument.getModalityRepresentationMap().get(ModalityType.POINTING) > 0.5) {
+                        //pointing is not needed since the focus is already on the object
+                        if (argument.getPowerSetModality().getModalitySet().contains(ModalityType.POINTING)) {
+                            pointingScore -= 1;
                         }
+                        //if pointing is used
+                        maxReducedScore -= 1;
                     }
                 }
             }
@@ -170,27 +195,35 @@ public class OutputHistoryScorer extends AbstractScorer {
      * @param modalityRepresentation
      */
     public void calculateImageScore(ModalityRepresentation modalityRepresentation) {
+        for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
+            calculateImageScore(argument);
+        }
+    }
+
+    /**
+     * Calculate the output history softScore considering the image modality for a single phrase component
+     * @param argument
+     */
+    private void calculateImageScore(PhraseComponent argument) {
         //check if the image argument has been mentioned before and if the image is currently displayed -> if so, do not open it a second time on the same device
-        for(PhraseComponent argument: modalityRepresentation.getPhraseComponents()) {
-            if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
-                if (argument.getPowerSetModality().getModalitySet().contains(ModalityType.IMAGE) && argument.getModalityRepresentationMap().get(ModalityType.IMAGE) > 0.5) {
-                    //go over whole output history
-                    for (Map<String, ComposedPlanComponent> historyMaps : OutputHistory.getOutputHistoryList()) {
-                        for (String historyString : historyMaps.keySet()) {
-                            if (historyString.equals(argument.getPredicateElement().getWorldObjectId())) {
-                                //get the used plan components
-                                ComposedPlanComponent composedPlanComponent = historyMaps.get(historyString);
-                                for (PlanComponent planComponent : composedPlanComponent.getPlanComponents()) {
-                                    if (planComponent.getModality().getModalityType().equals(ModalityType.IMAGE)) {
-                                        //check if device once used for displaying image is still displaying the image -> if so: prevent displaying it twice
-                                        if (((ImageDisplayingDevice) planComponent.getDevice()).getCurrentDisplayedImages().contains(planComponent.getOutput())) {
-                                            imageScore -= 1;
-                                            break;
-                                        }
+        if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
+            if (argument.getPowerSetModality().getModalitySet().contains(ModalityType.IMAGE) && argument.getModalityRepresentationMap().get(ModalityType.IMAGE) > 0.5) {
+                //go over whole output history
+                for (Map<String, ComposedPlanComponent> historyMaps : OutputHistory.getOutputHistoryList()) {
+                    for (String historyString : historyMaps.keySet()) {
+                        if (historyString.equals(argument.getPredicateElement().getWorldObjectId())) {
+                            //get the used plan components
+                            ComposedPlanComponent composedPlanComponent = historyMaps.get(historyString);
+                            for (PlanComponent planComponent : composedPlanComponent.getPlanComponents()) {
+                                if (planComponent.getModality().getModalityType().equals(ModalityType.IMAGE)) {
+                                    //check if device once used for displaying image is still displaying the image -> if so: prevent displaying it twice
+                                    if (((ImageDisplayingDevice) planComponent.getDevice()).getCurrentDisplayedImages().contains(planComponent.getOutput())) {
+                                        imageScore -= 1;
+                                        break;
                                     }
                                 }
-                                maxReducedScore -= 1;
                             }
+                            maxReducedScore -= 1;
                         }
                     }
                 }
@@ -42,7 +42,7 @@ import java.util.Set;
 /**
  * Scorer taking into account technical criteria like the fastness of the output
  */
-public class TechnicalEfficiencyScorer extends AbstractScorer  {
+public class TechnicalEfficiencyScorer extends AbstractComponentScorer {
 
     private int fastModalityScore = 0;
     //threshold set from outside to define what fast means for the given devices in the given context
@@ -73,23 +73,64 @@ public class TechnicalEfficiencyScorer extends AbstractScorer  {
     public HardSoftScore calculateScore(ModalityRepresentation modalityRepresentation) {
         int softScore = 0;
         getFastestModality(modalityRepresentation);
+        softScore += rateOutputDuration(fastModalityScore);
+
+        //reset individual scores for next round
+        clearScores();
+
+        return HardSoftScore.valueOf(0, softScore);
+    }
+
+    /**
+     *
+     * @param averageOutputDuration
+     * @return softScore for the average output duration of the phrase components
+     */
+    private int rateOutputDuration(int averageOutputDuration) {
+        int softScore = 0;
         //if fast and slow Threshold are defined
         if(fastThreshold != -1.0 && slowThreshold != -1.0) {
             //check if output is slower than what is defined as fast
-            if (fastModalityScore > fastThreshold) {
+            if (averageOutputDuration > fastThreshold) {
                 //check if output is faster than what is defined as slow -> softscore-1, else softscore-2
-                if(fastModalityScore < slowThreshold) {
+                if(averageOutputDuration < slowThreshold) {
                     softScore -= 1;
                 }else {
                     softScore -= 2;
                 }
             }
         }
+        return softScore;
+    }
 
-        //reset individual scores for next round
-        clearScores();
+    @Override
+    public IncrementalScore createIncrementalScore() {
+        //the component scores are the output durations, the softScore is based on their average
+        return new ComponentIncrementalScore(this) {
+            @Override
+            public int getSoftScore() {
+                return rateOutputDuration(getComponentScoreSum()/workingSolution.getPhraseComponents().size());
+            }
+        };
+    }
 
-        return HardSoftScore.valueOf(0, softScore);
+    /**
+     * the rating does not increase with the average output duration -> the shortest possible durations give the bound
+     */
+    @Override
+    public int getSoftScoreBound(int minComponentScoreSum, int maxComponentScoreSum, int componentCount) {
+        return rateOutputDuration(minComponentScoreSum/componentCount);
+    }
+
+    /**
+     *
+     * @param argument
+     * @param modalityRepresentation
+     * @return output duration of the phrase component (truncated like in getFastestModality)
+     */
+    @Override
+    public int calculateComponentScore(PhraseComponent argument, ModalityRepresentation modalityRepresentation) {
+        return (int) getOutputDuration(argument, modalityRepresentation.getSolvedDeviceRepresentation().getPhraseModalityComponents());
     }
 
     /**
@@ -102,58 +143,69 @@ public class TechnicalEfficiencyScorer extends AbstractScorer  {
         List<PhraseModalityComponent> phraseModalityList = modalityRepresentation.getSolvedDeviceRepresentation().getPhraseModalityComponents();
         //go over all phrase components
         for(PhraseComponent phraseComponent: modalityRepresentation.getPhraseComponents()) {
-            //get the current assigned set of modalities
-            if(phraseComponent.getPowerSetModality() != null && !phraseComponent.getPowerSetModality().getModalitySet().isEmpty()) {
-                Set<ModalityType> usedModalities = phraseComponent.getPowerSetModality().getModalitySet();
-                ArrayList<PhraseModalityComponent> correspondingComponentList = new ArrayList<>();
-                //search phrase component in corresponding argument - modality combination class
-                for (PhraseModalityComponent phraseModalityComponent : phraseModalityList) {
-                    if (phraseModalityComponent.getPredicateElement().toString().equals(phraseComponent.getPredicateElement().toString())) {
-                        correspondingComponentList.add(phraseModalityComponent);
-                    }
+            fastModalityScore += getOutputDuration(phraseComponent, phraseModalityList);
+        }
+        //get average speed
+        fastModalityScore = fastModalityScore/modalityRepresentation.getPhraseComponents().size();
+    }
+
+    /**
+     *
+     * @param phraseComponent
+     * @param phraseModalityList argument - modality combination used in device planning
+     * @return duration of the slowest modality currently assigned to the phrase component
+     */
+    private double getOutputDuration(PhraseComponent phraseComponent, List<PhraseModalityComponent> phraseModalityList) {
+        //get the current assigned set of modalities
+        if(phraseComponent.getPowerSetModality() != null && !phraseComponent.getPowerSetModality().getModalitySet().isEmpty()) {
+            Set<ModalityType> usedModalities = phraseComponent.getPowerSetModality().getModalitySet();
+            ArrayList<PhraseModalityComponent> correspondingComponentList = new ArrayList<>();
+            //search phrase component in corresponding argument - modality combination class
+            for (PhraseModalityComponent phraseModalityComponent : phraseModalityList) {
+                if (phraseModalityComponent.getPredicateElement().toString().equals(phraseComponent.getPredicateElement().toString())) {
+                    correspondingComponentList.add(phraseModalityComponent);
                 }
-                double possibleOutputDuration;
-                double biggestOutputDuration = 0.0;
-                for (PhraseModalityComponent correspondingComponent : correspondingComponentList) {
-                    //get from the used modalities the slowest one
-                    if (usedModalities.contains(correspondingComponent.getModality().getModalityType())) {
-                        //check how long speech output takes
-                        if(correspondingComponent.getModality().getModalityType().equals(ModalityType.SPEECH)) {
-                            String speechString = "";
-                            //check if component is object in world
-                            if(phraseComponent.getAttributiveObjectIdentifier() != null) {
-                                if(phraseComponent.getSpeechOutputType().equals(SpeechOutputType.THIS)) {
-                                    speechString = "this";
-                                }else if(phraseComponent.getSpeechOutputType().equals(SpeechOutputType.THIS_TYPE)) {
-                                    speechString = "this " + phraseComponent.getAttributiveObjectIdentifier().getType();
-                                }else if(phraseComponent.getSpeechOutputType().equals(SpeechOutputType.THE_TYPE)) {
-                                    speechString = "the " + phraseComponent.getAttributiveObjectIdentifier().getType();
-                                }else if(phraseComponent.getSpeechOutputType().equals(SpeechOutputType.IT)) {
-                                    speechString = "it";
-                                }
-                                if(!speechString.equals("")) {
-                                    possibleOutputDuration = correspondingComponent.getDevice().getDurationEstimation(speechString);
-                                //use attributive identifier output and estimate how long it takes
-                                }else {
-                                    possibleOutputDuration = correspondingComponent.getDevice().getDurationEstimation(correspondingComponent.getModality().getModalityOutputMap().get(phraseComponent.getPredicateElement()));
-                                }
-                            //use speech output saved in map to estimate output
+            }
+            double possibleOutputDuration;
+            double biggestOutputDuration = 0.0;
+            for (PhraseModalityComponent correspondingComponent : correspondingComponentList) {
+                //get from the used modalities the slowest one (the device might not be planned yet in the joint planning)
+                if (usedModalities.contains(correspondingComponent.getModality().getModalityType()) && correspondingComponent.getDevice() != null) {
+                    //check how long speech output takes
+                    if(correspondingComponent.getModality().getModalityType().equals(ModalityType.SPEECH)) {
+                        String speechString = "";
+                        //check if component is object in world
+                        if(phraseComponent.getAttributiveObjectIdentifier() != null) {
+                            if(SpeechOutputType.THIS.equals(phraseComponent.getSpeechOutputType())) {
+                                speechString = "this";
+                            }else if(SpeechOutputType.THIS_TYPE.equals(phraseComponent.getSpeechOutputType())) {
+                                speechString = "this " + phraseComponent.getAttributiveObjectIdentifier().getType();
+                            }else if(SpeechOutputType.THE_TYPE.equals(phraseComponent.getSpeechOutputType())) {
+                                speechString = "the " + phraseComponent.getAttributiveObjectIdentifier().getType();
+                            }else if(SpeechOutputType.IT.equals(phraseComponent.getSpeechOutputType())) {
+                                speechString = "it";
+                            }
+                            if(!speechString.equals("")) {
+                                possibleOutputDuration = correspondingComponent.getDevice().getDurationEstimation(speechString);
+                            //use attributive identifier output and estimate how long it takes
                             }else {
                                 possibleOutputDuration = correspondingComponent.getDevice().getDurationEstimation(correspondingComponent.getModality().getModalityOutputMap().get(phraseComponent.getPredicateElement()));
                             }
+                        //use speech output saved in map to estimate output
                         }else {
-                            //check how long output will take on chosen device for corresponding modality (which is not a speech modality)
                             possibleOutputDuration = correspondingComponent.getDevice().getDurationEstimation(correspondingComponent.getModality().getModalityOutputMap().get(phraseComponent.getPredicateElement()));
                         }
-                        if (possibleOutputDuration > biggestOutputDuration) {
-                            biggestOutputDuration = possibleOutputDuration;
-                        }
+                    }else {
+                        //check how long output will take on chosen device for corresponding modality (which is not a speech modality)
+                        possibleOutputDuration = correspondingComponent.getDevice().getDurationEstimation(correspondingComponent.getModality().getModalityOutputMap().get(phraseComponent.getPredicateElement()));
+                    }
+                    if (possibleOutputDuration > biggestOutputDuration) {
+                        biggestOutputDuration = possibleOutputDuration;
                     }
                 }
-                fastModalityScore += biggestOutputDuration;
             }
+            return biggestOutputDuration;
         }
-        //get average speed
-        fastModalityScore = fastModalityScore/modalityRepresentation.getPhraseComponents().size();
+        return 0.0;
     }
 }
@@ -37,6 +37,8 @@ import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Created by Magdalena Kaiser on 11.11.2016.
@@ -45,7 +47,7 @@ import java.util.Arrays;
 /**
  * Scorer taking into account information about the user and his/her preferences (e.g. using/avoiding a specific modality)
  */
-public class UserInfoScorer extends AbstractScorer {
+public class UserInfoScorer extends AbstractComponentScorer {
 
     private int maxReducedScore = 0;
     private int specificModUsedScore = 0;
@@ -66,51 +68,73 @@ public class UserInfoScorer extends AbstractScorer {
         int softScore = 0;
         //some examples about what to retrieve of the user model
         WorldModel.getUserModels().toString();
+        calculateUserInfoScore(modalityRepresentation.getPhraseComponents());
+        //calculate softScore by summing up individuals scores
+        softScore += sumScores();
+
+        setMaximalReducedScore(maxReducedScore);
+        //reset individual scores for next round
+        clearScores();
+
+        return HardSoftScore.valueOf(0, softScore);
+    }
+
+    @Override
+    public int calculateComponentScore(PhraseComponent argument, ModalityRepresentation modalityRepresentation) {
+        calculateUserInfoScore(Collections.singletonList(argument));
+        int softScore = sumScores();
+        clearScores();
+        return softScore;
+    }
+
+    /**
+     * Calculate the softScores based on the user models of the current users for the given phrase components
+     * @param arguments
+     */
+    private void calculateUserInfoScore(List<PhraseComponent> arguments) {
         for(UserModel userModel: WorldModel.getUserModels()) {
             for(String talkedUser: Controller.getTalkingToUserList()) {
                 if(StringUtils.equalsIgnoreCase(talkedUser, userModel.getUserId())) {
                     //retrieve from user model whether user has a preferred modality
                     if (userModel.getUserProperties().has("preferredmodality")) {
                         String preferredModalityType = userModel.getUserProperties().get("preferredmodality").getAsString().toUpperCase();
-                        useSpecificModality(ModalityType.valueOf(preferredModalityType), modalityRepresentation);
+                        useSpecificModality(ModalityType.valueOf(preferredModalityType), arguments);
                     }
                     //does the user have any impairments -> certain modalities should be avoided
                     if (userModel.getUserProperties().has("impairment")) {
                         String impairment = userModel.getUserProperties().get("impairment").getAsString();
                         if (impairment.equals("seeing")) {
-                            avoidCertainModalityUsage(new ArrayList<ModalityType>(Arrays.asList(ModalityType.valueOf("POINTING"), ModalityType.valueOf("GAZE"))), modalityRepresentation);
+                            avoidCertainModalityUsage(new ArrayList<ModalityType>(Arrays.asList(ModalityType.valueOf("POINTING"), ModalityType.valueOf("GAZE"))), arguments);
                         } else if (impairment.equals("hearing")) {
-                            avoidCertainModalityUsage(new ArrayList<ModalityType>(Arrays.asList(ModalityType.valueOf("SPEECH"))), modalityRepresentation);
+                            avoidCertainModalityUsage(new ArrayList<ModalityType>(Arrays.asList(ModalityType.valueOf("SPEECH"))), arguments);
                         }
                     }
                     //does the user have not very good language skills in the language used for communication with him -> avoid using speech only
                     if (userModel.getUserProperties().has("languageskills")) {
                         String languageskills = userModel.getUserProperties().get("languageskills").getAsString();
                         if (languageskills.equals("low")) {
-                            avoidSpeechOnlyOutput(modalityRepresentation);
+                            avoidSpeechOnlyOutput(arguments);
                         }
                     }else if(userModel.getUserProperties().has("verbose")) {
                         if(userModel.getUserProperties().get("verbose").getAsBoolean()) {
-                            verboseSpeechOutput(modalityRepresentation);
+                            verboseSpeechOutput(arguments);
                         }
                     }
                     break;
                 }
             }
         }
-        //calculate softScore by summing up individuals scores
+    }
+
+    private int sumScores() {
+        int softScore = 0;
         softScore += specificModUsedScore;
         softScore += avoidSpecificModScore;
         //speech is very difficult to understand for user, other modalities very important -> score * 2
         softScore += avoidSpeechOnlyOutputScore*2;
         //since for the verbose speech output the attributive object identifier is very important -> score * 2
         softScore += verboseSpeechOutputScore*2;
-
-        setMaximalReducedScore(maxReducedScore);
-        //reset individual scores for next round
-        clearScores();
-
-        return HardSoftScore.valueOf(0, softScore);
+        return softScore;
     }
 
     /**
@@ -120,7 +144,17 @@ public class UserInfoScorer extends AbstractScorer {
      * @return
      */
     public void useSpecificModality(ModalityType modalityType, ModalityRepresentation modalityRepresentation) {
-        for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
+        useSpecificModality(modalityType, modalityRepresentation.getPhraseComponents());
+    }
+
+    /**
+     * use specific modality whenever possible for the given phrase components
+     * @param modalityType
+     * @param arguments
+     * @return
+     */
+    private void useSpecificModality(ModalityType modalityType, List<PhraseComponent> arguments) {
+        for (PhraseComponent argument : arguments) {
             if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
                 if(argument.getModalityRepresentationMap().containsKey(modalityType) && argument.getModalityRepresentationMap().get(modalityType) < 0.5) {
                     continue;
@@ -140,7 +174,16 @@ public class UserInfoScorer extends AbstractScorer {
      * @param modalityRepresentation
      */
     public void avoidCertainModalityUsage(ArrayList<ModalityType> modalityTypeList, ModalityRepresentation modalityRepresentation) {
-        for (PhraseComponent argument : modalityRepresentation.getPhraseComponents()) {
+        avoidCertainModalityUsage(modalityTypeList, modalityRepresentation.getPhraseComponents());
+    }
+
+    /**
+     * avoid using a specific modality if possible for the given phrase components
+     * @param modalityTypeList
+     * @param arguments
+     */
+    private void avoidCertainModalityUsage(ArrayList<ModalityType> modalityTypeList, List<PhraseComponent> arguments) {
+        for (PhraseComponent argument : arguments) {
             if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
                 //go over set of currently chosen modalities and check if the modality which should be avoided is part of the set
                 for (ModalityType powerSetModalityType : argument.getPowerSetModality().getModalitySet())  {
@@ -164,7 +207,15 @@ public class UserInfoScorer extends AbstractScorer {
      * @param modalityRepresentation
      */
     public void avoidSpeechOnlyOutput(ModalityRepresentation modalityRepresentation) {
-        for(PhraseComponent argument: modalityRepresentation.getPhraseComponents()) {
+        avoidSpeechOnlyOutput(modalityRepresentation.getPhraseComponents());
+    }
+
+    /**
+     * use speech only in combination with other modality if possible for the given phrase components
+     * @param arguments
+     */
+    private void avoidSpeechOnlyOutput(List<PhraseComponent> arguments) {
+        for(PhraseComponent argument: arguments) {
             if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
                 //check if only speech is used
                 if(argument.getPowerSetModality().getModalitySet().size() == 1 && argument.getPowerSetModality().getModalitySet().contains(ModalityType.SPEECH)) {
@@ -177,7 +228,7 @@ public class UserInfoScorer extends AbstractScorer {
                 }
                 if(argument.getAttributiveObjectIdentifier() != null) {
                     //better not use the attributive identifier (longer, possibly less understandable when speech should be avoided)
-                    if(!argument.getSpeechOutputType().equals(SpeechOutputType.THIS_TYPE)) {
+                    if(!SpeechOutputType.THIS_TYPE.equals(argument.getSpeechOutputType())) {
                         avoidSpeechOnlyOutputScore -= 1;
                     }
                     maxReducedScore -= 1;
@@ -197,12 +248,20 @@ public class UserInfoScorer extends AbstractScorer {
      * @param modalityRepresentation
      */
     public void verboseSpeechOutput(ModalityRepresentation modalityRepresentation) {
+        verboseSpeechOutput(modalityRepresentation.getPhraseComponents());
+    }
+
+    /**
+     * verbose speech output should be provided for the given phrase components
+     * @param arguments
+     */
+    private void verboseSpeechOutput(List<PhraseComponent> arguments) {
         //use speech heavily and use the attributive identifier to describe objects
-        useSpecificModality(ModalityType.SPEECH, modalityRepresentation);
-        for(PhraseComponent argument: modalityRepresentation.getPhraseComponents()) {
+        useSpecificModality(ModalityType.SPEECH, arguments);
+        for(PhraseComponent argument: arguments) {
             if (argument.getPowerSetModality() != null && !argument.getPowerSetModality().getModalitySet().isEmpty()) {
                 if(argument.getAttributiveObjectIdentifier() != null) {
-                    if(!argument.getSpeechOutputType().equals(SpeechOutputType.ATTRIBUTIVE_IDENTIFIER)) {
+                    if(!SpeechOutputType.ATTRIBUTIVE_IDENTIFIER.equals(argument.getSpeechOutputType())) {
                         verboseSpeechOutputScore -= 1;
                     }
                     maxReducedScore -= 1;
@@ -0,0 +1,148 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.attributeselection;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the smallest identifier search with the search over the power set of the discriminating attributes
+ * on randomly generated objects (as in the AttributeSelectionBenchmark)
+ */
+public class AttributeSelectionAlgorithmTest {
+
+    private static final int MIN_ATTRIBUTES = 3;
+    private static final int MAX_ATTRIBUTES = 10;
+    private static final int SCENARIOS_PER_ATTRIBUTE_COUNT = 10;
+    private static final int DATABASE_OBJECTS = 10;
+    private static final int ATTRIBUTE_VALUES = 3;
+
+    private final Random random = new Random(0);
+
+    @Test
+    public void smallestIdentifierSearchFindsTheSmallestIdentifiersOfThePowerSet() throws InterruptedException {
+        for(int attributeCount = MIN_ATTRIBUTES; attributeCount <= MAX_ATTRIBUTES; attributeCount++) {
+            for(int scenario = 0; scenario < SCENARIOS_PER_ATTRIBUTE_COUNT; scenario++) {
+                JsonObject saliencyAnnotations = createSaliencyAnnotations(attributeCount);
+                JsonObject queriedObject = createObject(attributeCount);
+                List<JsonObject> databaseObjects = createDatabaseObjects(attributeCount);
+
+                AttributeSelectionAlgorithm powerSetAlgorithm = runAlgorithm(databaseObjects, queriedObject, saliencyAnnotations, false, -1.0);
+                AttributeSelectionAlgorithm smallestAlgorithm = runAlgorithm(databaseObjects, queriedObject, saliencyAnnotations, true, -1.0);
+                assertEquals(powerSetAlgorithm.isPartialIdentifiable(), smallestAlgorithm.isPartialIdentifiable());
+                if(powerSetAlgorithm.isPartialIdentifiable()) {
+                    continue;
+                }
+                Set<JsonObject> powerSetIdentifiers = powerSetAlgorithm.getResult();
+                Set<JsonObject> smallestIdentifiers = smallestAlgorithm.getResult();
+                int smallestSize = powerSetAlgorithm.getShortestIdentifier(powerSetIdentifiers).size();
+                Set<JsonObject> expectedIdentifiers = new HashSet<>();
+                for(JsonObject identifier: powerSetIdentifiers) {
+                    if(identifier.size() == smallestSize) {
+                        expectedIdentifiers.add(identifier);
+                    }
+                }
+                assertEquals(expectedIdentifiers, new HashSet<>(smallestIdentifiers));
+            }
+        }
+    }
+
+    @Test
+    public void smallestIdentifierSearchChoosesTheSameSalientIdentifierAsThePowerSet() throws InterruptedException {
+        for(int attributeCount = MIN_ATTRIBUTES; attributeCount <= MAX_ATTRIBUTES; attributeCount++) {
+            for(int scenario = 0; scenario < SCENARIOS_PER_ATTRIBUTE_COUNT; scenario++) {
+                JsonObject saliencyAnnotations = createSaliencyAnnotations(attributeCount);
+                JsonObject queriedObject = createObject(attributeCount);
+                List<JsonObject> databaseObjects = createDatabaseObjects(attributeCount);
+
+                AttributeSelectionAlgorithm powerSetAlgorithm = runAlgorithm(databaseObjects, queriedObject, saliencyAnnotations, false, -1.0);
+                //default threshold of the SHORTEST_MOST_SALIENT_ABOVE_THRESHOLD selector
+                AttributeSelectionAlgorithm smallestAlgorithm = runAlgorithm(databaseObjects, queriedObject, saliencyAnnotations, true, 0.8);
+                if(powerSetAlgorithm.isPartialIdentifiable()) {
+                    continue;
+                }
+                //identifiers of the same size and saliency are equally good, which of them is chosen depends on the order of the result set
+                JsonObject expectedIdentifier = powerSetAlgorithm.getShortestMostSalientAboveThresholdIdentifier(powerSetAlgorithm.getResult());
+                JsonObject identifier = smallestAlgorithm.getShortestMostSalientAboveThresholdIdentifier(smallestAlgorithm.getResult());
+                assertEquals(expectedIdentifier.size(), identifier.size());
+                assertEquals(calculateSaliency(expectedIdentifier, saliencyAnnotations), calculateSaliency(identifier, saliencyAnnotations), 1e-9);
+            }
+        }
+    }
+
+    private AttributeSelectionAlgorithm runAlgorithm(List<JsonObject> databaseObjects, JsonObject queriedObject, JsonObject saliencyAnnotations,
+                                                     boolean smallestIdentifierSearch, double minimumIdentifierSaliency) {
+        AttributeSelectionAlgorithm algorithm = new AttributeSelectionAlgorithm(databaseObjects, queriedObject, saliencyAnnotations);
+        algorithm.setSmallestIdentifierSearch(smallestIdentifierSearch);
+        if(minimumIdentifierSaliency >= 0.0) {
+            algorithm.setMinimumIdentifierSaliency(minimumIdentifierSaliency);
+        }
+        algorithm.run();
+        return algorithm;
+    }
+
+    private double calculateSaliency(JsonObject identifier, JsonObject saliencyAnnotations) {
+        double saliency = 0.0;
+        for(Map.Entry<String, JsonElement> entry: identifier.entrySet()) {
+            saliency += saliencyAnnotations.get(entry.getKey()).getAsDouble();
+        }
+        return saliency;
+    }
+
+    private JsonObject createSaliencyAnnotations(int attributeCount) {
+        JsonObject saliencyAnnotations = new JsonObject();
+        for(int i = 0; i < attributeCount; i++) {
+            //all saliency values are above the pruning threshold of the algorithm
+            saliencyAnnotations.addProperty("attribute" + i, String.valueOf(0.5 + random.nextInt(50)/100.0));
+        }
+        return saliencyAnnotations;
+    }
+
+    private List<JsonObject> createDatabaseObjects(int attributeCount) {
+        List<JsonObject> databaseObjects = new ArrayList<>();
+        for(int i = 0; i < DATABASE_OBJECTS; i++) {
+            databaseObjects.add(createObject(attributeCount));
+        }
+        return databaseObjects;
+    }
+
+    private JsonObject createObject(int attributeCount) {
+        JsonObject object = new JsonObject();
+        for(int i = 0; i < attributeCount; i++) {
+            object.addProperty("attribute" + i, "value" + random.nextInt(ATTRIBUTE_VALUES));
+        }
+        return object;
+    }
+}
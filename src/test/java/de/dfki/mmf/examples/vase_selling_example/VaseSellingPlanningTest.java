@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.examples.vase_selling_example;
+
+import com.google.gson.JsonObject;
+import de.dfki.mmf.controller.Controller;
+import de.dfki.mmf.history.OutputHistory;
+import de.dfki.mmf.input.LanguageFormat;
+import de.dfki.mmf.input.worldmodel.ModelType;
+import de.dfki.mmf.input.worldmodel.WorldModel;
+import de.dfki.mmf.planner.SolverRegistry;
+import de.dfki.mmf.planner.modalityplanner.ExactModalityPlanningEngine;
+import de.dfki.mmf.planner.modalityplanner.ModalityPlanningEngine;
+import de.dfki.mmf.planner.modalityplanner.ModalityRepresentation;
+import de.dfki.mmf.planner.modalityplanner.score.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.api.solver.Solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plans the predicates of the vase selling example with the different planning engines and score calculators
+ * and compares their results
+ */
+public class VaseSellingPlanningTest {
+
+    private static final List<String> PREDICATE_STRINGS = Arrays.asList(
+            "coi()",
+            "lamji(vase4, vase5, [zoe], [zoe])",
+            "[xu] viska(user1, vase4, [zoe])",
+            "bramau(vase1, vase2, [zoe], [zoe])",
+            "jarco(robot1, image1, user1)",
+            "jarco(image1, vase1, [zoe])",
+            "jarco(image2, colorful vase, [zoe])",
+            "[na] nonseldia(colorful vase, [zoe], [zoe])",
+            "[na] skari(vase3, blue, [zoe], [zoe])",
+            "vecnu(robot1, vase4, user1, 70 euro)",
+            "[xu] terveu(user1, vase4, [zoe], [zoe])",
+            "coo()");
+
+    private static VaseSellingMain main;
+    private static JsonObject saliencyAnnotations;
+
+    @BeforeClass
+    public static void initializeWorldModel() {
+        main = new VaseSellingMain();
+        main.createModalityDevices();
+        saliencyAnnotations = main.generateSaliencyAnnotations();
+        main.initializeWorldModel(saliencyAnnotations, ModelType.OWL, "vase-ontology.owl");
+    }
+
+    @Test
+    public void exactPlanningIsAtLeastAsGoodAsTheSolver() {
+        SolverComparingEngine engine = new SolverComparingEngine();
+        planAllPredicates(false, engine);
+        assertEquals(PREDICATE_STRINGS.size(), engine.comparedPredicates);
+    }
+
+    @Test
+    public void jointPlanningIsAtLeastAsGoodAsTwoStagePlanning() {
+        HardSoftScore twoStageScore = planAllPredicates(false, null);
+        HardSoftScore jointScore = planAllPredicates(true, null);
+        assertTrue("joint " + jointScore + ", two-stage " + twoStageScore, jointScore.compareTo(twoStageScore) >= 0);
+    }
+
+    @Test
+    public void incrementalScoresMatchEasyScoresInFastAssertMode() {
+        SolverRegistry registry = SolverRegistry.getInstance();
+        String deviceSolverConfig = registry.getSolverConfig(SolverRegistry.DEVICE_SOLVER);
+        String modalitySolverConfig = registry.getSolverConfig(SolverRegistry.MODALITY_SOLVER);
+        String jointSolverConfig = registry.getSolverConfig(SolverRegistry.JOINT_SOLVER);
+        //a corrupted incremental score makes the solver throw an IllegalStateException
+        registry.setSolverConfig(SolverRegistry.DEVICE_SOLVER, "DeviceRepresentationLocalSearchAssertSolverConfig.xml");
+        registry.setSolverConfig(SolverRegistry.MODALITY_SOLVER, "ModalityRepresentationLocalSearchAssertSolverConfig.xml");
+        registry.setSolverConfig(SolverRegistry.JOINT_SOLVER, "JointRepresentationAssertSolverConfig.xml");
+        try {
+            planAllPredicates(false, null);
+            planAllPredicates(true, null);
+        } finally {
+            registry.setSolverConfig(SolverRegistry.DEVICE_SOLVER, deviceSolverConfig);
+            registry.setSolverConfig(SolverRegistry.MODALITY_SOLVER, modalitySolverConfig);
+            registry.setSolverConfig(SolverRegistry.JOINT_SOLVER, jointSolverConfig);
+        }
+    }
+
+    /**
+     * plan all predicates after each other, starting with an empty output history (as in the VaseSellingJointPlanningBenchmark)
+     * @param jointPlanning
+     * @param modalityPlanningEngine engine used instead of the modality solver, null for the solver
+     * @return sum of the device and modality scores of all predicates
+     */
+    private static HardSoftScore planAllPredicates(boolean jointPlanning, ModalityPlanningEngine modalityPlanningEngine) {
+        OutputHistory.clearOutputHistory();
+        ArrayList<String> talkingToUserList = new ArrayList<>();
+        talkingToUserList.add("User1");
+        HardSoftScore summedScore = HardSoftScore.valueOf(0, 0);
+        for(String predicateString: PREDICATE_STRINGS) {
+            if(predicateString.contains("skari")) {
+                saliencyAnnotations.addProperty("color", "0.0");
+            }else if(predicateString.contains("bramau")) {
+                saliencyAnnotations.addProperty("approximatesize", "0.0");
+            }
+            main.updateWorldModel(saliencyAnnotations, WorldModel.getRobotModel(), ModelType.OWL, "vase-ontology.owl");
+            Controller controller = new Controller(predicateString, LanguageFormat.ENG_SIMPLENLG, talkingToUserList);
+            ArrayList<AbstractScorer> scorers = new ArrayList<>();
+            scorers.add(new UserInfoScorer());
+            scorers.add(new GeneralHumanLikenessScorer());
+            scorers.add(new OutputHistoryScorer());
+            scorers.add(new ObjectIdentificationScorer());
+            scorers.add(new TechnicalEfficiencyScorer());
+            controller.setScorer(scorers);
+            controller.setJointPlanning(jointPlanning);
+            controller.setModalityPlanningEngine(modalityPlanningEngine);
+            controller.generatePlan();
+            summedScore = summedScore.add(controller.getDeviceScore()).add(controller.getModalityScore());
+            saliencyAnnotations.addProperty("color", "1.0");
+            saliencyAnnotations.addProperty("approximatesize", "0.8");
+        }
+        return summedScore;
+    }
+
+    /**
+     * solves each predicate with the solver and the ExactModalityPlanningEngine and checks that the exact result is at least as good
+     * and that its score is the one of the FusionScorer
+     */
+    private static class SolverComparingEngine implements ModalityPlanningEngine {
+
+        private final ExactModalityPlanningEngine exactEngine = new ExactModalityPlanningEngine();
+        private final FusionScorer fusionScorer = new FusionScorer();
+        private int comparedPredicates = 0;
+
+        SolverComparingEngine() {
+            //all predicates of the example are searched exhaustively
+            exactEngine.setMaxCombinations(Long.MAX_VALUE);
+        }
+
+        @Override
+        public ModalityRepresentation solve(ModalityRepresentation modalityRepresentation) {
+            //the solver first since it does not initialize phrase components which have already been initialized
+            Solver<ModalityRepresentation> modalitySolver = SolverRegistry.getInstance().buildSolver(SolverRegistry.MODALITY_SOLVER);
+            HardSoftScore solverScore = modalitySolver.solve(modalityRepresentation).getScore();
+            ModalityRepresentation exactModalityRepresentation = exactEngine.solve(modalityRepresentation);
+            assertNotNull(exactModalityRepresentation);
+            HardSoftScore exactScore = exactModalityRepresentation.getScore();
+            assertTrue("exact " + exactScore + ", solver " + solverScore, exactScore.compareTo(solverScore) >= 0);
+            assertEquals(fusionScorer.calculateScore(exactModalityRepresentation), exactScore);
+            comparedPredicates++;
+            return exactModalityRepresentation;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Magdalena Kaiser
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.dfki.mmf.input.worldmodel;
+
+import com.google.gson.JsonObject;
+import de.dfki.mmf.math.Position;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the cone intersections of the grid, the parallel calculation, the tracked world model events and the lazy mode
+ * with all pairs of cones compared by WorldObjectConeIntersectionCalculator.HasConeIntersection() on generated worlds
+ */
+public class ConeIntersectionTest {
+
+    private static final int OBJECT_COUNT = 250;
+    private static final int EVENT_COUNT = 400;
+
+    private final Random random = new Random(0);
+    private final WorldObjectConeIntersectionCalculator calculator = new WorldObjectConeIntersectionCalculator();
+    private List<JsonObject> worldProperties;
+    private int nextObjectId = 0;
+
+    @Before
+    public void createWorld() {
+        worldProperties = new ArrayList<>();
+        worldProperties.add(createRobot(0.0, 0.0));
+        for(int i = 0; i < OBJECT_COUNT; i++) {
+            worldProperties.add(createWorldObject(true));
+        }
+        RobotModel robotModel = new RobotModel();
+        robotModel.setRobotProperties(worldProperties.get(0));
+        WorldModel.setRobotModel(robotModel);
+        WorldModel.setWorldProperties(worldProperties);
+    }
+
+    @After
+    public void resetWorldModel() {
+        WorldModel.setLazyConeIntersection(false);
+        ConeIntersectionTracker.getInstance().reset();
+        WorldModel.setConeIntersectionGraph(ConeIntersectionGraph.empty());
+    }
+
+    @Test
+    public void gridFindsAllIntersectingCones() {
+        calculator.setParallelThreshold(Integer.MAX_VALUE);
+        assertEquals(calculateAllPairs(worldProperties), calculator.calculateObjectsConeIntersection(worldProperties));
+    }
+
+    @Test
+    public void parallelCalculationFindsAllIntersectingCones() {
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try {
+            calculator.setForkJoinPool(forkJoinPool);
+            calculator.setParallelThreshold(1);
+            assertEquals(calculateAllPairs(worldProperties), calculator.calculateObjectsConeIntersection(worldProperties));
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    public void trackedWorldModelEventsKeepTheConeIntersections() {
+        ConeIntersectionTracker.getInstance().update(worldProperties, WorldModel.getRobotModel().getRobotPosition());
+        assertConeNeighbours();
+        for(int i = 1; i <= EVENT_COUNT; i++) {
+            applyRandomEvent();
+            if(i % 20 == 0) {
+                assertEquals(calculateAllPairs(WorldModel.getWorldProperties()), WorldModel.getConeIntersectionGraph().toMap());
+            }
+        }
+        assertConeNeighbours();
+    }
+
+    @Test
+    public void lazyConeIntersectionsAreCalculatedOnQuery() {
+        WorldModel.setLazyConeIntersection(true);
+        WorldModel.setLazyConeIntersections(worldProperties, WorldModel.getRobotModel().getRobotPosition());
+        assertConeNeighbours();
+        for(int i = 1; i <= EVENT_COUNT; i++) {
+            applyRandomEvent();
+            if(i % 20 == 0) {
+                assertConeNeighbours();
+            }
+        }
+        assertEquals(calculateAllPairs(WorldModel.getWorldProperties()), WorldModel.getConeIntersectionGraph().toMap());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void removingAnUnknownObjectIsRejected() {
+        ConeIntersectionTracker.getInstance().update(worldProperties, WorldModel.getRobotModel().getRobotPosition());
+        ConeIntersectionTracker.getInstance().onObjectRemoved(createWorldObject(true));
+    }
+
+    /**
+     * moves, adds or removes an object or moves the robot
+     */
+    private void applyRandomEvent() {
+        List<JsonObject> currentWorldProperties = WorldModel.getWorldProperties();
+        int event = random.nextInt(100);
+        if(event < 60) {
+            //moved object, sometimes without position
+            JsonObject worldObject = currentWorldProperties.get(1 + random.nextInt(currentWorldProperties.size() - 1));
+            JsonObject movedObject = createWorldObject(random.nextInt(20) > 0);
+            movedObject.addProperty("worldobjectid", worldObject.get("worldobjectid").getAsString());
+            WorldModel.updateWorldObject(movedObject);
+        } else if(event < 78) {
+            WorldModel.updateWorldObject(createWorldObject(random.nextInt(10) > 0));
+        } else if(event < 97) {
+            if(currentWorldProperties.size() > 2) {
+                JsonObject worldObject = currentWorldProperties.get(1 + random.nextInt(currentWorldProperties.size() - 1));
+                assertTrue(WorldModel.removeWorldObject(worldObject.get("worldobjectid").getAsString()));
+            }
+        } else {
+            WorldModel.updateWorldObject(createRobot(random.nextDouble(), random.nextDouble()));
+        }
+    }
+
+    /**
+     * the cone neighbours of each object of the world model are those of the comparison of all pairs (in the order of the world properties)
+     */
+    private void assertConeNeighbours() {
+        List<JsonObject> currentWorldProperties = WorldModel.getWorldProperties();
+        Map<JsonObject, List<JsonObject>> expectedConeIntersections = calculateAllPairs(currentWorldProperties);
+        for(JsonObject worldObject: currentWorldProperties) {
+            String worldObjectId = worldObject.get("worldobjectid").getAsString();
+            assertSame(worldObject, WorldModel.getWorldObject(worldObjectId));
+            List<JsonObject> expectedNeighbours = expectedConeIntersections.get(worldObject);
+            List<JsonObject> neighbours = WorldModel.getConeNeighbours(worldObjectId);
+            if(expectedNeighbours == null) {
+                assertTrue(neighbours.isEmpty());
+            } else {
+                assertEquals(worldObjectId, expectedNeighbours, new ArrayList<>(neighbours));
+            }
+        }
+    }
+
+    /**
+     * @param worldProperties
+     * @return for each object with a position the objects whose cone intersects with its cone, by comparing all pairs
+     */
+    private Map<JsonObject, List<JsonObject>> calculateAllPairs(List<JsonObject> worldProperties) {
+        Position robotPosition = WorldModel.getRobotModel().getRobotPosition();
+        List<JsonObject> positionedObjects = new ArrayList<>();
+        List<Position> positions = new ArrayList<>();
+        List<Double> radii = new ArrayList<>();
+        for(JsonObject worldObject: worldProperties) {
+            Position position = calculator.getWorldObjectPosition(worldObject);
+            if(position != null) {
+                positionedObjects.add(worldObject);
+                positions.add(position);
+                radii.add(calculator.getProximityRadius(worldObject, position, robotPosition));
+            }
+        }
+        Map<JsonObject, List<JsonObject>> coneIntersections = new LinkedHashMap<>();
+        for(int i = 0; i < positionedObjects.size(); i++) {
+            List<JsonObject> intersectingObjects = new ArrayList<>();
+            for(int j = 0; j < positionedObjects.size(); j++) {
+                if(j != i && calculator.HasConeIntersection(positions.get(i), positions.get(j), robotPosition, radii.get(i), radii.get(j))) {
+                    intersectingObjects.add(positionedObjects.get(j));
+                }
+            }
+            coneIntersections.put(positionedObjects.get(i), intersectingObjects);
+        }
+        return coneIntersections;
+    }
+
+    private JsonObject createWorldObject(boolean withPosition) {
+        JsonObject worldObject = new JsonObject();
+        worldObject.addProperty("worldobjectid", "object" + nextObjectId++);
+        worldObject.addProperty("worldobjecttype", "object");
+        if(withPosition) {
+            worldObject.addProperty("xposition", (random.nextDouble() - 0.5)*4);
+            worldObject.addProperty("yposition", (random.nextDouble() - 0.5)*4);
+            worldObject.addProperty("zposition", random.nextDouble()*2);
+            worldObject.addProperty("proximityradius", 0.05 + random.nextDouble()*0.2);
+        }
+        return worldObject;
+    }
+
+    private JsonObject createRobot(double x, double y) {
+        JsonObject robot = new JsonObject();
+        robot.addProperty("worldobjectid", "robot");
+        robot.addProperty("worldobjecttype", "robot");
+        robot.addProperty("xposition", x);
+        robot.addProperty("yposition", y);
+        robot.addProperty("zposition", 1.0);
+        return robot;
+    }
+}